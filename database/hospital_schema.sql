@@ -14,7 +14,10 @@ CREATE TABLE IF NOT EXISTS Patient (
     phone VARCHAR(20),                          -- Contact number
     address TEXT,                               -- Residential address
     blood_type VARCHAR(5),                      -- Blood group
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP -- Record creation time
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, -- Record creation time
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), -- Last change time (delta refresh)
+
+    INDEX idx_patient_updated_at (updated_at)
 );
 
 -- Stores hospital departments
@@ -32,6 +35,9 @@ CREATE TABLE IF NOT EXISTS Doctor (
     specialization VARCHAR(100),               -- Area of specialization
     phone VARCHAR(20),                          -- Contact number
     department_id INT NOT NULL,                -- Associated department
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), -- Last change time (delta refresh)
+
+    INDEX idx_doctor_updated_at (updated_at),
     FOREIGN KEY (department_id) REFERENCES Department(department_id)
 );
 
@@ -45,7 +51,11 @@ CREATE TABLE IF NOT EXISTS Appointment (
     status VARCHAR(20) DEFAULT 'Scheduled',        -- Appointment status (Scheduled, Completed, Cancelled)
     notes TEXT,                                    -- Additional appointment notes
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, -- Record creation time
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), -- Last change time (delta refresh)
 
+    INDEX idx_appointment_updated_at (updated_at),
+    INDEX idx_appointment_date_id (appointment_date, appointment_id), -- Keyset pagination by date
+    INDEX idx_appointment_doctor_date (doctor_id, appointment_date, appointment_time), -- A doctor's day
     FOREIGN KEY (patient_id) REFERENCES Patient(patient_id) ON DELETE CASCADE,
     FOREIGN KEY (doctor_id) REFERENCES Doctor(doctor_id) ON DELETE CASCADE
 );
@@ -72,7 +82,9 @@ CREATE TABLE IF NOT EXISTS Prescription (
     diagnosis TEXT,                                 -- Medical diagnosis
     notes TEXT,                                     -- Additional notes
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, -- Record creation time
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), -- Last change time (delta refresh)
 
+    INDEX idx_prescription_updated_at (updated_at),
     FOREIGN KEY (patient_id) REFERENCES Patient(patient_id) ON DELETE CASCADE,
     FOREIGN KEY (doctor_id) REFERENCES Doctor(doctor_id) ON DELETE CASCADE,
     FOREIGN KEY (appointment_id) REFERENCES Appointment(appointment_id) ON DELETE SET NULL
@@ -102,12 +114,81 @@ CREATE TABLE IF NOT EXISTS PatientFeedback (
     comments TEXT,                                  -- Patient comments
     feedback_date DATE NOT NULL,                    -- Date feedback was given
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, -- Record creation time
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), -- Last change time (delta refresh)
 
+    INDEX idx_feedback_updated_at (updated_at),
     FOREIGN KEY (patient_id) REFERENCES Patient(patient_id) ON DELETE CASCADE,
     FOREIGN KEY (doctor_id) REFERENCES Doctor(doctor_id) ON DELETE SET NULL,
     FOREIGN KEY (appointment_id) REFERENCES Appointment(appointment_id) ON DELETE SET NULL
 );
 
+-- Tombstones for deleted rows, so clients can remove them during a delta refresh
+CREATE TABLE IF NOT EXISTS DeletedRecord (
+    table_name VARCHAR(50) NOT NULL,               -- Table the row was deleted from
+    record_id INT NOT NULL,                        -- Primary key of the deleted row
+    deleted_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3), -- Deletion time
+
+    PRIMARY KEY (table_name, record_id),
+    INDEX idx_deleted_record_time (table_name, deleted_at)
+);
+
+-- Delete triggers writing the tombstones. Rows removed by ON DELETE CASCADE do not fire
+-- triggers, so the Patient and Doctor triggers also record their dependent rows.
+DROP TRIGGER IF EXISTS trg_patient_deleted;
+DROP TRIGGER IF EXISTS trg_doctor_deleted;
+DROP TRIGGER IF EXISTS trg_appointment_deleted;
+DROP TRIGGER IF EXISTS trg_prescription_deleted;
+DROP TRIGGER IF EXISTS trg_feedback_deleted;
+
+DELIMITER $$
+
+CREATE TRIGGER trg_patient_deleted BEFORE DELETE ON Patient FOR EACH ROW
+BEGIN
+    INSERT INTO DeletedRecord (table_name, record_id) VALUES ('Patient', OLD.patient_id)
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+    INSERT INTO DeletedRecord (table_name, record_id)
+        SELECT 'Appointment', appointment_id FROM Appointment WHERE patient_id = OLD.patient_id
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+    INSERT INTO DeletedRecord (table_name, record_id)
+        SELECT 'Prescription', prescription_id FROM Prescription WHERE patient_id = OLD.patient_id
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+    INSERT INTO DeletedRecord (table_name, record_id)
+        SELECT 'PatientFeedback', feedback_id FROM PatientFeedback WHERE patient_id = OLD.patient_id
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+END$$
+
+CREATE TRIGGER trg_doctor_deleted BEFORE DELETE ON Doctor FOR EACH ROW
+BEGIN
+    INSERT INTO DeletedRecord (table_name, record_id) VALUES ('Doctor', OLD.doctor_id)
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+    INSERT INTO DeletedRecord (table_name, record_id)
+        SELECT 'Appointment', appointment_id FROM Appointment WHERE doctor_id = OLD.doctor_id
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+    INSERT INTO DeletedRecord (table_name, record_id)
+        SELECT 'Prescription', prescription_id FROM Prescription WHERE doctor_id = OLD.doctor_id
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+END$$
+
+CREATE TRIGGER trg_appointment_deleted AFTER DELETE ON Appointment FOR EACH ROW
+BEGIN
+    INSERT INTO DeletedRecord (table_name, record_id) VALUES ('Appointment', OLD.appointment_id)
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+END$$
+
+CREATE TRIGGER trg_prescription_deleted AFTER DELETE ON Prescription FOR EACH ROW
+BEGIN
+    INSERT INTO DeletedRecord (table_name, record_id) VALUES ('Prescription', OLD.prescription_id)
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+END$$
+
+CREATE TRIGGER trg_feedback_deleted AFTER DELETE ON PatientFeedback FOR EACH ROW
+BEGIN
+    INSERT INTO DeletedRecord (table_name, record_id) VALUES ('PatientFeedback', OLD.feedback_id)
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+END$$
+
+DELIMITER ;
+
 -- ============================================================
 -- SAMPLE DATA INSERTION
 -- ============================================================
@@ -124,6 +205,7 @@ TRUNCATE TABLE Appointment;
 TRUNCATE TABLE Doctor;
 TRUNCATE TABLE Patient;
 TRUNCATE TABLE Department;
+TRUNCATE TABLE DeletedRecord;
 
 -- Insert departments (10 departments)
 INSERT INTO Department (name, location) VALUES
@@ -0,0 +1,5 @@
+-- Adds the (date, id) index used by keyset pagination of appointments.
+-- Only needed for databases created before the index was added to hospital_schema.sql.
+USE hospital_db;
+
+ALTER TABLE Appointment ADD INDEX idx_appointment_date_id (appointment_date, appointment_id);
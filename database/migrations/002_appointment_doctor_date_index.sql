@@ -0,0 +1,5 @@
+-- Adds the (doctor, date, time) index used to load one doctor's appointments for a day.
+-- Only needed for databases created before the index was added to hospital_schema.sql.
+USE hospital_db;
+
+ALTER TABLE Appointment ADD INDEX idx_appointment_doctor_date (doctor_id, appointment_date, appointment_time);
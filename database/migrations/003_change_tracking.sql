@@ -0,0 +1,94 @@
+-- Adds the updated_at columns, the DeletedRecord tombstone table and the delete triggers
+-- used by the getChangedSince DAO methods for delta refreshes.
+-- Only needed for databases created before these were added to hospital_schema.sql.
+-- DeletedRecord grows with every delete; rows older than the longest time a client can
+-- stay open between refreshes can be purged, e.g. with:
+--   DELETE FROM DeletedRecord WHERE deleted_at < NOW() - INTERVAL 7 DAY;
+USE hospital_db;
+
+ALTER TABLE Patient
+    ADD COLUMN updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    ADD INDEX idx_patient_updated_at (updated_at);
+
+ALTER TABLE Doctor
+    ADD COLUMN updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    ADD INDEX idx_doctor_updated_at (updated_at);
+
+ALTER TABLE Appointment
+    ADD COLUMN updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    ADD INDEX idx_appointment_updated_at (updated_at);
+
+ALTER TABLE Prescription
+    ADD COLUMN updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    ADD INDEX idx_prescription_updated_at (updated_at);
+
+ALTER TABLE PatientFeedback
+    ADD COLUMN updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    ADD INDEX idx_feedback_updated_at (updated_at);
+
+-- Tombstones for deleted rows, so clients can remove them during a delta refresh
+CREATE TABLE IF NOT EXISTS DeletedRecord (
+    table_name VARCHAR(50) NOT NULL,               -- Table the row was deleted from
+    record_id INT NOT NULL,                        -- Primary key of the deleted row
+    deleted_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3), -- Deletion time
+
+    PRIMARY KEY (table_name, record_id),
+    INDEX idx_deleted_record_time (table_name, deleted_at)
+);
+
+-- Delete triggers writing the tombstones. Rows removed by ON DELETE CASCADE do not fire
+-- triggers, so the Patient and Doctor triggers also record their dependent rows.
+DROP TRIGGER IF EXISTS trg_patient_deleted;
+DROP TRIGGER IF EXISTS trg_doctor_deleted;
+DROP TRIGGER IF EXISTS trg_appointment_deleted;
+DROP TRIGGER IF EXISTS trg_prescription_deleted;
+DROP TRIGGER IF EXISTS trg_feedback_deleted;
+
+DELIMITER $$
+
+CREATE TRIGGER trg_patient_deleted BEFORE DELETE ON Patient FOR EACH ROW
+BEGIN
+    INSERT INTO DeletedRecord (table_name, record_id) VALUES ('Patient', OLD.patient_id)
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+    INSERT INTO DeletedRecord (table_name, record_id)
+        SELECT 'Appointment', appointment_id FROM Appointment WHERE patient_id = OLD.patient_id
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+    INSERT INTO DeletedRecord (table_name, record_id)
+        SELECT 'Prescription', prescription_id FROM Prescription WHERE patient_id = OLD.patient_id
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+    INSERT INTO DeletedRecord (table_name, record_id)
+        SELECT 'PatientFeedback', feedback_id FROM PatientFeedback WHERE patient_id = OLD.patient_id
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+END$$
+
+CREATE TRIGGER trg_doctor_deleted BEFORE DELETE ON Doctor FOR EACH ROW
+BEGIN
+    INSERT INTO DeletedRecord (table_name, record_id) VALUES ('Doctor', OLD.doctor_id)
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+    INSERT INTO DeletedRecord (table_name, record_id)
+        SELECT 'Appointment', appointment_id FROM Appointment WHERE doctor_id = OLD.doctor_id
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+    INSERT INTO DeletedRecord (table_name, record_id)
+        SELECT 'Prescription', prescription_id FROM Prescription WHERE doctor_id = OLD.doctor_id
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+END$$
+
+CREATE TRIGGER trg_appointment_deleted AFTER DELETE ON Appointment FOR EACH ROW
+BEGIN
+    INSERT INTO DeletedRecord (table_name, record_id) VALUES ('Appointment', OLD.appointment_id)
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+END$$
+
+CREATE TRIGGER trg_prescription_deleted AFTER DELETE ON Prescription FOR EACH ROW
+BEGIN
+    INSERT INTO DeletedRecord (table_name, record_id) VALUES ('Prescription', OLD.prescription_id)
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+END$$
+
+CREATE TRIGGER trg_feedback_deleted AFTER DELETE ON PatientFeedback FOR EACH ROW
+BEGIN
+    INSERT INTO DeletedRecord (table_name, record_id) VALUES ('PatientFeedback', OLD.feedback_id)
+        ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(3);
+END$$
+
+DELIMITER ;
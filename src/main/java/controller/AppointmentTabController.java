@@ -1,12 +1,17 @@
 package controller;
 
+import dao.Page;
+import dao.SortOrder;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.Collectors;
 import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
@@ -21,17 +26,38 @@ import javafx.scene.layout.VBox;
 import javafx.util.StringConverter;
 import model.Appointment;
 import model.Doctor;
+import model.DoctorSummary;
 import model.Patient;
+import model.PatientSummary;
 import service.AppointmentService;
 import service.DoctorService;
 import service.PatientService;
+import service.ReferenceDataStore;
+import ui.util.CachedNames;
+import ui.util.PagedList;
+import ui.util.SearchPipeline;
+import ui.util.TaskRunner;
+import util.CancellationToken;
 
 /**
  * Controller for Appointment Management tab.
  */
 public class AppointmentTabController {
 
+    private static final int SEARCH_LIMIT = 1000;
+
     private TableView<Appointment> appointmentTable;
+    // Appointments by date, loaded a page at a time as the table scrolls
+    private final PagedList<Appointment> appointments = new PagedList<>("appointments", this::loadPage);
+    // Cells read names from the caches; misses are loaded in the background, not on the JavaFX thread
+    private final CachedNames<Patient> patientNames = new CachedNames<>("patient names",
+        PatientService::getPatientIfCached, PatientService::getPatients,
+        patient -> patient.getFirstName() + " " + patient.getLastName());
+    private final CachedNames<Doctor> doctorNames = new CachedNames<>("doctor names",
+        DoctorService::getDoctorIfCached, DoctorService::getDoctors,
+        doctor -> "Dr. " + doctor.getFirstName() + " " + doctor.getLastName());
+    // Read by the search off the JavaFX thread
+    private volatile boolean searchText;
 
     public Tab createAppointmentTab() {
         Tab tab = new Tab("Appointment Management");
@@ -42,35 +68,35 @@ public class AppointmentTabController {
         titleLabel.setStyle("-fx-font-size: 18; -fx-font-weight: bold;");
 
         // Patient & Doctor selection
-        ComboBox<Patient> patientCombo = new ComboBox<>();
+        ComboBox<PatientSummary> patientCombo = new ComboBox<>();
         patientCombo.setPromptText("Select Patient");
-        loadPatients(patientCombo);
-        patientCombo.setConverter(new StringConverter<Patient>() {
+        patientCombo.setItems(ReferenceDataStore.getPatients());
+        patientCombo.setConverter(new StringConverter<PatientSummary>() {
             @Override
-            public String toString(Patient p) {
+            public String toString(PatientSummary p) {
                 if (p == null) return "";
                 return p.getFirstName() + " " + p.getLastName() + " (ID: " + p.getPatientId() + ")";
             }
             @Override
-            public Patient fromString(String string) { return null; }
+            public PatientSummary fromString(String string) { return null; }
         });
 
-        ComboBox<Doctor> doctorCombo = new ComboBox<>();
+        ComboBox<DoctorSummary> doctorCombo = new ComboBox<>();
         doctorCombo.setPromptText("Select Doctor");
-        loadDoctors(doctorCombo);
-        doctorCombo.setConverter(new StringConverter<Doctor>() {
+        doctorCombo.setItems(ReferenceDataStore.getDoctors());
+        doctorCombo.setConverter(new StringConverter<DoctorSummary>() {
             @Override
-            public String toString(Doctor d) {
+            public String toString(DoctorSummary d) {
                 if (d == null) return "";
                 return d.getFirstName() + " " + d.getLastName() + " (ID: " + d.getDoctorId() + ")";
             }
             @Override
-            public Doctor fromString(String string) { return null; }
+            public DoctorSummary fromString(String string) { return null; }
         });
 
         Runnable reloadDropdowns = () -> {
-            loadPatients(patientCombo);
-            loadDoctors(doctorCombo);
+            ReferenceDataStore.refreshPatients();
+            ReferenceDataStore.refreshDoctors();
             patientCombo.getSelectionModel().clearSelection();
             doctorCombo.getSelectionModel().clearSelection();
         };
@@ -91,8 +117,8 @@ public class AppointmentTabController {
         Button scheduleBtn = new Button("Schedule Appointment");
         scheduleBtn.setStyle("-fx-font-size: 12; -fx-padding: 8;");
         scheduleBtn.setOnAction(e -> {
-            Patient selectedPatient = patientCombo.getValue();
-            Doctor selectedDoctor = doctorCombo.getValue();
+            PatientSummary selectedPatient = patientCombo.getValue();
+            DoctorSummary selectedDoctor = doctorCombo.getValue();
             if (selectedPatient == null || selectedDoctor == null || appointmentDatePicker.getValue() == null || timeField.getText().isEmpty()) {
                 showAlert("Error", "Please select patient, doctor, date and time");
                 return;
@@ -112,13 +138,15 @@ public class AppointmentTabController {
                     reasonField.getText()
                 );
 
-                if (AppointmentService.createAppointment(appointment)) {
-                    showAlert("Success", "Appointment scheduled successfully!");
-                    clearForm(patientCombo, doctorCombo, appointmentDatePicker, timeField, reasonField);
-                    loadAppointmentData();
-                } else {
-                    showAlert("Error", "Failed to schedule appointment");
-                }
+                TaskRunner.run("Scheduling appointment", () -> AppointmentService.createAppointment(appointment), created -> {
+                    if (created) {
+                        showAlert("Success", "Appointment scheduled successfully!");
+                        clearForm(patientCombo, doctorCombo, appointmentDatePicker, timeField, reasonField);
+                        loadAppointmentData();
+                    } else {
+                        showAlert("Error", "Failed to schedule appointment");
+                    }
+                });
             } catch (Exception ex) {
                 showAlert("Error", "Invalid time format (use HH:MM): " + ex.getMessage());
             }
@@ -133,19 +161,19 @@ public class AppointmentTabController {
 
         TableColumn<Appointment, String> patientNameCol = new TableColumn<>("Patient Name");
         patientNameCol.setCellValueFactory(cellData -> {
-            int patientId = cellData.getValue().getPatientId();
-            Patient patient = PatientService.getPatient(patientId);
-            String name = patient != null ? patient.getFirstName() + " " + patient.getLastName() : "Unknown";
-            return new SimpleStringProperty(name);
+            if (cellData.getValue() == null) {
+                return new SimpleStringProperty("");
+            }
+            return patientNames.nameOf(cellData.getValue().getPatientId());
         });
         patientNameCol.setPrefWidth(180);
 
         TableColumn<Appointment, String> doctorNameCol = new TableColumn<>("Doctor Name");
         doctorNameCol.setCellValueFactory(cellData -> {
-            int doctorId = cellData.getValue().getDoctorId();
-            Doctor doctor = DoctorService.getDoctor(doctorId);
-            String name = doctor != null ? "Dr. " + doctor.getFirstName() + " " + doctor.getLastName() : "Unknown";
-            return new SimpleStringProperty(name);
+            if (cellData.getValue() == null) {
+                return new SimpleStringProperty("");
+            }
+            return doctorNames.nameOf(cellData.getValue().getDoctorId());
         });
         doctorNameCol.setPrefWidth(180);
 
@@ -166,31 +194,33 @@ public class AppointmentTabController {
         notesCol.setPrefWidth(240);
 
         appointmentTable.getColumns().addAll(idCol, patientNameCol, doctorNameCol, dateCol, timeCol, statusCol, notesCol);
+        appointments.bindTo(appointmentTable, dateCol);
+        syncCache();
 
         TextField searchField = new TextField();
-        searchField.setPromptText("Search by patient, doctor, status, or notes...");
+        searchField.setPromptText("Search by patient or doctor...");
         searchField.setPrefWidth(300);
+        // Status and notes can only be matched by scanning the table, so that is opt-in
+        CheckBox searchTextBox = new CheckBox("Also search status and notes");
+        SearchPipeline<List<Appointment>> search = new SearchPipeline<>(this::searchAppointments,
+            results -> appointmentTable.setItems(FXCollections.observableArrayList(results)));
         searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-            List<Appointment> allAppointments = AppointmentService.getAllAppointments();
-            if (allAppointments == null) return;
             if (newVal == null || newVal.trim().isEmpty()) {
-                appointmentTable.getItems().setAll(allAppointments);
+                search.cancel();
+                appointmentTable.setItems(appointments);
             } else {
-                String search = newVal.toLowerCase();
-                appointmentTable.getItems().setAll(allAppointments.stream()
-                    .filter(a -> {
-                        Patient p = PatientService.getPatient(a.getPatientId());
-                        Doctor d = DoctorService.getDoctor(a.getDoctorId());
-                        String patientName = p != null ? (p.getFirstName() + " " + p.getLastName()).toLowerCase() : "";
-                        String doctorName = d != null ? (d.getFirstName() + " " + d.getLastName()).toLowerCase() : "";
-                        return patientName.contains(search) ||
-                               doctorName.contains(search) ||
-                               (a.getStatus() != null && a.getStatus().toLowerCase().contains(search)) ||
-                               (a.getNotes() != null && a.getNotes().toLowerCase().contains(search));
-                    })
-                    .toList());
+                search.submit(newVal);
+            }
+        });
+        searchTextBox.selectedProperty().addListener((obs, oldVal, newVal) -> {
+            searchText = newVal;
+            String text = searchField.getText();
+            if (text != null && !text.trim().isEmpty()) {
+                search.submit(text);
             }
         });
+        HBox searchBox = new HBox(10);
+        searchBox.getChildren().addAll(searchField, searchTextBox);
 
         Button refreshBtn = new Button("Refresh List");
         refreshBtn.setStyle("-fx-font-size: 12; -fx-padding: 8;");
@@ -207,13 +237,17 @@ public class AppointmentTabController {
                 showAlert("No Selection", "Please select an appointment to delete.");
                 return;
             }
-            boolean success = AppointmentService.deleteAppointment(selected.getAppointmentId());
-            if (success) {
-                showAlert("Success", "Appointment deleted successfully!");
-                appointmentTable.getItems().remove(selected);
-            } else {
-                showAlert("Error", "Failed to delete appointment");
-            }
+            TaskRunner.run("Deleting appointment", () -> AppointmentService.deleteAppointment(selected.getAppointmentId()), deleted -> {
+                if (deleted) {
+                    showAlert("Success", "Appointment deleted successfully!");
+                    if (appointmentTable.getItems() != appointments) {
+                        appointmentTable.getItems().remove(selected);
+                    }
+                    appointments.refresh();
+                } else {
+                    showAlert("Error", "Failed to delete appointment");
+                }
+            });
         });
 
         HBox buttonBox = new HBox(10);
@@ -230,7 +264,7 @@ public class AppointmentTabController {
             inputBox,
             new Separator(),
             new Label("Appointment List:"),
-            searchField,
+            searchBox,
             buttonBox,
             appointmentTable
         );
@@ -240,16 +274,53 @@ public class AppointmentTabController {
     }
 
     public void loadAppointmentData() {
-        if (appointmentTable != null) {
-            appointmentTable.getItems().clear();
-            List<Appointment> appointments = AppointmentService.getAllAppointments();
-            if (appointments != null) {
-                appointmentTable.getItems().addAll(appointments);
-            }
+        if (appointmentTable == null) {
+            return;
         }
+        appointments.refresh();
+        syncCache();
+    }
+
+    /**
+     * Brings the appointment cache up to date with other workstations' changes
+     */
+    private void syncCache() {
+        TaskRunner.run("Syncing appointments", AppointmentService::syncCache, synced -> {
+            if (!synced) {
+                System.err.println("Appointment cache not synced; cached appointments may be stale");
+            }
+        });
+    }
+
+    /**
+     * Loads a page of appointments along with the names shown in its rows
+     */
+    private Page<Appointment> loadPage(int offset, Appointment previous, int limit, SortOrder sort,
+                                       CancellationToken token) {
+        Page<Appointment> page = AppointmentService.getAppointmentPageAt(offset, previous, limit, sort, token);
+        prefetchNames(page.getItems(), token);
+        return page;
+    }
+
+    /**
+     * Finds appointments by patient or doctor name, and by status or notes if opted in
+     */
+    private List<Appointment> searchAppointments(String text, CancellationToken token) {
+        List<Appointment> results = AppointmentService.searchAppointments(text, SEARCH_LIMIT, searchText, token);
+        token.throwIfCancelled();
+        prefetchNames(results, token);
+        return results;
+    }
+
+    /**
+     * Loads the names for the rows in two batched queries; the cells then hit the cache
+     */
+    private void prefetchNames(List<Appointment> rows, CancellationToken token) {
+        PatientService.getPatients(rows.stream().map(Appointment::getPatientId).collect(Collectors.toSet()), token);
+        DoctorService.getDoctors(rows.stream().map(Appointment::getDoctorId).collect(Collectors.toSet()), token);
     }
 
-    private void clearForm(ComboBox<Patient> patientCombo, ComboBox<Doctor> doctorCombo,
+    private void clearForm(ComboBox<PatientSummary> patientCombo, ComboBox<DoctorSummary> doctorCombo,
                            DatePicker datePicker, TextField timeField, TextField reasonField) {
         patientCombo.getSelectionModel().clearSelection();
         doctorCombo.getSelectionModel().clearSelection();
@@ -258,22 +329,6 @@ public class AppointmentTabController {
         reasonField.clear();
     }
 
-    private void loadPatients(ComboBox<Patient> combo) {
-        combo.getItems().clear();
-        List<Patient> patients = PatientService.getAllPatients();
-        if (patients != null) {
-            combo.getItems().addAll(patients);
-        }
-    }
-
-    private void loadDoctors(ComboBox<Doctor> combo) {
-        combo.getItems().clear();
-        List<Doctor> doctors = DoctorService.getAllDoctors();
-        if (doctors != null) {
-            combo.getItems().addAll(doctors);
-        }
-    }
-
     private void showAlert(String title, String message) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle(title);
@@ -1,5 +1,8 @@
 package controller;
 
+import dao.ChangeSet;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
@@ -8,11 +11,18 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import model.Doctor;
 import service.DoctorService;
+import ui.util.SearchPipeline;
+import ui.util.TaskRunner;
 import util.ValidationUtil;
 
 public class DoctorTabController {
     
+    private static final int SEARCH_LIMIT = 1000;
+    
     private TableView<Doctor> doctorTable;
+    // Every doctor in ID order, kept up to date with the changes since lastSync
+    private final List<Doctor> allDoctors = new ArrayList<>();
+    private Instant lastSync;
     
     public Tab createDoctorTab() {
         Tab tab = new Tab("Doctor Management");
@@ -87,13 +97,15 @@ public class DoctorTabController {
                     phoneField.getText(),
                     1  // Default department ID
                 );
-                if (DoctorService.createDoctor(doctor)) {
-                    showAlert("Success", "Doctor added successfully!");
-                    clearFields(firstNameField, lastNameField, emailField, phoneField, departmentField, specializationField);
-                    loadDoctorData();
-                } else {
-                    showAlert("Error", "Failed to add doctor");
-                }
+                TaskRunner.run("Adding doctor", () -> DoctorService.createDoctor(doctor), created -> {
+                    if (created) {
+                        showAlert("Success", "Doctor added successfully!");
+                        clearFields(firstNameField, lastNameField, emailField, phoneField, departmentField, specializationField);
+                        loadDoctorData();
+                    } else {
+                        showAlert("Error", "Failed to add doctor");
+                    }
+                });
             } catch (Exception ex) {
                 showAlert("Error", "Invalid input: " + ex.getMessage());
             }
@@ -133,19 +145,15 @@ public class DoctorTabController {
         TextField searchField = new TextField();
         searchField.setPromptText("Search by name, specialization, or phone...");
         searchField.setPrefWidth(300);
+        SearchPipeline<List<Doctor>> search = new SearchPipeline<>(
+            (text, token) -> DoctorService.searchDoctors(text, SEARCH_LIMIT),
+            results -> doctorTable.getItems().setAll(results));
         searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-            List<Doctor> allDoctors = DoctorService.getAllDoctors();
-            if (allDoctors == null) return;
-            
             if (newVal == null || newVal.trim().isEmpty()) {
+                search.cancel();
                 doctorTable.getItems().setAll(allDoctors);
             } else {
-                String search = newVal.toLowerCase();
-                doctorTable.getItems().setAll(allDoctors.stream()
-                    .filter(d -> (d.getFirstName() + " " + d.getLastName()).toLowerCase().contains(search) ||
-                                 (d.getSpecialization() != null && d.getSpecialization().toLowerCase().contains(search)) ||
-                                 (d.getPhone() != null && d.getPhone().contains(search)))
-                    .collect(java.util.stream.Collectors.toList()));
+                search.submit(newVal);
             }
         });
         
@@ -175,21 +183,22 @@ public class DoctorTabController {
                     }
                     
                     try {
-                        selected.setFirstName(firstNameField.getText());
-                        selected.setLastName(lastNameField.getText());
-                        selected.setPhone(phoneField.getText());
-                        selected.setSpecialization(specializationField.getText());
-                        selected.setDepartmentId(Integer.parseInt(departmentField.getText()));
+                        // The selected doctor is shared with the service cache and search index; edit a copy
+                        Doctor edited = new Doctor(selected.getDoctorId(), firstNameField.getText(), lastNameField.getText(),
+                            specializationField.getText(), phoneField.getText(), Integer.parseInt(departmentField.getText()));
                         
-                        if (DoctorService.updateDoctor(selected)) {
-                            showAlert("Success", "Doctor updated successfully!");
-                            doctorTable.refresh();
-                            clearFields(firstNameField, lastNameField, emailField, phoneField, departmentField, specializationField);
-                            addBtn.setText("Add Doctor");
-                            setupAddButton(addBtn, firstNameField, lastNameField, emailField, phoneField, departmentField, specializationField);
-                        } else {
-                            showAlert("Error", "Failed to update doctor");
-                        }
+                        TaskRunner.run("Updating doctor", () -> DoctorService.updateDoctor(edited), updated -> {
+                            if (updated) {
+                                showAlert("Success", "Doctor updated successfully!");
+                                allDoctors.replaceAll(d -> d.getDoctorId() == edited.getDoctorId() ? edited : d);
+                                doctorTable.getItems().replaceAll(d -> d.getDoctorId() == edited.getDoctorId() ? edited : d);
+                                clearFields(firstNameField, lastNameField, emailField, phoneField, departmentField, specializationField);
+                                addBtn.setText("Add Doctor");
+                                setupAddButton(addBtn, firstNameField, lastNameField, emailField, phoneField, departmentField, specializationField);
+                            } else {
+                                showAlert("Error", "Failed to update doctor");
+                            }
+                        });
                     } catch (Exception ex) {
                         ex.printStackTrace();
                         showAlert("Error", "Failed to update: " + ex.getMessage());
@@ -205,12 +214,15 @@ public class DoctorTabController {
         deleteBtn.setOnAction(e -> {
             Doctor selected = doctorTable.getSelectionModel().getSelectedItem();
             if (selected != null) {
-                if (DoctorService.deleteDoctor(selected.getDoctorId())) {
-                    showAlert("Success", "Doctor deleted successfully!");
-                    doctorTable.getItems().remove(selected);
-                } else {
-                    showAlert("Error", "Failed to delete doctor");
-                }
+                TaskRunner.run("Deleting doctor", () -> DoctorService.deleteDoctor(selected.getDoctorId()), deleted -> {
+                    if (deleted) {
+                        showAlert("Success", "Doctor deleted successfully!");
+                        doctorTable.getItems().remove(selected);
+                        allDoctors.removeIf(d -> d.getDoctorId() == selected.getDoctorId());
+                    } else {
+                        showAlert("Error", "Failed to delete doctor");
+                    }
+                });
             } else {
                 showAlert("Error", "Please select a doctor to delete");
             }
@@ -259,13 +271,15 @@ public class DoctorTabController {
                     phoneField.getText(),
                     1
                 );
-                if (DoctorService.createDoctor(doctor)) {
-                    showAlert("Success", "Doctor added successfully!");
-                    clearFields(firstNameField, lastNameField, emailField, phoneField, departmentField, specializationField);
-                    loadDoctorData();
-                } else {
-                    showAlert("Error", "Failed to add doctor");
-                }
+                TaskRunner.run("Adding doctor", () -> DoctorService.createDoctor(doctor), created -> {
+                    if (created) {
+                        showAlert("Success", "Doctor added successfully!");
+                        clearFields(firstNameField, lastNameField, emailField, phoneField, departmentField, specializationField);
+                        loadDoctorData();
+                    } else {
+                        showAlert("Error", "Failed to add doctor");
+                    }
+                });
             } catch (Exception ex) {
                 showAlert("Error", "Invalid input: " + ex.getMessage());
             }
@@ -283,13 +297,19 @@ public class DoctorTabController {
     }
     
     public void loadDoctorData() {
-        if (doctorTable != null) {
-            doctorTable.getItems().clear();
-            List<Doctor> doctors = DoctorService.getAllDoctors();
-            if (doctors != null) {
-                doctorTable.getItems().addAll(doctors);
-            }
+        if (doctorTable == null) {
+            return;
         }
+        Instant since = lastSync;
+        TaskRunner.run("Loading doctors", () -> {
+            ChangeSet<Doctor> changes = DoctorService.getDoctorsChangedSince(since);
+            // Change tracking unavailable (e.g. schema not migrated); load everything
+            return changes != null ? changes : ChangeSet.ofAll(DoctorService.getAllDoctors(), Doctor::getDoctorId);
+        }, changes -> {
+            changes.applyTo(allDoctors, Doctor::getDoctorId);
+            lastSync = changes.getSyncPoint();
+            doctorTable.getItems().setAll(allDoctors);
+        });
     }
     
     private void showAlert(String title, String message) {
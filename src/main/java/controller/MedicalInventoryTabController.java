@@ -17,6 +17,7 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import model.MedicalInventory;
 import service.MedicalInventoryService;
+import ui.util.TaskRunner;
 
 /**
  * Controller for Medical Inventory tab.
@@ -58,13 +59,15 @@ public class MedicalInventoryTabController {
                     expiryPicker.getValue(),
                     supplierField.getText()
                 );
-                if (MedicalInventoryService.createInventoryItem(item)) {
-                    showAlert("Success", "Item added!");
-                    clearFields(itemNameField, categoryField, quantityField, priceField, supplierField, expiryPicker);
-                    loadInventoryData();
-                } else {
-                    showAlert("Error", "Failed to add item");
-                }
+                TaskRunner.run("Adding inventory item", () -> MedicalInventoryService.createInventoryItem(item), created -> {
+                    if (created) {
+                        showAlert("Success", "Item added!");
+                        clearFields(itemNameField, categoryField, quantityField, priceField, supplierField, expiryPicker);
+                        loadInventoryData();
+                    } else {
+                        showAlert("Error", "Failed to add item");
+                    }
+                });
             } catch (Exception ex) {
                 showAlert("Error", "Invalid input: " + ex.getMessage());
             }
@@ -127,36 +130,40 @@ public class MedicalInventoryTabController {
                         selected.setUnitPrice(Double.parseDouble(priceField.getText()));
                         selected.setSupplier(supplierField.getText());
                         selected.setExpiryDate(expiryPicker.getValue());
-                        if (MedicalInventoryService.updateInventoryItem(selected)) {
-                            showAlert("Success", "Item updated!");
-                            inventoryTable.refresh();
-                            clearFields(itemNameField, categoryField, quantityField, priceField, supplierField, expiryPicker);
-                            addBtn.setText("Add Item");
-                            loadInventoryData();
-                            addBtn.setOnAction(addEvt -> {
-                                try {
-                                    MedicalInventory newItem = new MedicalInventory(
-                                        itemNameField.getText(),
-                                        categoryField.getText(),
-                                        Integer.parseInt(quantityField.getText()),
-                                        Double.parseDouble(priceField.getText()),
-                                        expiryPicker.getValue(),
-                                        supplierField.getText()
-                                    );
-                                    if (MedicalInventoryService.createInventoryItem(newItem)) {
-                                        showAlert("Success", "Item added!");
-                                        clearFields(itemNameField, categoryField, quantityField, priceField, supplierField, expiryPicker);
-                                        loadInventoryData();
-                                    } else {
-                                        showAlert("Error", "Failed to add item");
+                        TaskRunner.run("Updating inventory item", () -> MedicalInventoryService.updateInventoryItem(selected), updated -> {
+                            if (updated) {
+                                showAlert("Success", "Item updated!");
+                                inventoryTable.refresh();
+                                clearFields(itemNameField, categoryField, quantityField, priceField, supplierField, expiryPicker);
+                                addBtn.setText("Add Item");
+                                loadInventoryData();
+                                addBtn.setOnAction(addEvt -> {
+                                    try {
+                                        MedicalInventory newItem = new MedicalInventory(
+                                            itemNameField.getText(),
+                                            categoryField.getText(),
+                                            Integer.parseInt(quantityField.getText()),
+                                            Double.parseDouble(priceField.getText()),
+                                            expiryPicker.getValue(),
+                                            supplierField.getText()
+                                        );
+                                        TaskRunner.run("Adding inventory item", () -> MedicalInventoryService.createInventoryItem(newItem), created -> {
+                                            if (created) {
+                                                showAlert("Success", "Item added!");
+                                                clearFields(itemNameField, categoryField, quantityField, priceField, supplierField, expiryPicker);
+                                                loadInventoryData();
+                                            } else {
+                                                showAlert("Error", "Failed to add item");
+                                            }
+                                        });
+                                    } catch (Exception ex2) {
+                                        showAlert("Error", "Invalid input: " + ex2.getMessage());
                                     }
-                                } catch (Exception ex2) {
-                                    showAlert("Error", "Invalid input: " + ex2.getMessage());
-                                }
-                            });
-                        } else {
-                            showAlert("Error", "Failed to update");
-                        }
+                                });
+                            } else {
+                                showAlert("Error", "Failed to update");
+                            }
+                        });
                     } catch (Exception ex) {
                         showAlert("Error", "Invalid input: " + ex.getMessage());
                     }
@@ -171,12 +178,14 @@ public class MedicalInventoryTabController {
         deleteBtn.setOnAction(e -> {
             MedicalInventory selected = inventoryTable.getSelectionModel().getSelectedItem();
             if (selected != null) {
-                if (MedicalInventoryService.deleteInventoryItem(selected.getInventoryId())) {
-                    showAlert("Success", "Item deleted!");
-                    inventoryTable.getItems().remove(selected);
-                } else {
-                    showAlert("Error", "Failed to delete");
-                }
+                TaskRunner.run("Deleting inventory item", () -> MedicalInventoryService.deleteInventoryItem(selected.getInventoryId()), deleted -> {
+                    if (deleted) {
+                        showAlert("Success", "Item deleted!");
+                        inventoryTable.getItems().remove(selected);
+                    } else {
+                        showAlert("Error", "Failed to delete");
+                    }
+                });
             }
         });
 
@@ -207,11 +216,8 @@ public class MedicalInventoryTabController {
 
     public void loadInventoryData() {
         if (inventoryTable != null) {
-            inventoryTable.getItems().clear();
-            List<MedicalInventory> items = MedicalInventoryService.getAllInventoryItems();
-            if (items != null) {
-                inventoryTable.getItems().addAll(items);
-            }
+            TaskRunner.run("Loading inventory", MedicalInventoryService::getAllInventoryItems,
+                items -> inventoryTable.getItems().setAll(items != null ? items : List.of()));
         }
     }
 
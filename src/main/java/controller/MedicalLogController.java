@@ -3,11 +3,12 @@ package controller;
 import dao.MongoDBConnection;
 import dao.PatientMedicalLogDAO;
 import model.PatientMedicalLog;
-import model.Patient;
+import model.PatientSummary;
 import model.Doctor;
-import service.PatientService;
+import model.DoctorSummary;
+import service.ReferenceDataStore;
 import service.DoctorService;
-import javafx.application.Platform;
+import ui.util.TaskRunner;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -19,7 +20,6 @@ import javafx.stage.Stage;
 import javafx.util.StringConverter;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -28,11 +28,12 @@ import java.util.Optional;
  */
 public class MedicalLogController {
     
-    private PatientMedicalLogDAO medicalLogDAO;
+    // Set on the JavaFX thread once MongoDB is reachable; read by background tasks
+    private volatile PatientMedicalLogDAO medicalLogDAO;
     private TableView<PatientMedicalLog> logTableView;
     private ListView<String> logDetailsListView;
-    private ComboBox<Patient> patientCombo;
-    private ComboBox<Doctor> doctorCombo;
+    private ComboBox<PatientSummary> patientCombo;
+    private ComboBox<DoctorSummary> doctorCombo;
     private ComboBox<String> logTypeComboBox;
     private TextArea notesTextArea;
     private Label connectionStatusLabel;
@@ -51,25 +52,28 @@ public class MedicalLogController {
     }
     
     /**
-     * Initialize MongoDB connection and DAO
+     * Connects to MongoDB in the background and creates the DAO; until then the log
+     * actions report that MongoDB is not available
      */
     private void initializeMongoDB() {
-        try {
+        connectionStatusLabel.setText("Connecting...");
+        connectionStatusLabel.setStyle("-fx-font-weight: bold;");
+        TaskRunner.run("Connecting to MongoDB", () -> {
             MongoDBConnection mongoConnection = MongoDBConnection.getInstance();
-            
-            // Check connection
-            if (mongoConnection.testConnection()) {
-                this.medicalLogDAO = new PatientMedicalLogDAO(mongoConnection.getDatabase());
+            return mongoConnection.testConnection() ? new PatientMedicalLogDAO(mongoConnection.getDatabase()) : null;
+        }, dao -> {
+            if (dao != null) {
+                this.medicalLogDAO = dao;
                 updateConnectionStatus(true, "Connected");
                 System.out.println("✓ MongoDB connected successfully in JavaFX Controller");
             } else {
                 updateConnectionStatus(false, "Connection Failed");
                 showAlert("MongoDB Connection", "Failed to connect to MongoDB", Alert.AlertType.ERROR);
             }
-        } catch (Exception e) {
-            updateConnectionStatus(false, "Error: " + e.getMessage());
-            showAlert("MongoDB Error", "Failed to initialize MongoDB: " + e.getMessage(), Alert.AlertType.ERROR);
-        }
+        }, error -> {
+            updateConnectionStatus(false, "Error: " + error.getMessage());
+            showAlert("MongoDB Error", "Failed to initialize MongoDB: " + error.getMessage(), Alert.AlertType.ERROR);
+        });
     }
     
     /**
@@ -104,35 +108,29 @@ public class MedicalLogController {
         patientCombo = new ComboBox<>();
         patientCombo.setPromptText("Select Patient");
         patientCombo.setPrefWidth(200);
-        List<Patient> patients = PatientService.getAllPatients();
-        if (patients != null) {
-            patientCombo.getItems().addAll(patients);
-        }
-        patientCombo.setConverter(new StringConverter<Patient>() {
+        patientCombo.setItems(ReferenceDataStore.getPatients());
+        patientCombo.setConverter(new StringConverter<PatientSummary>() {
             @Override
-            public String toString(Patient p) {
+            public String toString(PatientSummary p) {
                 if (p == null) return "";
                 return p.getFirstName() + " " + p.getLastName() + " (ID: " + p.getPatientId() + ")";
             }
             @Override
-            public Patient fromString(String string) { return null; }
+            public PatientSummary fromString(String string) { return null; }
         });
 
         doctorCombo = new ComboBox<>();
         doctorCombo.setPromptText("Select Doctor");
         doctorCombo.setPrefWidth(200);
-        List<Doctor> doctors = DoctorService.getAllDoctors();
-        if (doctors != null) {
-            doctorCombo.getItems().addAll(doctors);
-        }
-        doctorCombo.setConverter(new StringConverter<Doctor>() {
+        doctorCombo.setItems(ReferenceDataStore.getDoctors());
+        doctorCombo.setConverter(new StringConverter<DoctorSummary>() {
             @Override
-            public String toString(Doctor d) {
+            public String toString(DoctorSummary d) {
                 if (d == null) return "";
                 return d.getFirstName() + " " + d.getLastName() + " (ID: " + d.getDoctorId() + ")";
             }
             @Override
-            public Doctor fromString(String string) { return null; }
+            public DoctorSummary fromString(String string) { return null; }
         });
         
         logTypeComboBox = new ComboBox<>();
@@ -325,9 +323,9 @@ public class MedicalLogController {
         }
         
         try {
-            Patient selPatient = patientCombo.getValue();
-            Doctor selDoctor = doctorCombo.getValue();
-            if (selPatient == null || selDoctor == null) {
+            PatientSummary selPatient = patientCombo.getValue();
+            DoctorSummary selDoctorSummary = doctorCombo.getValue();
+            if (selPatient == null || selDoctorSummary == null) {
                 showAlert("Validation Error", "Please select patient and doctor", Alert.AlertType.WARNING);
                 return;
             }
@@ -340,46 +338,24 @@ public class MedicalLogController {
                 return;
             }
             
-            // Create medical log
-            PatientMedicalLog log = new PatientMedicalLog();
-            log.setPatientId(patientId);
-            log.setMedicalLogId("ML-" + System.currentTimeMillis());
-            log.setLogDate(LocalDateTime.now());
-            log.setLogType(logType);
-            log.setTitle("Medical Log - " + logType);
-            log.setDescription(notes);
-            log.setStatus("completed");
-            log.getTags().add(logType);
-            
-            // Add physician info
-            PatientMedicalLog.Physician physician = log.new Physician(
-                selDoctor.getDoctorId(),
-                selDoctor.getFirstName() + " " + selDoctor.getLastName(),
-                selDoctor.getSpecialization(),
-                String.valueOf(selDoctor.getDepartmentId())
-            );
-            log.setPhysician(physician);
-
-            // Add basic clinical data
-            PatientMedicalLog.ClinicalData clinicalData = log.new ClinicalData();
-            clinicalData.setDiagnosis(notes);
-            log.setClinicalData(clinicalData);
-            
-            // Add audit trail
-            PatientMedicalLog.AuditTrail auditTrail = log.new AuditTrail();
-            auditTrail.setCreatedBy("System");
-            auditTrail.setCreatedAt(LocalDateTime.now());
-            auditTrail.setVersion(1);
-            log.setAuditTrail(auditTrail);
-            
-            // Save to MongoDB
-            String logId = medicalLogDAO.create(log);
-            
-            showAlert("Success", "Medical log created successfully!\nLog ID: " + logId, Alert.AlertType.INFORMATION);
-            
-            // Clear form first, then load all logs to keep them displayed
-            clearForm();
-            loadAllLogs();
+            TaskRunner.run("Creating medical log", () -> {
+                // The combo only holds summaries; the log needs the doctor's specialization
+                Doctor selDoctor = DoctorService.getDoctor(selDoctorSummary.getDoctorId());
+                if (selDoctor == null) {
+                    return null;
+                }
+                return medicalLogDAO.create(buildLog(patientId, logType, notes, selDoctor));
+            }, logId -> {
+                if (logId == null) {
+                    showAlert("Error", "Selected doctor no longer exists", Alert.AlertType.ERROR);
+                    return;
+                }
+                showAlert("Success", "Medical log created successfully!\nLog ID: " + logId, Alert.AlertType.INFORMATION);
+                
+                // Clear form first, then load all logs to keep them displayed
+                clearForm();
+                loadAllLogs();
+            }, error -> showAlert("Error", "Failed to create medical log: " + error.getMessage(), Alert.AlertType.ERROR));
             
         } catch (NumberFormatException e) {
             showAlert("Error", "Invalid patient ID", Alert.AlertType.ERROR);
@@ -388,11 +364,49 @@ public class MedicalLogController {
         }
     }
     
+    /**
+     * Builds a new log with the physician, clinical data and audit trail filled in
+     */
+    private PatientMedicalLog buildLog(int patientId, String logType, String notes, Doctor selDoctor) {
+        // Create medical log
+        PatientMedicalLog log = new PatientMedicalLog();
+        log.setPatientId(patientId);
+        log.setMedicalLogId("ML-" + System.currentTimeMillis());
+        log.setLogDate(LocalDateTime.now());
+        log.setLogType(logType);
+        log.setTitle("Medical Log - " + logType);
+        log.setDescription(notes);
+        log.setStatus("completed");
+        log.getTags().add(logType);
+        
+        // Add physician info
+        PatientMedicalLog.Physician physician = log.new Physician(
+            selDoctor.getDoctorId(),
+            selDoctor.getFirstName() + " " + selDoctor.getLastName(),
+            selDoctor.getSpecialization(),
+            String.valueOf(selDoctor.getDepartmentId())
+        );
+        log.setPhysician(physician);
+
+        // Add basic clinical data
+        PatientMedicalLog.ClinicalData clinicalData = log.new ClinicalData();
+        clinicalData.setDiagnosis(notes);
+        log.setClinicalData(clinicalData);
+        
+        // Add audit trail
+        PatientMedicalLog.AuditTrail auditTrail = log.new AuditTrail();
+        auditTrail.setCreatedBy("System");
+        auditTrail.setCreatedAt(LocalDateTime.now());
+        auditTrail.setVersion(1);
+        log.setAuditTrail(auditTrail);
+        return log;
+    }
+    
     /**
      * Search medical logs by patient ID (or all logs if no patient selected)
      */
     private void searchMedicalLogs() {
-        Patient selPatient = patientCombo.getValue();
+        PatientSummary selPatient = patientCombo.getValue();
         if (selPatient == null) {
             // If no patient selected, load all logs
             loadAllLogs();
@@ -407,19 +421,15 @@ public class MedicalLogController {
                 return;
             }
             
-            // Search in background thread
-            new Thread(() -> {
-                List<PatientMedicalLog> logs = medicalLogDAO.findByPatientId(patientId);
-                Platform.runLater(() -> {
-                    if (logs.isEmpty()) {
-                        showAlert("No Results", "No medical logs found for patient " + patientId, Alert.AlertType.INFORMATION);
-                        logTableView.setItems(FXCollections.observableArrayList());
-                    } else {
-                        logTableView.setItems(FXCollections.observableArrayList(logs));
-                        showAlert("Success", "Found " + logs.size() + " medical log(s)", Alert.AlertType.INFORMATION);
-                    }
-                });
-            }).start();
+            TaskRunner.run("Searching medical logs", () -> medicalLogDAO.findByPatientId(patientId), logs -> {
+                if (logs.isEmpty()) {
+                    showAlert("No Results", "No medical logs found for patient " + patientId, Alert.AlertType.INFORMATION);
+                    logTableView.setItems(FXCollections.observableArrayList());
+                } else {
+                    logTableView.setItems(FXCollections.observableArrayList(logs));
+                    showAlert("Success", "Found " + logs.size() + " medical log(s)", Alert.AlertType.INFORMATION);
+                }
+            }, error -> showAlert("Error", "Failed to search logs: " + error.getMessage(), Alert.AlertType.ERROR));
         
         } catch (Exception e) {
             showAlert("Error", "Failed to search logs: " + e.getMessage(), Alert.AlertType.ERROR);
@@ -450,9 +460,11 @@ public class MedicalLogController {
                 }
             }
             
-            medicalLogDAO.update(selectedLog.getId(), selectedLog);
-            showAlert("Success", "Medical log updated successfully", Alert.AlertType.INFORMATION);
-            refreshAllLogs();
+            PatientMedicalLog log = selectedLog;
+            TaskRunner.run("Updating medical log", () -> medicalLogDAO.update(log.getId(), log), updated -> {
+                showAlert("Success", "Medical log updated successfully", Alert.AlertType.INFORMATION);
+                refreshAllLogs();
+            }, error -> showAlert("Error", "Failed to update medical log: " + error.getMessage(), Alert.AlertType.ERROR));
             
         } catch (Exception e) {
             showAlert("Error", "Failed to update medical log: " + e.getMessage(), Alert.AlertType.ERROR);
@@ -481,10 +493,12 @@ public class MedicalLogController {
                     return;
                 }
                 
-                medicalLogDAO.delete(selectedLog.getId());
-                showAlert("Success", "Medical log deleted successfully", Alert.AlertType.INFORMATION);
-                logDetailsListView.setItems(FXCollections.observableArrayList());
-                refreshAllLogs();
+                String logId = selectedLog.getId();
+                TaskRunner.run("Deleting medical log", () -> medicalLogDAO.delete(logId), deleted -> {
+                    showAlert("Success", "Medical log deleted successfully", Alert.AlertType.INFORMATION);
+                    logDetailsListView.setItems(FXCollections.observableArrayList());
+                    refreshAllLogs();
+                }, error -> showAlert("Error", "Failed to delete medical log: " + error.getMessage(), Alert.AlertType.ERROR));
                 
             } catch (Exception e) {
                 showAlert("Error", "Failed to delete medical log: " + e.getMessage(), Alert.AlertType.ERROR);
@@ -610,20 +624,10 @@ public class MedicalLogController {
             return;
         }
         
-        // Load in background thread
-        new Thread(() -> {
-            try {
-                List<PatientMedicalLog> logs = medicalLogDAO.findAll();
-                Platform.runLater(() -> {
-                    logTableView.setItems(FXCollections.observableArrayList(logs));
-                    System.out.println("Loaded " + logs.size() + " medical logs");
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    showAlert("Error", "Failed to load logs: " + e.getMessage(), Alert.AlertType.ERROR);
-                });
-            }
-        }).start();
+        TaskRunner.run("Loading medical logs", () -> medicalLogDAO.findAll(), logs -> {
+            logTableView.setItems(FXCollections.observableArrayList(logs));
+            System.out.println("Loaded " + logs.size() + " medical logs");
+        }, error -> showAlert("Error", "Failed to load logs: " + error.getMessage(), Alert.AlertType.ERROR));
     }
     
     /**
@@ -1,7 +1,12 @@
 package controller;
 
+import dao.Page;
+import dao.SortOrder;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.geometry.Insets;
 import javafx.scene.control.Alert;
@@ -17,13 +22,21 @@ import javafx.scene.control.TextArea;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.util.StringConverter;
 import model.Doctor;
+import model.DoctorSummary;
 import model.Patient;
 import model.PatientFeedback;
+import model.PatientSummary;
 import service.AppointmentService;
 import service.DoctorService;
 import service.PatientFeedbackService;
 import service.PatientService;
+import service.ReferenceDataStore;
+import ui.util.CachedNames;
+import ui.util.PagedList;
+import ui.util.TaskRunner;
+import util.CancellationToken;
 
 /**
  * Controller for Patient Feedback tab.
@@ -31,6 +44,15 @@ import service.PatientService;
 public class PatientFeedbackTabController {
 
     private TableView<PatientFeedback> feedbackTable;
+    // Feedback by ID, loaded a page at a time as the table scrolls
+    private final PagedList<PatientFeedback> feedback = new PagedList<>("feedback", this::loadPage);
+    // Cells read names from the caches; misses are loaded in the background, not on the JavaFX thread
+    private final CachedNames<Patient> patientNames = new CachedNames<>("patient names",
+        PatientService::getPatientIfCached, PatientService::getPatients,
+        patient -> patient.getFirstName() + " " + patient.getLastName());
+    private final CachedNames<Doctor> doctorNames = new CachedNames<>("doctor names",
+        DoctorService::getDoctorIfCached, DoctorService::getDoctors,
+        doctor -> "Dr. " + doctor.getFirstName() + " " + doctor.getLastName());
 
     public Tab createPatientFeedbackTab() {
         Tab tab = new Tab("Patient Feedback");
@@ -40,15 +62,15 @@ public class PatientFeedbackTabController {
         Label titleLabel = new Label("Patient Feedback Management");
         titleLabel.setStyle("-fx-font-size: 18; -fx-font-weight: bold;");
 
-        ComboBox<String> patientCombo = new ComboBox<>();
+        ComboBox<PatientSummary> patientCombo = new ComboBox<>();
         patientCombo.setPromptText("Select Patient");
         patientCombo.setPrefWidth(150);
-        populatePatientCombo(patientCombo);
+        bindPatientCombo(patientCombo);
 
-        ComboBox<String> doctorCombo = new ComboBox<>();
+        ComboBox<DoctorSummary> doctorCombo = new ComboBox<>();
         doctorCombo.setPromptText("Select Doctor (Optional)");
         doctorCombo.setPrefWidth(150);
-        populateDoctorCombo(doctorCombo);
+        bindDoctorCombo(doctorCombo);
 
         ComboBox<String> appointmentCombo = new ComboBox<>();
         appointmentCombo.setPromptText("Select Appointment (Optional)");
@@ -72,22 +94,23 @@ public class PatientFeedbackTabController {
 
         TableColumn<PatientFeedback, String> patientCol = new TableColumn<>("Patient Name");
         patientCol.setCellValueFactory(cellData -> {
-            int patientId = cellData.getValue().getPatientId();
-            Patient patient = PatientService.getPatient(patientId);
-            String name = patient != null ? patient.getFirstName() + " " + patient.getLastName() : "Unknown";
-            return new SimpleStringProperty(name);
+            if (cellData.getValue() == null) {
+                return new SimpleStringProperty("");
+            }
+            return patientNames.nameOf(cellData.getValue().getPatientId());
         });
         patientCol.setPrefWidth(150);
 
         TableColumn<PatientFeedback, String> doctorCol = new TableColumn<>("Doctor Name");
         doctorCol.setCellValueFactory(cellData -> {
+            if (cellData.getValue() == null) {
+                return new SimpleStringProperty("");
+            }
             int doctorId = cellData.getValue().getDoctorId();
             if (doctorId == 0) {
                 return new SimpleStringProperty("N/A");
             }
-            Doctor doctor = DoctorService.getDoctor(doctorId);
-            String name = doctor != null ? "Dr. " + doctor.getFirstName() + " " + doctor.getLastName() : "Unknown";
-            return new SimpleStringProperty(name);
+            return doctorNames.nameOf(doctorId);
         });
         doctorCol.setPrefWidth(150);
 
@@ -104,6 +127,7 @@ public class PatientFeedbackTabController {
         dateCol.setPrefWidth(120);
 
         feedbackTable.getColumns().addAll(idCol, patientCol, doctorCol, ratingCol, commentsCol, dateCol);
+        feedback.bindTo(feedbackTable, idCol);
 
         Button refreshBtn = new Button("Refresh List");
         refreshBtn.setStyle("-fx-font-size: 12; -fx-padding: 8;");
@@ -117,10 +141,10 @@ public class PatientFeedbackTabController {
                     showAlert("Error", "Please select Patient and Rating");
                     return;
                 }
-                Integer patientId = extractIdFromCombo(patientCombo.getValue());
-                Integer doctorId = doctorCombo.getValue() != null ? extractIdFromCombo(doctorCombo.getValue()) : null;
+                int patientId = patientCombo.getValue().getPatientId();
+                Integer doctorId = doctorCombo.getValue() != null ? doctorCombo.getValue().getDoctorId() : null;
                 Integer appointmentId = appointmentCombo.getValue() != null ? extractIdFromCombo(appointmentCombo.getValue()) : null;
-                PatientFeedback feedback = new PatientFeedback(
+                PatientFeedback entry = new PatientFeedback(
                     patientId,
                     doctorId != null ? doctorId : 0,
                     appointmentId != null ? appointmentId : 0,
@@ -128,17 +152,19 @@ public class PatientFeedbackTabController {
                     commentsArea.getText(),
                     datePicker.getValue()
                 );
-                if (PatientFeedbackService.createFeedback(feedback)) {
-                    showAlert("Success", "Feedback added!");
-                    patientCombo.setValue(null);
-                    doctorCombo.setValue(null);
-                    appointmentCombo.setValue(null);
-                    ratingCombo.setValue(null);
-                    commentsArea.clear();
-                    loadFeedbackData();
-                } else {
-                    showAlert("Error", "Failed to add feedback");
-                }
+                TaskRunner.run("Adding feedback", () -> PatientFeedbackService.createFeedback(entry), created -> {
+                    if (created) {
+                        showAlert("Success", "Feedback added!");
+                        patientCombo.setValue(null);
+                        doctorCombo.setValue(null);
+                        appointmentCombo.setValue(null);
+                        ratingCombo.setValue(null);
+                        commentsArea.clear();
+                        loadFeedbackData();
+                    } else {
+                        showAlert("Error", "Failed to add feedback");
+                    }
+                });
             } catch (Exception ex) {
                 showAlert("Error", "Invalid input: " + ex.getMessage());
             }
@@ -149,12 +175,14 @@ public class PatientFeedbackTabController {
         deleteBtn.setOnAction(e -> {
             PatientFeedback selected = feedbackTable.getSelectionModel().getSelectedItem();
             if (selected != null) {
-                if (PatientFeedbackService.deleteFeedback(selected.getFeedbackId())) {
-                    showAlert("Success", "Feedback deleted!");
-                    feedbackTable.getItems().remove(selected);
-                } else {
-                    showAlert("Error", "Failed to delete");
-                }
+                TaskRunner.run("Deleting feedback", () -> PatientFeedbackService.deleteFeedback(selected.getFeedbackId()), deleted -> {
+                    if (deleted) {
+                        showAlert("Success", "Feedback deleted!");
+                        feedback.refresh();
+                    } else {
+                        showAlert("Error", "Failed to delete");
+                    }
+                });
             }
         });
 
@@ -181,47 +209,70 @@ public class PatientFeedbackTabController {
     }
 
     public void loadFeedbackData() {
-        if (feedbackTable != null) {
-            feedbackTable.getItems().clear();
-            List<PatientFeedback> feedbacks = PatientFeedbackService.getAllFeedback();
-            if (feedbacks != null) {
-                feedbackTable.getItems().addAll(feedbacks);
-            }
+        if (feedbackTable == null) {
+            return;
         }
+        feedback.refresh();
     }
 
-    private void populatePatientCombo(ComboBox<String> combo) {
-        combo.getItems().clear();
-        List<Patient> patients = PatientService.getAllPatients();
-        if (patients != null) {
-            for (Patient p : patients) {
-                combo.getItems().add(p.getPatientId() + " - " + p.getFirstName() + " " + p.getLastName());
+    /**
+     * Loads a page of feedback and, in two batched queries, the names its cells show
+     */
+    private Page<PatientFeedback> loadPage(int offset, PatientFeedback previous, int limit, SortOrder sort,
+                                           CancellationToken token) {
+        Page<PatientFeedback> page = PatientFeedbackService.getFeedbackPageAt(offset, previous, limit, sort, token);
+        List<PatientFeedback> rows = page.getItems();
+        PatientService.getPatients(rows.stream().map(PatientFeedback::getPatientId).collect(Collectors.toSet()), token);
+        DoctorService.getDoctors(rows.stream().map(PatientFeedback::getDoctorId).collect(Collectors.toSet()), token);
+        return page;
+    }
+
+    private void bindPatientCombo(ComboBox<PatientSummary> combo) {
+        combo.setItems(ReferenceDataStore.getPatients());
+        combo.setConverter(new StringConverter<PatientSummary>() {
+            @Override
+            public String toString(PatientSummary p) {
+                if (p == null) return "";
+                return p.getPatientId() + " - " + p.getFirstName() + " " + p.getLastName();
             }
-        }
+            @Override
+            public PatientSummary fromString(String string) { return null; }
+        });
     }
 
-    private void populateDoctorCombo(ComboBox<String> combo) {
-        combo.getItems().clear();
-        List<Doctor> doctors = DoctorService.getAllDoctors();
-        if (doctors != null) {
-            for (Doctor d : doctors) {
-                combo.getItems().add(d.getDoctorId() + " - Dr. " + d.getFirstName() + " " + d.getLastName());
+    private void bindDoctorCombo(ComboBox<DoctorSummary> combo) {
+        combo.setItems(ReferenceDataStore.getDoctors());
+        combo.setConverter(new StringConverter<DoctorSummary>() {
+            @Override
+            public String toString(DoctorSummary d) {
+                if (d == null) return "";
+                return d.getDoctorId() + " - Dr. " + d.getFirstName() + " " + d.getLastName();
             }
-        }
+            @Override
+            public DoctorSummary fromString(String string) { return null; }
+        });
     }
 
     private void populateAppointmentCombo(ComboBox<String> combo) {
         combo.getItems().clear();
-        List<model.Appointment> appointments = AppointmentService.getAllAppointments();
-        if (appointments != null) {
-            for (model.Appointment a : appointments) {
-                Patient p = PatientService.getPatient(a.getPatientId());
-                Doctor d = DoctorService.getDoctor(a.getDoctorId());
-                String patientName = (p != null) ? p.getFirstName() + " " + p.getLastName() : "Unknown";
-                String doctorName = (d != null) ? "Dr. " + d.getFirstName() + " " + d.getLastName() : "Unknown";
-                combo.getItems().add(a.getAppointmentId() + " - " + patientName + " with " + doctorName + " (" + a.getAppointmentDate() + ")");
+        TaskRunner.run("Loading appointments", () -> {
+            List<String> labels = new ArrayList<>();
+            List<model.Appointment> appointments = AppointmentService.getAllAppointments();
+            if (appointments != null) {
+                Map<Integer, Patient> patients = PatientService.getPatients(
+                    appointments.stream().map(model.Appointment::getPatientId).collect(Collectors.toSet()));
+                Map<Integer, Doctor> doctors = DoctorService.getDoctors(
+                    appointments.stream().map(model.Appointment::getDoctorId).collect(Collectors.toSet()));
+                for (model.Appointment a : appointments) {
+                    Patient p = patients.get(a.getPatientId());
+                    Doctor d = doctors.get(a.getDoctorId());
+                    String patientName = (p != null) ? p.getFirstName() + " " + p.getLastName() : "Unknown";
+                    String doctorName = (d != null) ? "Dr. " + d.getFirstName() + " " + d.getLastName() : "Unknown";
+                    labels.add(a.getAppointmentId() + " - " + patientName + " with " + doctorName + " (" + a.getAppointmentDate() + ")");
+                }
             }
-        }
+            return labels;
+        }, labels -> combo.getItems().setAll(labels));
     }
 
     private Integer extractIdFromCombo(String comboValue) {
@@ -1,8 +1,12 @@
 package controller;
 
+import dao.Page;
+import dao.SortOrder;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import javafx.beans.property.SimpleStringProperty;
 import javafx.geometry.Insets;
@@ -20,15 +24,23 @@ import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.util.StringConverter;
 import model.Doctor;
+import model.DoctorSummary;
 import model.Patient;
+import model.PatientSummary;
 import model.Prescription;
 import model.PrescriptionItem;
 import service.AppointmentService;
 import service.DoctorService;
 import service.PatientService;
+import service.ReferenceDataStore;
 import service.PrescriptionItemService;
 import service.PrescriptionService;
+import ui.util.CachedNames;
+import ui.util.PagedList;
+import ui.util.TaskRunner;
+import util.CancellationToken;
 
 /**
  * Controller for Prescription Management tab.
@@ -36,6 +48,15 @@ import service.PrescriptionService;
 public class PrescriptionTabController {
 
     private TableView<Prescription> prescriptionTable;
+    // Prescriptions by ID, loaded a page at a time as the table scrolls
+    private final PagedList<Prescription> prescriptions = new PagedList<>("prescriptions", this::loadPage);
+    // Cells read names from the caches; misses are loaded in the background, not on the JavaFX thread
+    private final CachedNames<Patient> patientNames = new CachedNames<>("patient names",
+        PatientService::getPatientIfCached, PatientService::getPatients,
+        patient -> patient.getFirstName() + " " + patient.getLastName());
+    private final CachedNames<Doctor> doctorNames = new CachedNames<>("doctor names",
+        DoctorService::getDoctorIfCached, DoctorService::getDoctors,
+        doctor -> "Dr. " + doctor.getFirstName() + " " + doctor.getLastName());
 
     public Tab createPrescriptionTab() {
         Tab tab = new Tab("Prescriptions");
@@ -45,15 +66,15 @@ public class PrescriptionTabController {
         Label titleLabel = new Label("Prescription Management");
         titleLabel.setStyle("-fx-font-size: 18; -fx-font-weight: bold;");
 
-        ComboBox<String> patientCombo = new ComboBox<>();
+        ComboBox<PatientSummary> patientCombo = new ComboBox<>();
         patientCombo.setPromptText("Select Patient");
         patientCombo.setPrefWidth(150);
-        populatePatientCombo(patientCombo);
+        bindPatientCombo(patientCombo);
 
-        ComboBox<String> doctorCombo = new ComboBox<>();
+        ComboBox<DoctorSummary> doctorCombo = new ComboBox<>();
         doctorCombo.setPromptText("Select Doctor");
         doctorCombo.setPrefWidth(150);
-        populateDoctorCombo(doctorCombo);
+        bindDoctorCombo(doctorCombo);
 
         ComboBox<String> appointmentCombo = new ComboBox<>();
         appointmentCombo.setPromptText("Select Appointment (Optional)");
@@ -76,19 +97,19 @@ public class PrescriptionTabController {
 
         TableColumn<Prescription, String> patientCol = new TableColumn<>("Patient Name");
         patientCol.setCellValueFactory(cellData -> {
-            int patientId = cellData.getValue().getPatientId();
-            Patient patient = PatientService.getPatient(patientId);
-            String name = patient != null ? patient.getFirstName() + " " + patient.getLastName() : "Unknown";
-            return new SimpleStringProperty(name);
+            if (cellData.getValue() == null) {
+                return new SimpleStringProperty("");
+            }
+            return patientNames.nameOf(cellData.getValue().getPatientId());
         });
         patientCol.setPrefWidth(150);
 
         TableColumn<Prescription, String> doctorCol = new TableColumn<>("Doctor Name");
         doctorCol.setCellValueFactory(cellData -> {
-            int doctorId = cellData.getValue().getDoctorId();
-            Doctor doctor = DoctorService.getDoctor(doctorId);
-            String name = doctor != null ? "Dr. " + doctor.getFirstName() + " " + doctor.getLastName() : "Unknown";
-            return new SimpleStringProperty(name);
+            if (cellData.getValue() == null) {
+                return new SimpleStringProperty("");
+            }
+            return doctorNames.nameOf(cellData.getValue().getDoctorId());
         });
         doctorCol.setPrefWidth(150);
 
@@ -101,6 +122,7 @@ public class PrescriptionTabController {
         dateCol.setPrefWidth(120);
 
         prescriptionTable.getColumns().addAll(idCol, patientCol, doctorCol, diagnosisCol, dateCol);
+        prescriptions.bindTo(prescriptionTable, idCol);
 
         TableView<PrescriptionItem> itemsTable = new TableView<>();
         itemsTable.setPrefHeight(200);
@@ -157,13 +179,15 @@ public class PrescriptionTabController {
         deleteBtn.setOnAction(e -> {
             Prescription selected = prescriptionTable.getSelectionModel().getSelectedItem();
             if (selected != null) {
-                if (PrescriptionService.deletePrescription(selected.getPrescriptionId())) {
-                    showAlert("Success", "Prescription deleted!");
-                    prescriptionTable.getItems().remove(selected);
-                    itemsTable.getItems().clear();
-                } else {
-                    showAlert("Error", "Failed to delete");
-                }
+                TaskRunner.run("Deleting prescription", () -> PrescriptionService.deletePrescription(selected.getPrescriptionId()), deleted -> {
+                    if (deleted) {
+                        showAlert("Success", "Prescription deleted!");
+                        itemsTable.getItems().clear();
+                        prescriptions.refresh();
+                    } else {
+                        showAlert("Error", "Failed to delete");
+                    }
+                });
             } else {
                 showAlert("Error", "Please select a prescription");
             }
@@ -186,18 +210,19 @@ public class PrescriptionTabController {
                     durationField.getText(),
                     Integer.parseInt(itemQuantityField.getText())
                 );
-                if (PrescriptionItemService.createPrescriptionItem(item)) {
-                    showAlert("Success", "Item added to prescription!");
-                    inventoryIdField.clear();
-                    dosageField.clear();
-                    frequencyField.clear();
-                    durationField.clear();
-                    itemQuantityField.clear();
-                    List<PrescriptionItem> items = PrescriptionItemService.getItemsByPrescription(selected.getPrescriptionId());
-                    itemsTable.getItems().setAll(items != null ? items : new ArrayList<>());
-                } else {
-                    showAlert("Error", "Failed to add item");
-                }
+                TaskRunner.run("Adding prescription item", () -> PrescriptionItemService.createPrescriptionItem(item), created -> {
+                    if (created) {
+                        showAlert("Success", "Item added to prescription!");
+                        inventoryIdField.clear();
+                        dosageField.clear();
+                        frequencyField.clear();
+                        durationField.clear();
+                        itemQuantityField.clear();
+                        loadItems(itemsTable, selected.getPrescriptionId());
+                    } else {
+                        showAlert("Error", "Failed to add item");
+                    }
+                });
             } catch (NumberFormatException ex) {
                 showAlert("Error", "Invalid number format");
             }
@@ -208,23 +233,23 @@ public class PrescriptionTabController {
         deleteItemBtn.setOnAction(e -> {
             PrescriptionItem selected = itemsTable.getSelectionModel().getSelectedItem();
             if (selected != null) {
-                if (PrescriptionItemService.deletePrescriptionItem(selected.getPrescriptionItemId())) {
-                    showAlert("Success", "Item removed!");
-                    itemsTable.getItems().remove(selected);
-                } else {
-                    showAlert("Error", "Failed to remove item");
-                }
+                TaskRunner.run("Removing prescription item", () -> PrescriptionItemService.deletePrescriptionItem(selected.getPrescriptionItemId()), deleted -> {
+                    if (deleted) {
+                        showAlert("Success", "Item removed!");
+                        itemsTable.getItems().remove(selected);
+                    } else {
+                        showAlert("Error", "Failed to remove item");
+                    }
+                });
             } else {
                 showAlert("Error", "Please select an item to remove");
             }
         });
 
         prescriptionTable.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            itemsTable.getItems().clear();
             if (newVal != null) {
-                List<PrescriptionItem> items = PrescriptionItemService.getItemsByPrescription(newVal.getPrescriptionId());
-                itemsTable.getItems().setAll(items != null ? items : new ArrayList<>());
-            } else {
-                itemsTable.getItems().clear();
+                loadItems(itemsTable, newVal.getPrescriptionId());
             }
         });
 
@@ -234,8 +259,8 @@ public class PrescriptionTabController {
                     showAlert("Error", "Please select Patient and Doctor");
                     return;
                 }
-                Integer patientId = extractIdFromCombo(patientCombo.getValue());
-                Integer doctorId = extractIdFromCombo(doctorCombo.getValue());
+                int patientId = patientCombo.getValue().getPatientId();
+                int doctorId = doctorCombo.getValue().getDoctorId();
                 Integer appointmentId = appointmentCombo.getValue() != null ? extractIdFromCombo(appointmentCombo.getValue()) : null;
                 Prescription prescription = new Prescription(
                     patientId,
@@ -245,17 +270,19 @@ public class PrescriptionTabController {
                     diagnosisField.getText(),
                     notesArea.getText()
                 );
-                if (PrescriptionService.createPrescription(prescription)) {
-                    showAlert("Success", "Prescription added!");
-                    patientCombo.setValue(null);
-                    doctorCombo.setValue(null);
-                    appointmentCombo.setValue(null);
-                    diagnosisField.clear();
-                    notesArea.clear();
-                    loadPrescriptionData();
-                } else {
-                    showAlert("Error", "Failed to add prescription");
-                }
+                TaskRunner.run("Adding prescription", () -> PrescriptionService.createPrescription(prescription), created -> {
+                    if (created) {
+                        showAlert("Success", "Prescription added!");
+                        patientCombo.setValue(null);
+                        doctorCombo.setValue(null);
+                        appointmentCombo.setValue(null);
+                        diagnosisField.clear();
+                        notesArea.clear();
+                        loadPrescriptionData();
+                    } else {
+                        showAlert("Error", "Failed to add prescription");
+                    }
+                });
             } catch (NumberFormatException ex) {
                 showAlert("Error", "Invalid input format");
             }
@@ -298,47 +325,82 @@ public class PrescriptionTabController {
     }
 
     public void loadPrescriptionData() {
-        if (prescriptionTable != null) {
-            prescriptionTable.getItems().clear();
-            List<Prescription> prescriptions = PrescriptionService.getAllPrescriptions();
-            if (prescriptions != null) {
-                prescriptionTable.getItems().addAll(prescriptions);
-            }
+        if (prescriptionTable == null) {
+            return;
         }
+        prescriptions.refresh();
     }
 
-    private void populatePatientCombo(ComboBox<String> combo) {
-        combo.getItems().clear();
-        List<Patient> patients = PatientService.getAllPatients();
-        if (patients != null) {
-            for (Patient p : patients) {
-                combo.getItems().add(p.getPatientId() + " - " + p.getFirstName() + " " + p.getLastName());
+    /**
+     * Loads a page of prescriptions and, in two batched queries, the names its cells show
+     */
+    private Page<Prescription> loadPage(int offset, Prescription previous, int limit, SortOrder sort,
+                                        CancellationToken token) {
+        Page<Prescription> page = PrescriptionService.getPrescriptionPageAt(offset, previous, limit, sort, token);
+        List<Prescription> rows = page.getItems();
+        PatientService.getPatients(rows.stream().map(Prescription::getPatientId).collect(Collectors.toSet()), token);
+        DoctorService.getDoctors(rows.stream().map(Prescription::getDoctorId).collect(Collectors.toSet()), token);
+        return page;
+    }
+
+    /**
+     * Shows the items of a prescription, unless another prescription was selected in the meantime
+     */
+    private void loadItems(TableView<PrescriptionItem> itemsTable, int prescriptionId) {
+        TaskRunner.run("Loading prescription items", () -> PrescriptionItemService.getItemsByPrescription(prescriptionId), items -> {
+            Prescription selected = prescriptionTable.getSelectionModel().getSelectedItem();
+            if (selected != null && selected.getPrescriptionId() == prescriptionId) {
+                itemsTable.getItems().setAll(items != null ? items : new ArrayList<>());
             }
-        }
+        });
     }
 
-    private void populateDoctorCombo(ComboBox<String> combo) {
-        combo.getItems().clear();
-        List<Doctor> doctors = DoctorService.getAllDoctors();
-        if (doctors != null) {
-            for (Doctor d : doctors) {
-                combo.getItems().add(d.getDoctorId() + " - Dr. " + d.getFirstName() + " " + d.getLastName());
+    private void bindPatientCombo(ComboBox<PatientSummary> combo) {
+        combo.setItems(ReferenceDataStore.getPatients());
+        combo.setConverter(new StringConverter<PatientSummary>() {
+            @Override
+            public String toString(PatientSummary p) {
+                if (p == null) return "";
+                return p.getPatientId() + " - " + p.getFirstName() + " " + p.getLastName();
             }
-        }
+            @Override
+            public PatientSummary fromString(String string) { return null; }
+        });
+    }
+
+    private void bindDoctorCombo(ComboBox<DoctorSummary> combo) {
+        combo.setItems(ReferenceDataStore.getDoctors());
+        combo.setConverter(new StringConverter<DoctorSummary>() {
+            @Override
+            public String toString(DoctorSummary d) {
+                if (d == null) return "";
+                return d.getDoctorId() + " - Dr. " + d.getFirstName() + " " + d.getLastName();
+            }
+            @Override
+            public DoctorSummary fromString(String string) { return null; }
+        });
     }
 
     private void populateAppointmentCombo(ComboBox<String> combo) {
         combo.getItems().clear();
-        List<model.Appointment> appointments = AppointmentService.getAllAppointments();
-        if (appointments != null) {
-            for (model.Appointment a : appointments) {
-                Patient p = PatientService.getPatient(a.getPatientId());
-                Doctor d = DoctorService.getDoctor(a.getDoctorId());
-                String patientName = (p != null) ? p.getFirstName() + " " + p.getLastName() : "Unknown";
-                String doctorName = (d != null) ? "Dr. " + d.getFirstName() + " " + d.getLastName() : "Unknown";
-                combo.getItems().add(a.getAppointmentId() + " - " + patientName + " with " + doctorName + " (" + a.getAppointmentDate() + ")");
+        TaskRunner.run("Loading appointments", () -> {
+            List<String> labels = new ArrayList<>();
+            List<model.Appointment> appointments = AppointmentService.getAllAppointments();
+            if (appointments != null) {
+                Map<Integer, Patient> patients = PatientService.getPatients(
+                    appointments.stream().map(model.Appointment::getPatientId).collect(Collectors.toSet()));
+                Map<Integer, Doctor> doctors = DoctorService.getDoctors(
+                    appointments.stream().map(model.Appointment::getDoctorId).collect(Collectors.toSet()));
+                for (model.Appointment a : appointments) {
+                    Patient p = patients.get(a.getPatientId());
+                    Doctor d = doctors.get(a.getDoctorId());
+                    String patientName = (p != null) ? p.getFirstName() + " " + p.getLastName() : "Unknown";
+                    String doctorName = (d != null) ? "Dr. " + d.getFirstName() + " " + d.getLastName() : "Unknown";
+                    labels.add(a.getAppointmentId() + " - " + patientName + " with " + doctorName + " (" + a.getAppointmentDate() + ")");
+                }
             }
-        }
+            return labels;
+        }, labels -> combo.getItems().setAll(labels));
     }
 
     private Integer extractIdFromCombo(String comboValue) {
@@ -2,8 +2,14 @@ package dao;
 
 import model.Appointment;
 import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import util.CancellationToken;
 
 public class AppointmentDAO {
     
@@ -12,49 +18,79 @@ public class AppointmentDAO {
      */
     public static boolean addAppointment(Appointment appointment) {
         String query = "INSERT INTO Appointment (patient_id, doctor_id, appointment_date, appointment_time, status, notes) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setInt(1, appointment.getPatientId());
-            stmt.setInt(2, appointment.getDoctorId());
-            stmt.setDate(3, java.sql.Date.valueOf(appointment.getAppointmentDate()));
-            stmt.setTime(4, java.sql.Time.valueOf(appointment.getAppointmentTime()));
-            stmt.setString(5, appointment.getStatus());
-            stmt.setString(6, appointment.getNotes());
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return RowInsert.execute(query, appointment, AppointmentDAO::bindInsert, "Appointment", "appointment_id",
+                "created_at", (row, id, createdAt) -> {
+                    row.setAppointmentId(id);
+                    row.setCreatedAt(createdAt);
+                });
         } catch (SQLException e) {
             System.err.println("Error adding appointment: " + e.getMessage());
             return false;
         }
     }
     
+    /**
+     * Adds appointments in JDBC batches using the default batch size
+     */
+    public static BatchResult addAppointments(List<Appointment> appointments) {
+        return addAppointments(appointments, DBConnection.getBatchSize());
+    }
+    
+    /**
+     * Adds appointments in JDBC batches, one transaction per batch.
+     * Generated IDs are set on the inserted appointments; failed rows are reported in the result.
+     */
+    public static BatchResult addAppointments(List<Appointment> appointments, int batchSize) {
+        String query = "INSERT INTO Appointment (patient_id, doctor_id, appointment_date, appointment_time, status, notes) VALUES (?, ?, ?, ?, ?, ?)";
+        return BatchInsert.execute(query, appointments, batchSize, AppointmentDAO::bindInsert, "Appointment",
+            "appointment_id", "created_at", (appointment, id, createdAt) -> {
+                appointment.setAppointmentId(id);
+                appointment.setCreatedAt(createdAt);
+            });
+    }
+    
+    private static void bindInsert(PreparedStatement stmt, Appointment appointment) throws SQLException {
+        stmt.setInt(1, appointment.getPatientId());
+        stmt.setInt(2, appointment.getDoctorId());
+        stmt.setDate(3, java.sql.Date.valueOf(appointment.getAppointmentDate()));
+        stmt.setTime(4, java.sql.Time.valueOf(appointment.getAppointmentTime()));
+        stmt.setString(5, appointment.getStatus());
+        stmt.setString(6, appointment.getNotes());
+    }
+    
     /**
      * Retrieves an appointment by ID
+     * @return The appointment, or null if there is no such appointment
+     * @throws DataAccessException if the query fails
      */
     public static Appointment getAppointmentById(int appointmentId) {
         String query = "SELECT * FROM Appointment WHERE appointment_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setInt(1, appointmentId);
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                Appointment appointment = new Appointment(
-                    rs.getInt("appointment_id"),
-                    rs.getInt("patient_id"),
-                    rs.getInt("doctor_id"),
-                    rs.getDate("appointment_date").toLocalDate(),
-                    rs.getTime("appointment_time").toLocalTime(),
-                    rs.getString("status"),
-                    rs.getString("notes")
-                );
-                appointment.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-                return appointment;
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) {
+                throw new DataAccessException("No database connection to retrieve appointment");
+            }
+            try (PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
+                
+                stmt.setInt(1, appointmentId);
+                ResultSet rs = stmt.executeQuery();
+                
+                if (rs.next()) {
+                    Appointment appointment = new Appointment(
+                        rs.getInt("appointment_id"),
+                        rs.getInt("patient_id"),
+                        rs.getInt("doctor_id"),
+                        rs.getDate("appointment_date").toLocalDate(),
+                        rs.getTime("appointment_time").toLocalTime(),
+                        rs.getString("status"),
+                        rs.getString("notes")
+                    );
+                    appointment.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                    return appointment;
+                }
             }
         } catch (SQLException e) {
-            System.err.println("Error retrieving appointment: " + e.getMessage());
+            throw new DataAccessException("Error retrieving appointment: " + e.getMessage(), e);
         }
         return null;
     }
@@ -66,26 +102,17 @@ public class AppointmentDAO {
         List<Appointment> appointments = new ArrayList<>();
         String query = "SELECT * FROM Appointment";
         
-        Connection conn = DBConnection.getConnection();
+        Connection conn = DBConnection.getReadConnection();
         if (conn == null) {
             System.err.println("Warning: Database connection is null. Returning empty appointment list.");
             return appointments;
         }
         
-        try (Statement stmt = conn.createStatement();
+        try (Statement stmt = QueryBudget.LIST.create(conn);
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
-                Appointment appointment = new Appointment(
-                    rs.getInt("appointment_id"),
-                    rs.getInt("patient_id"),
-                    rs.getInt("doctor_id"),
-                    rs.getDate("appointment_date").toLocalDate(),
-                    rs.getTime("appointment_time").toLocalTime(),
-                    rs.getString("status"),
-                    rs.getString("notes")
-                );
-                appointment.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                Appointment appointment = mapAppointment(rs);
                 appointments.add(appointment);
             }
         } catch (SQLException e) {
@@ -96,8 +123,180 @@ public class AppointmentDAO {
         return appointments;
     }
     
+    /**
+     * Streams all appointments to the action one row at a time, without loading the table into memory
+     * @return true if every row was delivered
+     */
+    public static boolean streamAllAppointments(Consumer<? super Appointment> action) {
+        return ResultStream.forEach("SELECT * FROM Appointment ORDER BY appointment_id", "appointments", AppointmentDAO::mapAppointment, action);
+    }
+    
+    /**
+     * Streams all appointments; the stream holds a database connection and must be closed
+     */
+    public static Stream<Appointment> streamAllAppointments() {
+        return ResultStream.stream("SELECT * FROM Appointment ORDER BY appointment_id", "appointments", AppointmentDAO::mapAppointment);
+    }
+    
+    /**
+     * Retrieves one page of appointments ordered by (date, ID), seeking past the previous page's last appointment
+     * @param afterDate Date of the previous page's last appointment, or null for the first page
+     * @param afterId ID of the previous page's last appointment
+     */
+    public static Page<Appointment> getAppointmentPage(LocalDate afterDate, int afterId, int limit, SortOrder sort) {
+        return getAppointmentPage(afterDate, afterId, limit, sort, null);
+    }
+    
+    /**
+     * Same as getAppointmentPage, aborted when the token is cancelled
+     */
+    public static Page<Appointment> getAppointmentPage(LocalDate afterDate, int afterId, int limit, SortOrder sort, CancellationToken token) {
+        String order = sort.keyword();
+        String query = "SELECT * FROM Appointment"
+            + (afterDate != null ? " WHERE (appointment_date, appointment_id) " + sort.seekOperator() + " (?, ?)" : "")
+            + " ORDER BY appointment_date " + order + ", appointment_id " + order + " LIMIT ?";
+        return PagedQuery.fetch(query, "Appointment", limit, stmt -> {
+            if (afterDate != null) {
+                stmt.setDate(1, java.sql.Date.valueOf(afterDate));
+                stmt.setInt(2, afterId);
+                return 3;
+            }
+            return 1;
+        }, AppointmentDAO::mapAppointment, token);
+    }
+    
+    /**
+     * Retrieves the page of appointments that starts offset rows into the (date, ID) ordering
+     */
+    public static Page<Appointment> getAppointmentPageAt(int offset, int limit, SortOrder sort) {
+        return getAppointmentPageAt(offset, limit, sort, null);
+    }
+    
+    /**
+     * Same as getAppointmentPageAt, aborted when the token is cancelled
+     */
+    public static Page<Appointment> getAppointmentPageAt(int offset, int limit, SortOrder sort, CancellationToken token) {
+        return PagedQuery.fetchAt("Appointment", "appointment_id", new String[] {"appointment_date", "appointment_id"},
+            offset, limit, sort, AppointmentDAO::mapAppointment, token);
+    }
+    
+    /**
+     * Finds appointments of the given patients or doctors, newest first. Each ID list is read
+     * through its own index and the two are merged with UNION, which an OR across the columns
+     * would turn into a table scan. Cancelling the token aborts the query.
+     * @return Matching appointments, or an empty list on error or cancellation
+     */
+    public static List<Appointment> searchAppointments(Collection<Integer> patientIds, Collection<Integer> doctorIds,
+                                                       int limit, CancellationToken token) {
+        List<Appointment> appointments = new ArrayList<>();
+        if (patientIds.isEmpty() && doctorIds.isEmpty()) {
+            return appointments;
+        }
+        StringBuilder query = new StringBuilder();
+        appendIdBranch(query, "patient_id", patientIds.size());
+        appendIdBranch(query, "doctor_id", doctorIds.size());
+        query.append(" ORDER BY appointment_date DESC, appointment_id DESC LIMIT ?");
+        
+        try (Connection conn = DBConnection.getReadConnection()) {
+            if (conn == null) {
+                System.err.println("Warning: Database connection is null. Returning empty appointment search.");
+                return appointments;
+            }
+            try (PreparedStatement stmt = QueryBudget.LIST.prepare(conn, query.toString())) {
+                CancellationToken.Registration cancel = QueryBudget.cancelOn(token, stmt);
+                try {
+                    int index = 1;
+                    index = bindIdBranch(stmt, index, patientIds, limit);
+                    index = bindIdBranch(stmt, index, doctorIds, limit);
+                    stmt.setInt(index, limit);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            appointments.add(mapAppointment(rs));
+                        }
+                    }
+                } finally {
+                    cancel.close();
+                }
+            }
+        } catch (SQLException e) {
+            if (!token.isCancelled()) {
+                System.err.println("Error searching appointments: " + e.getMessage());
+            }
+            appointments.clear();
+        }
+        return appointments;
+    }
+    
+    /**
+     * Finds appointments whose status or notes contain the text, newest first. The notes
+     * column has no usable index, so this scans the table; run it only when asked for,
+     * not on every keystroke. Cancelling the token aborts the query.
+     * @return Matching appointments, or an empty list on error or cancellation
+     */
+    public static List<Appointment> searchAppointmentText(String text, int limit, CancellationToken token) {
+        List<Appointment> appointments = new ArrayList<>();
+        String query = "SELECT * FROM Appointment WHERE status LIKE ? ESCAPE '!' OR notes LIKE ? ESCAPE '!'"
+            + " ORDER BY appointment_date DESC, appointment_id DESC LIMIT ?";
+        String pattern = "%" + text.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        
+        try (Connection conn = DBConnection.getReadConnection()) {
+            if (conn == null) {
+                System.err.println("Warning: Database connection is null. Returning empty appointment search.");
+                return appointments;
+            }
+            try (PreparedStatement stmt = QueryBudget.LIST.prepare(conn, query)) {
+                CancellationToken.Registration cancel = QueryBudget.cancelOn(token, stmt);
+                try {
+                    stmt.setString(1, pattern);
+                    stmt.setString(2, pattern);
+                    stmt.setInt(3, limit);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            appointments.add(mapAppointment(rs));
+                        }
+                    }
+                } finally {
+                    cancel.close();
+                }
+            }
+        } catch (SQLException e) {
+            if (!token.isCancelled()) {
+                System.err.println("Error searching appointment notes: " + e.getMessage());
+            }
+            appointments.clear();
+        }
+        return appointments;
+    }
+    
+    private static void appendIdBranch(StringBuilder query, String column, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (query.length() > 0) {
+            query.append(" UNION ");
+        }
+        query.append("(SELECT * FROM Appointment WHERE ").append(column).append(" IN (");
+        for (int i = 0; i < count; i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        query.append(") ORDER BY appointment_date DESC, appointment_id DESC LIMIT ?)");
+    }
+    
+    private static int bindIdBranch(PreparedStatement stmt, int index, Collection<Integer> ids, int limit)
+            throws SQLException {
+        if (ids.isEmpty()) {
+            return index;
+        }
+        for (int id : ids) {
+            stmt.setInt(index++, id);
+        }
+        stmt.setInt(index++, limit);
+        return index;
+    }
+    
     /**
      * Retrieves appointments by patient ID
+     * @throws DataAccessException if the query fails
      */
     public static List<Appointment> getAppointmentsByPatient(int patientId) {
         List<Appointment> appointments = new ArrayList<>();
@@ -105,10 +304,9 @@ public class AppointmentDAO {
         
         Connection conn = DBConnection.getConnection();
         if (conn == null) {
-            System.err.println("Warning: Database connection is null. Cannot retrieve appointments by patient.");
-            return appointments;
+            throw new DataAccessException("No database connection to retrieve appointments by patient");
         }
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, patientId);
             ResultSet rs = stmt.executeQuery();
@@ -127,24 +325,76 @@ public class AppointmentDAO {
                 appointments.add(appointment);
             }
         } catch (SQLException e) {
-            System.err.println("Error retrieving appointments by patient: " + e.getMessage());
+            throw new DataAccessException("Error retrieving appointments by patient: " + e.getMessage(), e);
         } finally {
             try { conn.close(); } catch (SQLException ignore) {}
         }
         return appointments;
     }
     
+    /**
+     * Retrieves a doctor's appointments on one day, ordered by time
+     * @throws DataAccessException if the query fails
+     */
+    public static List<Appointment> getAppointmentsByDoctorAndDate(int doctorId, LocalDate date) {
+        List<Appointment> appointments = new ArrayList<>();
+        String query = "SELECT * FROM Appointment WHERE doctor_id = ? AND appointment_date = ? ORDER BY appointment_time, appointment_id";
+        
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) {
+                throw new DataAccessException("No database connection to retrieve appointments by doctor");
+            }
+            try (PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
+                stmt.setInt(1, doctorId);
+                stmt.setDate(2, java.sql.Date.valueOf(date));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        appointments.add(mapAppointment(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error retrieving appointments by doctor and date: " + e.getMessage(), e);
+        }
+        return appointments;
+    }
+    
+    /**
+     * Retrieves the appointments with the given IDs in as few queries as possible; unknown IDs are skipped
+     * @throws DataAccessException if a query fails
+     */
+    public static List<Appointment> getAppointmentsByIds(Collection<Integer> appointmentIds) {
+        return IdLookup.fetch("SELECT * FROM Appointment WHERE appointment_id IN ", "appointments", appointmentIds, AppointmentDAO::mapAppointment);
+    }
+    
+    /**
+     * Retrieves the appointments inserted, updated or deleted since the given time
+     * @param since Sync point of the previous call, or null for every row
+     * @return Changes, or null if the query failed
+     */
+    public static ChangeSet<Appointment> getChangedSince(Instant since) {
+        return ChangeQuery.fetch("Appointment", "appointment_id", since, AppointmentDAO::mapAppointment);
+    }
+    
+    /**
+     * Reads the current sync point for getChangedSince without loading any appointments
+     * @return The sync point, or null if the query failed
+     */
+    public static Instant getChangeSyncPoint() {
+        return ChangeQuery.syncPoint();
+    }
+    
     /**
      * Updates an appointment
      */
     public static boolean updateAppointment(Appointment appointment) {
         String query = "UPDATE Appointment SET patient_id = ?, doctor_id = ?, appointment_date = ?, appointment_time = ?, status = ?, notes = ? WHERE appointment_id = ?";
-        Connection conn = DBConnection.getConnection();
+        Connection conn = DBConnection.getWriteConnection();
         if (conn == null) {
             System.err.println("Warning: Database connection is null. Cannot update appointment.");
             return false;
         }
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, appointment.getPatientId());
             stmt.setInt(2, appointment.getDoctorId());
@@ -168,12 +418,12 @@ public class AppointmentDAO {
      */
     public static boolean deleteAppointment(int appointmentId) {
         String query = "DELETE FROM Appointment WHERE appointment_id = ?";
-        Connection conn = DBConnection.getConnection();
+        Connection conn = DBConnection.getWriteConnection();
         if (conn == null) {
             System.err.println("Warning: Database connection is null. Cannot delete appointment.");
             return false;
         }
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, appointmentId);
             return stmt.executeUpdate() > 0;
@@ -184,4 +434,18 @@ public class AppointmentDAO {
             try { conn.close(); } catch (SQLException ignore) {}
         }
     }
+    
+    private static Appointment mapAppointment(ResultSet rs) throws SQLException {
+        Appointment appointment = new Appointment(
+            rs.getInt("appointment_id"),
+            rs.getInt("patient_id"),
+            rs.getInt("doctor_id"),
+            rs.getDate("appointment_date").toLocalDate(),
+            rs.getTime("appointment_time").toLocalTime(),
+            rs.getString("status"),
+            rs.getString("notes")
+        );
+        appointment.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return appointment;
+    }
 }
@@ -0,0 +1,195 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Shared JDBC batching for the bulk add* DAO methods.
+ * Each chunk runs in its own transaction; if a chunk fails as a batch it is
+ * replayed row by row so only the offending rows are reported as failures.
+ * Uses the batch bulkhead, so a large import cannot take the interactive connections.
+ * A timestamp column left to its default can be read back before each chunk commits.
+ * Keys are handed out only once their chunk has committed, and a failed row has its key cleared.
+ */
+class BatchInsert {
+
+    /**
+     * Binds one model object to the insert statement parameters
+     */
+    interface Binder<T> {
+        void bind(PreparedStatement stmt, T row) throws SQLException;
+    }
+
+    private BatchInsert() {
+    }
+
+    static <T> BatchResult execute(String sql, List<T> rows, int batchSize,
+                                   Binder<T> binder, ObjIntConsumer<T> keyAssigner) {
+        return execute(sql, rows, batchSize, binder, null, null, null,
+            (row, key, timestamp) -> keyAssigner.accept(row, key));
+    }
+
+    /**
+     * @param timestampColumn Column read back for the inserted rows, or null to read none
+     */
+    static <T> BatchResult execute(String sql, List<T> rows, int batchSize, Binder<T> binder,
+                                   String table, String idColumn, String timestampColumn,
+                                   RowInsert.KeyAssigner<T> keyAssigner) {
+        ReadBack readBack = timestampColumn != null ? new ReadBack(table, idColumn, timestampColumn) : null;
+        BatchResult result = new BatchResult(rows.size());
+        if (rows.isEmpty()) {
+            return result;
+        }
+        if (batchSize <= 0) {
+            batchSize = DBConnection.getBatchSize();
+        }
+
+        try (Connection conn = DBConnection.getWriteConnection(Bulkhead.BATCH)) {
+            if (conn == null) {
+                for (int i = 0; i < rows.size(); i++) {
+                    fail(rows, i, "Database connection is null", keyAssigner, result);
+                }
+                return result;
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = QueryBudget.REPORT.prepare(conn, sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int start = 0; start < rows.size(); start += batchSize) {
+                    int end = Math.min(start + batchSize, rows.size());
+                    insertChunk(conn, stmt, rows, start, end, binder, readBack, keyAssigner, result);
+                }
+            } catch (SQLException | RuntimeException e) {
+                // Turning auto-commit back on would commit the half-done chunk
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error running batch insert: " + e.getMessage());
+            // Only committed chunks have keys; everything else did not make it
+            for (int i = 0; i < rows.size(); i++) {
+                if (!result.isFailed(i) && result.getGeneratedKey(i) == 0) {
+                    fail(rows, i, e.getMessage(), keyAssigner, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static <T> void insertChunk(Connection conn, PreparedStatement stmt, List<T> rows, int start, int end,
+                                        Binder<T> binder, ReadBack readBack, RowInsert.KeyAssigner<T> keyAssigner,
+                                        BatchResult result)
+            throws SQLException {
+        List<Integer> batched = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            try {
+                binder.bind(stmt, rows.get(i));
+                stmt.addBatch();
+                batched.add(i);
+            } catch (SQLException | RuntimeException e) {
+                // Bad input on one row (e.g. a missing date) should not sink the chunk
+                fail(rows, i, "Invalid row: " + e.getMessage(), keyAssigner, result);
+                stmt.clearParameters();
+            }
+        }
+        if (batched.isEmpty()) {
+            return;
+        }
+
+        try {
+            stmt.executeBatch();
+            Map<Integer, Integer> inserted = new LinkedHashMap<>();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                for (int index : batched) {
+                    if (keys.next()) {
+                        inserted.put(index, keys.getInt(1));
+                    }
+                }
+            }
+            Map<Integer, LocalDateTime> timestamps = readTimestamps(conn, inserted, readBack);
+            conn.commit();
+            assignKeys(rows, inserted, timestamps, keyAssigner, result);
+        } catch (SQLException e) {
+            conn.rollback();
+            stmt.clearBatch();
+            insertRowByRow(conn, stmt, rows, batched, binder, readBack, keyAssigner, result);
+        }
+    }
+
+    private static <T> void insertRowByRow(Connection conn, PreparedStatement stmt, List<T> rows, List<Integer> indexes,
+                                           Binder<T> binder, ReadBack readBack, RowInsert.KeyAssigner<T> keyAssigner,
+                                           BatchResult result)
+            throws SQLException {
+        Map<Integer, Integer> inserted = new LinkedHashMap<>();
+        for (int index : indexes) {
+            try {
+                binder.bind(stmt, rows.get(index));
+                stmt.executeUpdate();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        inserted.put(index, keys.getInt(1));
+                    }
+                }
+            } catch (SQLException e) {
+                // InnoDB only rolls back the failed statement, earlier rows in the chunk survive
+                fail(rows, index, e.getMessage(), keyAssigner, result);
+            }
+        }
+        Map<Integer, LocalDateTime> timestamps = readTimestamps(conn, inserted, readBack);
+        conn.commit();
+        assignKeys(rows, inserted, timestamps, keyAssigner, result);
+    }
+
+    /**
+     * @param inserted Generated key by row index, of rows not yet committed
+     */
+    private static Map<Integer, LocalDateTime> readTimestamps(Connection conn, Map<Integer, Integer> inserted,
+                                                              ReadBack readBack) throws SQLException {
+        return readBack != null
+            ? RowInsert.readTimestamps(conn, readBack.table, readBack.idColumn, readBack.column, inserted.values())
+            : Collections.emptyMap();
+    }
+
+    /**
+     * Hands out the keys of a committed chunk
+     */
+    private static <T> void assignKeys(List<T> rows, Map<Integer, Integer> inserted, Map<Integer, LocalDateTime> timestamps,
+                                       RowInsert.KeyAssigner<T> keyAssigner, BatchResult result) {
+        for (Map.Entry<Integer, Integer> entry : inserted.entrySet()) {
+            int key = entry.getValue();
+            result.setGeneratedKey(entry.getKey(), key);
+            keyAssigner.assign(rows.get(entry.getKey()), key, timestamps.get(key));
+        }
+    }
+
+    /**
+     * Reports a row as failed and clears any key the model still carries, e.g. from an earlier attempt
+     */
+    private static <T> void fail(List<T> rows, int index, String message, RowInsert.KeyAssigner<T> keyAssigner,
+                                 BatchResult result) {
+        result.addFailure(index, message);
+        keyAssigner.assign(rows.get(index), 0, null);
+    }
+
+    private static final class ReadBack {
+        final String table;
+        final String idColumn;
+        final String column;
+
+        ReadBack(String table, String idColumn, String column) {
+            this.table = table;
+            this.idColumn = idColumn;
+            this.column = column;
+        }
+    }
+}
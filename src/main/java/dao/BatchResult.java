@@ -0,0 +1,73 @@
+package dao;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a batch insert: generated keys and failures, per input row
+ */
+public class BatchResult {
+    private final int[] generatedKeys;
+    private final Map<Integer, String> failures = new TreeMap<>();
+
+    public BatchResult(int rowCount) {
+        this.generatedKeys = new int[rowCount];
+    }
+
+    void setGeneratedKey(int rowIndex, int key) {
+        generatedKeys[rowIndex] = key;
+    }
+
+    int getGeneratedKey(int rowIndex) {
+        return generatedKeys[rowIndex];
+    }
+
+    void addFailure(int rowIndex, String message) {
+        failures.put(rowIndex, message);
+        generatedKeys[rowIndex] = 0;
+    }
+
+    /**
+     * Gets the generated key for each input row, or 0 where the row failed
+     */
+    public int[] getGeneratedKeys() {
+        return generatedKeys.clone();
+    }
+
+    /**
+     * Gets the error message for each failed row, keyed by its index in the input list
+     */
+    public Map<Integer, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    public boolean isFailed(int rowIndex) {
+        return failures.containsKey(rowIndex);
+    }
+
+    public int getRowCount() {
+        return generatedKeys.length;
+    }
+
+    public int getInsertedCount() {
+        return generatedKeys.length - failures.size();
+    }
+
+    public int getFailedCount() {
+        return failures.size();
+    }
+
+    public boolean isFullySuccessful() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "rows=" + generatedKeys.length +
+                ", inserted=" + getInsertedCount() +
+                ", failed=" + failures.size() +
+                '}';
+    }
+}
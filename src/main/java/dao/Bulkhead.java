@@ -0,0 +1,37 @@
+package dao;
+
+/**
+ * Separate connection pools for separate kinds of work, so long-running batch work can
+ * only ever use up its own connections and never those that screen lookups wait on.
+ * Each bulkhead reads its settings from environment variables with its own prefix:
+ * MIN_IDLE, MAX_SIZE, CHECKOUT_TIMEOUT_MS, MAX_WAITING and LEAK_THRESHOLD_MS.
+ */
+public enum Bulkhead {
+
+    /** Lookups, lists and edits behind the screens (HOSPITAL_DB_POOL_*) */
+    INTERACTIVE("interactive", "HOSPITAL_DB_POOL_", 2, 10, 5000, 50, 60000),
+    /** Exports, bulk imports and summary reports (HOSPITAL_DB_BATCH_POOL_*) */
+    BATCH("batch", "HOSPITAL_DB_BATCH_POOL_", 0, 2, 30000, 4, 600000);
+
+    private final String poolName;
+    final int minIdle;
+    final int maxSize;
+    final long checkoutTimeoutMs;
+    final int maxWaiting;
+    // Batch work holds connections for minutes by design, so its leak warning comes later
+    final long leakThresholdMs;
+
+    Bulkhead(String poolName, String prefix, int minIdle, int maxSize, long checkoutTimeoutMs, int maxWaiting,
+             long leakThresholdMs) {
+        this.poolName = poolName;
+        this.minIdle = Integer.parseInt(System.getenv().getOrDefault(prefix + "MIN_IDLE", String.valueOf(minIdle)));
+        this.maxSize = Integer.parseInt(System.getenv().getOrDefault(prefix + "MAX_SIZE", String.valueOf(maxSize)));
+        this.checkoutTimeoutMs = Long.parseLong(System.getenv().getOrDefault(prefix + "CHECKOUT_TIMEOUT_MS", String.valueOf(checkoutTimeoutMs)));
+        this.maxWaiting = Integer.parseInt(System.getenv().getOrDefault(prefix + "MAX_WAITING", String.valueOf(maxWaiting)));
+        this.leakThresholdMs = Long.parseLong(System.getenv().getOrDefault(prefix + "LEAK_THRESHOLD_MS", String.valueOf(leakThresholdMs)));
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+}
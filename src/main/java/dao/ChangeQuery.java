@@ -0,0 +1,101 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs the getChangedSince DAO queries: rows whose updated_at is at or after the given
+ * time, plus the tombstones that the delete triggers write to DeletedRecord.
+ * Always reads the primary: on a lagging replica, rows could show up after the sync point
+ * had already moved past their updated_at and would never be picked up.
+ */
+class ChangeQuery {
+
+    // A transaction that commits after the sync point was read can carry an earlier
+    // updated_at; re-reading this much history picks it up on the next call
+    private static final long OVERLAP_MS = 2000;
+
+    private ChangeQuery() {
+    }
+
+    /**
+     * @param idColumn Primary key column; rows are returned in its order
+     * @param since Time of the previous sync point, or null to load the whole table
+     * @return Changes, or null if the query failed (callers should keep their data or do a full load)
+     */
+    static <T> ChangeSet<T> fetch(String table, String idColumn, Instant since, RowMapper<T> mapper) {
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) {
+                System.err.println("Warning: Database connection is null. Cannot retrieve " + table + " changes.");
+                return null;
+            }
+            Instant syncPoint = readSyncPoint(conn);
+
+            List<T> upserted = new ArrayList<>();
+            String rowQuery = "SELECT * FROM " + table + (since != null ? " WHERE updated_at >= ?" : "")
+                + " ORDER BY " + idColumn;
+            try (PreparedStatement stmt = QueryBudget.LIST.prepare(conn, rowQuery)) {
+                if (since != null) {
+                    stmt.setTimestamp(1, Timestamp.from(since));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        upserted.add(mapper.map(rs));
+                    }
+                }
+            }
+
+            Set<Integer> deletedIds = new HashSet<>();
+            if (since != null) {
+                String tombstoneQuery = "SELECT record_id FROM DeletedRecord WHERE table_name = ? AND deleted_at >= ?";
+                try (PreparedStatement stmt = QueryBudget.LIST.prepare(conn, tombstoneQuery)) {
+                    stmt.setString(1, table);
+                    stmt.setTimestamp(2, Timestamp.from(since));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            deletedIds.add(rs.getInt(1));
+                        }
+                    }
+                }
+            }
+            return new ChangeSet<>(upserted, deletedIds, syncPoint, since == null);
+        } catch (SQLException e) {
+            System.err.println("Error retrieving " + table + " changes: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Sync point to pass to a later fetch, for callers that start tracking changes without
+     * loading the table first
+     * @return The sync point, or null if the query failed
+     */
+    static Instant syncPoint() {
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) {
+                System.err.println("Warning: Database connection is null. Cannot read the change sync point.");
+                return null;
+            }
+            return readSyncPoint(conn);
+        } catch (SQLException e) {
+            System.err.println("Error reading the change sync point: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Instant readSyncPoint(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = QueryBudget.LIST.prepare(conn, "SELECT CURRENT_TIMESTAMP(3)");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1).toInstant().minusMillis(OVERLAP_MS);
+        }
+    }
+}
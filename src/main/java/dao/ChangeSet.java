@@ -0,0 +1,121 @@
+package dao;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Rows inserted, updated or deleted since a point in time, from a getChangedSince DAO method.
+ * Pass {@link #getSyncPoint()} to the next call to receive the changes after this one.
+ */
+public class ChangeSet<T> {
+    private final List<T> upserted;
+    private final Set<Integer> deletedIds;
+    private final Instant syncPoint;
+    private final boolean full;
+
+    public ChangeSet(List<T> upserted, Set<Integer> deletedIds, Instant syncPoint, boolean full) {
+        this.upserted = Collections.unmodifiableList(upserted);
+        this.deletedIds = Collections.unmodifiableSet(deletedIds);
+        this.syncPoint = syncPoint;
+        this.full = full;
+    }
+
+    /**
+     * Wraps a complete list loaded without change tracking. It has no sync point,
+     * so the next refresh is a full load again.
+     * @param id Extracts an item's ID; the list is sorted by it
+     */
+    public static <T> ChangeSet<T> ofAll(List<T> items, ToIntFunction<T> id) {
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparingInt(id));
+        return new ChangeSet<>(sorted, new HashSet<>(), null, true);
+    }
+
+    /**
+     * Rows inserted or updated since the requested time (every row for a full load)
+     */
+    public List<T> getUpserted() {
+        return upserted;
+    }
+
+    /**
+     * IDs of rows deleted since the requested time
+     */
+    public Set<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+
+    /**
+     * Database time to request the next changes from; null if the next request has to be a full load
+     */
+    public Instant getSyncPoint() {
+        return syncPoint;
+    }
+
+    /**
+     * Whether this holds the whole table rather than changes, so it replaces any loaded list
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * Applies these changes to a list kept in ID order, replacing it for a full load
+     * @param id Extracts an item's ID
+     */
+    public void applyTo(List<T> items, ToIntFunction<T> id) {
+        if (full) {
+            items.clear();
+            items.addAll(upserted);
+            return;
+        }
+        if (!deletedIds.isEmpty()) {
+            items.removeIf(item -> deletedIds.contains(id.applyAsInt(item)));
+        }
+        for (T item : upserted) {
+            int index = indexOf(items, id, id.applyAsInt(item));
+            if (index >= 0) {
+                items.set(index, item);
+            } else {
+                items.add(-index - 1, item);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return upserted.isEmpty() && deletedIds.isEmpty();
+    }
+
+    private static <T> int indexOf(List<T> items, ToIntFunction<T> id, int itemId) {
+        int low = 0;
+        int high = items.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = id.applyAsInt(items.get(mid));
+            if (midId < itemId) {
+                low = mid + 1;
+            } else if (midId > itemId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{" +
+                "upserted=" + upserted.size() +
+                ", deleted=" + deletedIds.size() +
+                ", syncPoint=" + syncPoint +
+                ", full=" + full +
+                '}';
+    }
+}
@@ -0,0 +1,520 @@
+package dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import util.LatencyHistogram;
+
+/**
+ * Bounded JDBC connection pool used by DBConnection.
+ * Hands out proxy connections whose close() returns the physical connection
+ * to the pool, so DAOs can keep using try-with-resources unchanged.
+ * Each physical connection keeps its own prepared statement cache.
+ * The number of borrowers allowed to wait is bounded too; past that, borrow fails
+ * at once rather than queueing work that would only time out.
+ */
+public class ConnectionPool {
+
+    /**
+     * Opens a new physical connection for the pool
+     */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    // Connections used this recently are assumed alive and skip the validation ping
+    private static final long VALIDATION_BYPASS_MS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MS = 30000;
+
+    private final String name;
+    private final ConnectionFactory factory;
+    private final int minIdle;
+    private final int maxSize;
+    private final long checkoutTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long leakThresholdMs;
+    private final int statementCacheSize;
+    private final int maxWaiting;
+
+    // Most recently returned connections sit at the head, so idle ones drift to the tail
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> checkedOut = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final AtomicLong statementEvictions = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    public ConnectionPool(String name, ConnectionFactory factory, int minIdle, int maxSize,
+                          long checkoutTimeoutMs, long idleTimeoutMs, long leakThresholdMs,
+                          int statementCacheSize) {
+        this(name, factory, minIdle, maxSize, checkoutTimeoutMs, idleTimeoutMs, leakThresholdMs,
+            statementCacheSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxWaiting Borrowers that may wait for a connection at once; further ones are rejected
+     */
+    public ConnectionPool(String name, ConnectionFactory factory, int minIdle, int maxSize,
+                          long checkoutTimeoutMs, long idleTimeoutMs, long leakThresholdMs,
+                          int statementCacheSize, int maxWaiting) {
+        if (maxSize <= 0 || minIdle < 0 || minIdle > maxSize || maxWaiting < 0) {
+            throw new IllegalArgumentException("Invalid pool bounds: min=" + minIdle + ", max=" + maxSize);
+        }
+        this.name = name;
+        this.factory = factory;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.checkoutTimeoutMs = checkoutTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = statementCacheSize;
+        this.maxWaiting = maxWaiting;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-" + name + "-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+            HOUSEKEEPING_INTERVAL_MS, HOUSEKEEPING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a validated connection, waiting up to the checkout timeout
+     * @return Proxy connection; closing it returns the connection to the pool
+     * @throws SQLException if the pool is exhausted, too many borrowers are already waiting,
+     *         or a connection cannot be opened
+     */
+    public Connection borrow() throws SQLException {
+        return borrow(null);
+    }
+
+    /**
+     * @param onReturn Runs once the borrower has closed the connection and it is back in the pool; may be null
+     */
+    public Connection borrow(Runnable onReturn) throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool '" + name + "' is shut down");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            // The zero-timeout form respects the fair ordering, unlike tryAcquire()
+            acquired = permits.tryAcquire(0, TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                if (waitingCount.incrementAndGet() > maxWaiting) {
+                    waitingCount.decrementAndGet();
+                    rejectedCount.incrementAndGet();
+                    throw new SQLTransientConnectionException("Pool '" + name + "' is saturated: " + maxWaiting
+                        + " borrowers already waiting (active=" + checkedOut.size() + ", max=" + maxSize + ")");
+                }
+                try {
+                    acquired = permits.tryAcquire(checkoutTimeoutMs, TimeUnit.MILLISECONDS);
+                } finally {
+                    waitingCount.decrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        waitTimes.record(System.nanoTime() - start);
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLTimeoutException("Timed out after " + checkoutTimeoutMs + "ms waiting for a connection from pool '"
+                + name + "' (active=" + checkedOut.size() + ", max=" + maxSize + ")");
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    break;
+                }
+                destroy(pooled);
+            }
+            if (pooled == null) {
+                pooled = open();
+            }
+            pooled.checkout();
+            checkedOut.add(pooled);
+            return pooled.newProxy(onReturn);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a connection to the pool, resetting its session state
+     */
+    private void release(PooledConnection pooled) {
+        if (!checkedOut.remove(pooled)) {
+            return;
+        }
+        try {
+            pooled.closeOpenStatements();
+            if (pooled.statementCache != null) {
+                pooled.statementCache.releaseAll();
+            }
+            if (shutdown || pooled.broken || !resetState(pooled)) {
+                destroy(pooled);
+            } else {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean resetState(PooledConnection pooled) {
+        try {
+            Connection conn = pooled.physical;
+            if (conn.isClosed()) {
+                return false;
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (conn.isReadOnly()) {
+                conn.setReadOnly(false);
+            }
+            conn.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("✗ Discarding connection that failed reset: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - pooled.lastUsedAt < VALIDATION_BYPASS_MS) {
+                return true;
+            }
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = factory.create();
+        totalCount.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalCount.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        if (pooled.statementCache != null) {
+            pooled.statementCache.clear();
+        }
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignore) {}
+    }
+
+    /**
+     * Opens the minimum idle connections now instead of on the first borrows, e.g. at startup
+     * @return Number of idle connections afterwards
+     */
+    public int prefill() {
+        if (!shutdown) {
+            fillIdle(System.currentTimeMillis());
+        }
+        return idle.size();
+    }
+
+    private void fillIdle(long now) {
+        while (totalCount.get() < minIdle && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = open();
+                pooled.lastUsedAt = now;
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                System.err.println("✗ Pool '" + name + "' could not refill idle connections: " + e.getMessage());
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Evicts idle connections, tops the pool up to its minimum and reports leaks
+     */
+    private void housekeep() {
+        if (shutdown) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+
+            for (PooledConnection pooled : new ArrayList<>(idle)) {
+                boolean aboveMinimum = totalCount.get() > minIdle;
+                boolean expired = now - pooled.lastUsedAt > idleTimeoutMs;
+                if ((expired && aboveMinimum) || !isUsable(pooled)) {
+                    // remove() fails if a borrower grabbed it in the meantime
+                    if (idle.remove(pooled)) {
+                        destroy(pooled);
+                    }
+                }
+            }
+
+            fillIdle(now);
+
+            if (leakThresholdMs > 0) {
+                for (PooledConnection pooled : checkedOut) {
+                    if (!pooled.leakReported && now - pooled.checkedOutAt > leakThresholdMs) {
+                        pooled.leakReported = true;
+                        leakCount.incrementAndGet();
+                        System.err.println("⚠ Possible connection leak in pool '" + name + "': connection held for "
+                            + (now - pooled.checkedOutAt) + "ms by " + pooled.ownerThread);
+                        pooled.checkoutTrace.printStackTrace();
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("✗ Pool '" + name + "' housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops housekeeping.
+     * Connections still checked out are closed when they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Stats stats() {
+        return new Stats(totalCount.get(), checkedOut.size(), idle.size(), waitingCount.get(), maxSize,
+            createdCount.get(), destroyedCount.get(), timeoutCount.get(), leakCount.get(),
+            statementHits.get(), statementMisses.get(), statementEvictions.get(),
+            maxWaiting, rejectedCount.get(), waitTimes.percentileMs(50), waitTimes.percentileMs(95),
+            waitTimes.percentileMs(99));
+    }
+
+    public static class Stats {
+        public final int total;
+        public final int active;
+        public final int idle;
+        public final int waiting;
+        public final int maxSize;
+        public final long created;
+        public final long destroyed;
+        public final long timeouts;
+        public final long leaks;
+        public final long statementHits;
+        public final long statementMisses;
+        public final long statementEvictions;
+        public final double statementHitRate;
+        public final int maxWaiting;
+        // Borrows turned away because maxWaiting borrowers were already queued
+        public final long rejected;
+        // Time borrow() spent waiting for a permit, over the pool's lifetime
+        public final double waitP50Ms;
+        public final double waitP95Ms;
+        public final double waitP99Ms;
+
+        public Stats(int total, int active, int idle, int waiting, int maxSize,
+                     long created, long destroyed, long timeouts, long leaks,
+                     long statementHits, long statementMisses, long statementEvictions,
+                     int maxWaiting, long rejected, double waitP50Ms, double waitP95Ms, double waitP99Ms) {
+            this.total = total;
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.maxSize = maxSize;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.timeouts = timeouts;
+            this.leaks = leaks;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.statementEvictions = statementEvictions;
+            long lookups = statementHits + statementMisses;
+            this.statementHitRate = lookups == 0 ? 0.0 : (double) statementHits / lookups;
+            this.maxWaiting = maxWaiting;
+            this.rejected = rejected;
+            this.waitP50Ms = waitP50Ms;
+            this.waitP95Ms = waitP95Ms;
+            this.waitP99Ms = waitP99Ms;
+        }
+    }
+
+    /**
+     * A physical connection plus the bookkeeping the pool needs for it
+     */
+    private class PooledConnection {
+        final Connection physical;
+        final List<Statement> openStatements = new ArrayList<>();
+        final StatementCache statementCache;
+        volatile long lastUsedAt = System.currentTimeMillis();
+        volatile long checkedOutAt;
+        volatile String ownerThread;
+        volatile Throwable checkoutTrace;
+        volatile boolean leakReported;
+        volatile boolean broken;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = statementCacheSize > 0
+                ? new StatementCache(physical, statementCacheSize, statementHits, statementMisses, statementEvictions)
+                : null;
+        }
+
+        void checkout() {
+            checkedOutAt = System.currentTimeMillis();
+            ownerThread = Thread.currentThread().getName();
+            checkoutTrace = leakThresholdMs > 0 ? new Throwable("Connection checked out here") : null;
+            leakReported = false;
+        }
+
+        Connection newProxy(Runnable onReturn) {
+            return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new Handler(this, onReturn));
+        }
+
+        void closeOpenStatements() {
+            for (Statement stmt : openStatements) {
+                try {
+                    stmt.close();
+                } catch (SQLException ignore) {}
+            }
+            openStatements.clear();
+        }
+    }
+
+    /**
+     * Routes calls on the proxy to the physical connection until the borrower closes it
+     */
+    private class Handler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final Runnable onReturn;
+        private boolean closed;
+
+        Handler(PooledConnection pooled, Runnable onReturn) {
+            this.pooled = pooled;
+            this.onReturn = onReturn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            switch (methodName) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                        if (onReturn != null) {
+                            onReturn.run();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + name + "]" + (closed ? " (returned)" : "");
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try {
+                if ("prepareStatement".equals(methodName) && pooled.statementCache != null && isCacheable(method)) {
+                    int keys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                    PreparedStatement cached = pooled.statementCache.prepare((String) args[0], keys);
+                    if (cached != null) {
+                        return cached;
+                    }
+                }
+                Object result = method.invoke(pooled.physical, args);
+                if (result instanceof Statement) {
+                    pooled.openStatements.add((Statement) result);
+                }
+                return result;
+            } catch (SQLException e) {
+                markBrokenIfDisconnected(e);
+                throw e;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    markBrokenIfDisconnected((SQLException) cause);
+                }
+                throw cause;
+            }
+        }
+
+        private void markBrokenIfDisconnected(SQLException e) {
+            String state = e.getSQLState();
+            // SQLState class 08 means the connection itself is gone
+            if (state != null && state.startsWith("08")) {
+                pooled.broken = true;
+            }
+        }
+
+        /**
+         * Only plain prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) are cached;
+         * cursor-type and column-index variants go straight to the driver
+         */
+        private boolean isCacheable(Method method) {
+            Class<?>[] types = method.getParameterTypes();
+            return types.length == 1 || (types.length == 2 && types[1] == int.class);
+        }
+    }
+}
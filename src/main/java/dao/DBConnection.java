@@ -5,11 +5,23 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import util.CircuitBreaker;
+import util.EnvironmentConfig;
 
 /**
  * Database Connection Manager for MySQL Hospital Management System
- * Provides connection pooling, retry logic, and connection validation
+ * Provides connection pooling, a circuit breaker with background reconnect,
+ * read replica routing and connection validation.
+ * Connections are borrowed from a bounded pool; DAOs close them as usual
+ * and the pool takes them back.
  */
 public class DBConnection {
     // Database Configuration (supports environment overrides)
@@ -20,111 +32,271 @@ public class DBConnection {
     private static final String DB_PASSWORD = System.getenv().getOrDefault("HOSPITAL_DB_PASSWORD", "Hustler,14");
     private static final String DB_URL = "jdbc:mysql://" + DB_HOST + ":" + DB_PORT + "/" + DB_NAME + "?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
     
-    // Connection settings
-    private static final int MAX_RETRY_ATTEMPTS = 3;
-    private static final int RETRY_DELAY_MS = 2000;
+    // Connection settings (supports environment overrides)
+    private static final int CONNECT_TIMEOUT_MS = Integer.parseInt(System.getenv().getOrDefault("HOSPITAL_DB_CONNECT_TIMEOUT_MS", "5000"));
+    private static final int BREAKER_FAILURE_THRESHOLD = Integer.parseInt(System.getenv().getOrDefault("HOSPITAL_DB_BREAKER_FAILURE_THRESHOLD", "3"));
+    private static final long BREAKER_BASE_BACKOFF_MS = Long.parseLong(System.getenv().getOrDefault("HOSPITAL_DB_BREAKER_BASE_BACKOFF_MS", "1000"));
+    private static final long BREAKER_MAX_BACKOFF_MS = Long.parseLong(System.getenv().getOrDefault("HOSPITAL_DB_BREAKER_MAX_BACKOFF_MS", "60000"));
     
-    private static Connection connection;
+    // Read replicas (supports environment overrides): comma-separated host:port or JDBC URLs, none by default
+    private static final String REPLICAS = System.getenv().getOrDefault("HOSPITAL_DB_REPLICAS", "");
+    private static final ReplicaRouter.Strategy REPLICA_STRATEGY = EnvironmentConfig.getEnumConfig(
+        "HOSPITAL_DB_REPLICA_STRATEGY", ReplicaRouter.Strategy.class, ReplicaRouter.Strategy.ROUND_ROBIN);
+    private static final long REPLICA_MAX_LAG_S = Long.parseLong(System.getenv().getOrDefault("HOSPITAL_DB_REPLICA_MAX_LAG_S", "5"));
+    private static final long REPLICA_CHECK_INTERVAL_MS = Long.parseLong(System.getenv().getOrDefault("HOSPITAL_DB_REPLICA_CHECK_INTERVAL_MS", "10000"));
+    // Covers a write that runs up to its timeout plus the replica lag allowed
+    private static final long READ_YOUR_WRITES_MS = Long.parseLong(System.getenv().getOrDefault("HOSPITAL_DB_READ_YOUR_WRITES_MS", "10000"));
+    
+    // Settings shared by all pools (supports environment overrides); sizes and timeouts are per Bulkhead
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.parseLong(System.getenv().getOrDefault("HOSPITAL_DB_POOL_IDLE_TIMEOUT_MS", "600000"));
+    private static final int STATEMENT_CACHE_SIZE = Integer.parseInt(System.getenv().getOrDefault("HOSPITAL_DB_STATEMENT_CACHE_SIZE", "64"));
+    private static final boolean SERVER_PREPARED_STATEMENTS = Boolean.parseBoolean(System.getenv().getOrDefault("HOSPITAL_DB_SERVER_PREPARED_STATEMENTS", "true"));
+    private static final int BATCH_SIZE = Integer.parseInt(System.getenv().getOrDefault("HOSPITAL_DB_BATCH_SIZE", "1000"));
+    
+    private static final Map<Bulkhead, ConnectionPool> pools = new ConcurrentHashMap<>();
+    private static volatile ReplicaRouter replicaRouter;
+    private static final CircuitBreaker breaker = new CircuitBreaker("MySQL", BREAKER_FAILURE_THRESHOLD,
+        BREAKER_BASE_BACKOFF_MS, BREAKER_MAX_BACKOFF_MS, DBConnection::probeDatabase);
 
     /**
-     * Establishes a connection to the MySQL database with retry logic
+     * Borrows a connection from the interactive pool. Closing the returned connection
+     * hands it back to the pool instead of disconnecting.
      * @return Connection object or null if connection fails
+     * @throws DatabaseUnavailableException at once, without touching the network, while
+     *         the circuit breaker is open
      */
     public static Connection getConnection() {
-        try {
-            // Check if existing connection is still valid
-            if (connection != null && !connection.isClosed()) {
-                return connection;
+        return getConnection(Bulkhead.INTERACTIVE);
+    }
+
+    /**
+     * Borrows a connection for a read-only query from a healthy replica when replicas are
+     * configured, otherwise (or right after a write) from the primary
+     * @return Connection object or null if connection fails
+     * @throws DatabaseUnavailableException if the read falls back to the primary while its breaker is open
+     */
+    public static Connection getReadConnection() {
+        return getReadConnection(Bulkhead.INTERACTIVE);
+    }
+
+    public static Connection getReadConnection(Bulkhead bulkhead) {
+        ReplicaRouter router = getReplicaRouter();
+        ReplicaRouter.Replica replica = router != null ? router.choose() : null;
+        if (replica != null) {
+            try {
+                return router.getPool(replica, bulkhead).borrow();
+            } catch (SQLTransientConnectionException | SQLTimeoutException e) {
+                // The pool is saturated or timed out waiting for a free connection: the replica is busy, not down
+                router.markBusy(replica);
+            } catch (SQLException e) {
+                router.markFailed(replica, e);
             }
-            
-            // Attempt to create new connection with retry logic
-            connection = createConnection();
-            return connection;
-            
+        }
+        return getConnection(bulkhead);
+    }
+
+    /**
+     * Borrows a primary connection for a write. Reads stay on the primary while it is
+     * checked out and for a short while after it is returned, once the write has committed,
+     * so they see it.
+     */
+    public static Connection getWriteConnection() {
+        return getWriteConnection(Bulkhead.INTERACTIVE);
+    }
+
+    public static Connection getWriteConnection(Bulkhead bulkhead) {
+        ReplicaRouter router = getReplicaRouter();
+        if (router == null) {
+            return getConnection(bulkhead);
+        }
+        router.markWrite();
+        return borrowPrimary(bulkhead, router::markWrite);
+    }
+
+    /**
+     * Borrows a connection to the primary from the given bulkhead's pool
+     * @return Connection object or null if connection fails or the bulkhead is saturated
+     * @throws DatabaseUnavailableException while the circuit breaker is open
+     */
+    public static Connection getConnection(Bulkhead bulkhead) {
+        return borrowPrimary(bulkhead, null);
+    }
+
+    private static Connection borrowPrimary(Bulkhead bulkhead, Runnable onReturn) {
+        if (!breaker.allowRequest()) {
+            CircuitBreaker.Stats stats = breaker.getStats();
+            throw new DatabaseUnavailableException("Database unavailable: " + stats.lastError, stats.nextProbeInMs);
+        }
+        try {
+            return getPool(bulkhead).borrow(onReturn);
         } catch (SQLException e) {
-            System.err.println("Error checking connection status: " + e.getMessage());
+            System.err.println("Error obtaining database connection: " + e.getMessage());
             return null;
         }
     }
 
     /**
-     * Creates a new database connection with retry logic and optimized settings
-     * @return Connection object
-     * @throws SQLException if connection fails after all retry attempts
+     * Lazily creates the bulkhead's pool on first use
      */
-    private static Connection createConnection() throws SQLException {
-        int attempts = 0;
-        SQLException lastException = null;
-        
-        while (attempts < MAX_RETRY_ATTEMPTS) {
-            try {
-                // Load MySQL JDBC Driver
-                Class.forName("com.mysql.cj.jdbc.Driver");
-                
-                // Configure connection properties for optimization
-                Properties props = new Properties();
-                props.setProperty("user", DB_USER);
-                props.setProperty("password", DB_PASSWORD);
-                props.setProperty("useSSL", "false");
-                props.setProperty("serverTimezone", "UTC");
-                props.setProperty("autoReconnect", "true");
-                props.setProperty("useUnicode", "true");
-                props.setProperty("characterEncoding", "UTF-8");
-                
-                // Establish connection
-                Connection conn = DriverManager.getConnection(DB_URL, props);
-                
-                System.out.println("✓ MySQL connection established");
-                System.out.println("  - URL: " + DB_URL);
-                System.out.println("  - User: " + DB_USER);
-                
-                return conn;
-                
-            } catch (ClassNotFoundException e) {
-                System.err.println("✗ MySQL JDBC Driver not found!");
-                System.err.println("  Please ensure mysql-connector-j dependency is in pom.xml");
-                throw new SQLException("JDBC Driver not found", e);
-                
-            } catch (SQLException e) {
-                lastException = e;
-                attempts++;
-                
-                System.err.println("✗ Connection attempt " + attempts + " failed: " + e.getMessage());
-                
-                if (attempts < MAX_RETRY_ATTEMPTS) {
-                    System.out.println("  Retrying in " + RETRY_DELAY_MS + "ms...");
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new SQLException("Connection retry interrupted", ie);
+    private static ConnectionPool getPool(Bulkhead bulkhead) {
+        ConnectionPool current = pools.get(bulkhead);
+        if (current == null) {
+            synchronized (DBConnection.class) {
+                current = pools.computeIfAbsent(bulkhead, b -> new ConnectionPool(b.getPoolName(),
+                    DBConnection::createConnection, b.minIdle, b.maxSize, b.checkoutTimeoutMs,
+                    POOL_IDLE_TIMEOUT_MS, b.leakThresholdMs, STATEMENT_CACHE_SIZE, b.maxWaiting));
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Lazily sets up replica routing on first use
+     * @return Router, or null when no replicas are configured
+     */
+    private static ReplicaRouter getReplicaRouter() {
+        if (REPLICAS.isBlank()) {
+            return null;
+        }
+        ReplicaRouter current = replicaRouter;
+        if (current == null) {
+            synchronized (DBConnection.class) {
+                current = replicaRouter;
+                if (current == null) {
+                    List<ReplicaRouter.Replica> replicas = new ArrayList<>();
+                    for (String entry : REPLICAS.split(",")) {
+                        String address = entry.trim();
+                        if (!address.isEmpty()) {
+                            String url = address.startsWith("jdbc:") ? address
+                                : "jdbc:mysql://" + address + "/" + DB_NAME + "?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
+                            replicas.add(new ReplicaRouter.Replica("replica" + (replicas.size() + 1), url));
+                        }
                     }
+                    current = new ReplicaRouter(replicas, REPLICA_STRATEGY, READ_YOUR_WRITES_MS, REPLICA_MAX_LAG_S,
+                        REPLICA_CHECK_INTERVAL_MS, (replica, b) -> new ConnectionPool(replica.name + "-" + b.getPoolName(),
+                            () -> openPhysicalConnection(replica.url), 0, b.maxSize, b.checkoutTimeoutMs,
+                            POOL_IDLE_TIMEOUT_MS, b.leakThresholdMs, STATEMENT_CACHE_SIZE, b.maxWaiting));
+                    System.out.println("✓ Routing reads to " + replicas.size() + " replica(s), " + REPLICA_STRATEGY);
+                    replicaRouter = current;
                 }
             }
         }
-        
-        System.err.println("\n✗ Failed to connect to MySQL after " + MAX_RETRY_ATTEMPTS + " attempts");
-        System.err.println("  Please check:");
-        System.err.println("  1. MySQL server is running");
-        System.err.println("  2. Database '" + DB_NAME + "' exists and schema applied");
-        System.err.println("  3. Username and password are correct");
-        System.err.println("  4. MySQL is listening on " + DB_HOST + ":" + DB_PORT);
-        
-        throw lastException;
+        return current;
+    }
+
+    /**
+     * Opens a physical connection for the pool. A single attempt: retrying is left to the
+     * circuit breaker's background probe, so no caller thread sleeps waiting for MySQL.
+     * @return Connection object
+     * @throws SQLException if the connection fails or the breaker is not closed
+     */
+    private static Connection createConnection() throws SQLException {
+        if (breaker.getState() != CircuitBreaker.State.CLOSED) {
+            // Keeps pool housekeeping from dialing a database the probe already knows is down
+            throw new SQLTransientConnectionException("Database unavailable, reconnecting in the background");
+        }
+        try {
+            Connection conn = openPhysicalConnection(DB_URL);
+            breaker.recordSuccess();
+            return conn;
+        } catch (SQLException e) {
+            System.err.println("✗ Connection attempt failed: " + e.getMessage());
+            breaker.recordFailure(e);
+            if (breaker.getState() != CircuitBreaker.State.CLOSED) {
+                System.err.println("  Please check:");
+                System.err.println("  1. MySQL server is running");
+                System.err.println("  2. Database '" + DB_NAME + "' exists and schema applied");
+                System.err.println("  3. Username and password are correct");
+                System.err.println("  4. MySQL is listening on " + DB_HOST + ":" + DB_PORT);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Connects to the MySQL server at the URL, primary or replica, with optimized settings
+     * @return Connection object
+     * @throws SQLException if the connection fails
+     */
+    private static Connection openPhysicalConnection(String url) throws SQLException {
+        try {
+            // Load MySQL JDBC Driver
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            System.err.println("✗ MySQL JDBC Driver not found!");
+            System.err.println("  Please ensure mysql-connector-j dependency is in pom.xml");
+            throw new SQLException("JDBC Driver not found", e);
+        }
+
+        // Configure connection properties for optimization
+        Properties props = new Properties();
+        props.setProperty("user", DB_USER);
+        props.setProperty("password", DB_PASSWORD);
+        props.setProperty("useSSL", "false");
+        props.setProperty("serverTimezone", "UTC");
+        props.setProperty("autoReconnect", "true");
+        props.setProperty("useUnicode", "true");
+        props.setProperty("characterEncoding", "UTF-8");
+        // Bounds how long an unreachable host can hold up a single attempt
+        props.setProperty("connectTimeout", String.valueOf(CONNECT_TIMEOUT_MS));
+
+        // Prepare on the server so cached statements skip re-parsing;
+        // the pool caches statements itself, so the driver cache stays off
+        props.setProperty("useServerPrepStmts", String.valueOf(SERVER_PREPARED_STATEMENTS));
+        props.setProperty("cachePrepStmts", "false");
+        // Lets the pool reset autocommit/read-only without extra round trips
+        props.setProperty("useLocalSessionState", "true");
+        // Sends JDBC batches as multi-row INSERTs instead of one round trip per row
+        props.setProperty("rewriteBatchedStatements", "true");
+
+        // Establish connection
+        Connection conn = DriverManager.getConnection(url, props);
+
+        System.out.println("✓ MySQL connection established");
+        System.out.println("  - URL: " + url);
+        System.out.println("  - User: " + DB_USER);
+
+        return conn;
+    }
+
+    /**
+     * Reconnect probe run by the breaker while it is open
+     */
+    private static void probeDatabase() throws SQLException {
+        try (Connection conn = openPhysicalConnection(DB_URL)) {
+            if (!conn.isValid(5)) {
+                throw new SQLException("Connection is not valid");
+            }
+        }
     }
 
     /**
-     * Closes the database connection gracefully
+     * Opens each pool's minimum idle connections so the first queries do not wait for them
+     * @return Number of idle connections ready
+     */
+    public static int warmUp() {
+        int idle = 0;
+        for (Bulkhead bulkhead : Bulkhead.values()) {
+            idle += getPool(bulkhead).prefill();
+        }
+        return idle;
+    }
+
+    /**
+     * Shuts down the connection pools, closing all idle connections
      */
     public static void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                connection = null;
-                System.out.println("✓ Database connection closed successfully!");
-            } catch (SQLException e) {
-                System.err.println("✗ Failed to close database connection: " + e.getMessage());
-                e.printStackTrace();
+        synchronized (DBConnection.class) {
+            if (!pools.isEmpty()) {
+                for (ConnectionPool pool : pools.values()) {
+                    pool.shutdown();
+                }
+                pools.clear();
+                if (replicaRouter != null) {
+                    replicaRouter.shutdown();
+                    replicaRouter = null;
+                }
+                System.out.println("✓ Database connection pools closed successfully!");
             }
         }
     }
@@ -134,8 +306,7 @@ public class DBConnection {
      * @return true if connection is successful and valid, false otherwise
      */
     public static boolean testConnection() {
-        try {
-            Connection conn = getConnection();
+        try (Connection conn = getConnection()) {
             if (conn != null && !conn.isClosed()) {
                 // Execute a simple query to verify connection
                 Statement stmt = conn.createStatement();
@@ -146,7 +317,7 @@ public class DBConnection {
                 return isValid;
             }
             return false;
-        } catch (SQLException e) {
+        } catch (SQLException | DatabaseUnavailableException e) {
             System.err.println("✗ Database connection test failed: " + e.getMessage());
             return false;
         }
@@ -169,14 +340,69 @@ public class DBConnection {
     }
 
     /**
-     * Validates if connection is active
-     * @return true if connection is active and valid
+     * Validates if the pool can hand out a live connection
+     * @return true if a pooled connection is active and valid
      */
     public static boolean isConnectionActive() {
-        try {
-            return connection != null && !connection.isClosed() && connection.isValid(5);
-        } catch (SQLException e) {
+        try (Connection conn = getConnection()) {
+            return conn != null && conn.isValid(5);
+        } catch (SQLException | DatabaseUnavailableException e) {
             return false;
         }
     }
+
+    /**
+     * Gets the default number of rows sent per batch by the bulk insert methods
+     * @return Batch size
+     */
+    public static int getBatchSize() {
+        return BATCH_SIZE;
+    }
+
+    /**
+     * Gets active, idle and waiting counts for the interactive connection pool
+     * @return Pool statistics snapshot
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return getPoolStats(Bulkhead.INTERACTIVE);
+    }
+
+    /**
+     * Gets the bulkhead's pool statistics, including queue depth and wait-time percentiles
+     * @return Pool statistics snapshot
+     */
+    public static ConnectionPool.Stats getPoolStats(Bulkhead bulkhead) {
+        return getPool(bulkhead).stats();
+    }
+
+    /**
+     * Gets read routing counters and the health and lag of each replica
+     * @return Routing statistics, or null when no replicas are configured
+     */
+    public static ReplicaRouter.Stats getReplicaStats() {
+        ReplicaRouter router = getReplicaRouter();
+        return router != null ? router.getStats() : null;
+    }
+
+    /**
+     * Whether DAO calls currently go through, i.e. the circuit breaker is closed
+     */
+    public static boolean isAvailable() {
+        return breaker.getState() == CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * Gets the circuit breaker state, failure counts and time to the next reconnect attempt
+     * @return Breaker statistics snapshot
+     */
+    public static CircuitBreaker.Stats getBreakerStats() {
+        return breaker.getStats();
+    }
+
+    /**
+     * Notifies the listener whenever the circuit breaker changes state
+     */
+    public static void addBreakerListener(Consumer<CircuitBreaker.Stats> listener) {
+        breaker.addListener(listener);
+    }
 }
@@ -0,0 +1,20 @@
+package dao;
+
+/**
+ * Thrown by the DAO lookups behind the service caches when the query fails, where most DAO
+ * methods return null or an empty list instead. A cache must not remember a failed lookup as
+ * "no such row", so these lookups keep the two apart. For the same reason they read the primary:
+ * a lagging replica would report a row another workstation just created as missing.
+ */
+public class DataAccessException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DataAccessException(String message) {
+        super(message);
+    }
+
+    public DataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,25 @@
+package dao;
+
+/**
+ * Thrown by {@link DBConnection#getConnection()} while the database circuit breaker is open,
+ * so callers fail at once instead of waiting for connection timeouts. Unchecked, so it passes
+ * through the DAOs (which only handle SQLException) to the code that reports errors.
+ */
+public class DatabaseUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryInMs;
+
+    public DatabaseUnavailableException(String message, long retryInMs) {
+        super(message);
+        this.retryInMs = retryInMs;
+    }
+
+    /**
+     * Time until the next reconnect attempt, 0 if one is running
+     */
+    public long getRetryInMs() {
+        return retryInMs;
+    }
+}
@@ -12,13 +12,21 @@ public class DepartmentDAO {
      */
     public static boolean addDepartment(Department department) {
         String query = "INSERT INTO Department (name, location) VALUES (?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setString(1, department.getName());
             stmt.setString(2, department.getLocation());
             
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    department.setDepartmentId(keys.getInt(1));
+                }
+            }
+            return true;
         } catch (SQLException e) {
             System.err.println("Error adding department: " + e.getMessage());
             return false;
@@ -27,24 +35,30 @@ public class DepartmentDAO {
     
     /**
      * Retrieves a department by ID
+     * @return The department, or null if there is no such department
+     * @throws DataAccessException if the query fails
      */
     public static Department getDepartmentById(int departmentId) {
         String query = "SELECT * FROM Department WHERE department_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setInt(1, departmentId);
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return new Department(
-                    rs.getInt("department_id"),
-                    rs.getString("name"),
-                    rs.getString("location")
-                );
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) {
+                throw new DataAccessException("No database connection to retrieve department");
+            }
+            try (PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
+                
+                stmt.setInt(1, departmentId);
+                ResultSet rs = stmt.executeQuery();
+                
+                if (rs.next()) {
+                    return new Department(
+                        rs.getInt("department_id"),
+                        rs.getString("name"),
+                        rs.getString("location")
+                    );
+                }
             }
         } catch (SQLException e) {
-            System.err.println("Error retrieving department: " + e.getMessage());
+            throw new DataAccessException("Error retrieving department: " + e.getMessage(), e);
         }
         return null;
     }
@@ -56,8 +70,8 @@ public class DepartmentDAO {
         List<Department> departments = new ArrayList<>();
         String query = "SELECT * FROM Department";
         
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
+        try (Connection conn = DBConnection.getReadConnection();
+             Statement stmt = QueryBudget.LIST.create(conn);
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
@@ -78,8 +92,8 @@ public class DepartmentDAO {
      */
     public static boolean updateDepartment(Department department) {
         String query = "UPDATE Department SET name = ?, location = ? WHERE department_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setString(1, department.getName());
             stmt.setString(2, department.getLocation());
@@ -97,8 +111,8 @@ public class DepartmentDAO {
      */
     public static boolean deleteDepartment(int departmentId) {
         String query = "DELETE FROM Department WHERE department_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, departmentId);
             return stmt.executeUpdate() > 0;
@@ -1,8 +1,12 @@
 package dao;
 
 import model.Doctor;
+import model.DoctorSummary;
+import util.CancellationToken;
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class DoctorDAO {
@@ -12,8 +16,8 @@ public class DoctorDAO {
      */
     public static boolean addDoctor(Doctor doctor) {
         String query = "INSERT INTO Doctor (first_name, last_name, specialization, phone, department_id) VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setString(1, doctor.getFirstName());
             stmt.setString(2, doctor.getLastName());
@@ -21,7 +25,15 @@ public class DoctorDAO {
             stmt.setString(4, doctor.getPhone());
             stmt.setInt(5, doctor.getDepartmentId());
             
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    doctor.setDoctorId(keys.getInt(1));
+                }
+            }
+            return true;
         } catch (SQLException e) {
             System.err.println("Error adding doctor: " + e.getMessage());
             return false;
@@ -30,15 +42,16 @@ public class DoctorDAO {
     
     /**
      * Retrieves a doctor by ID
+     * @return The doctor, or null if there is no such doctor
+     * @throws DataAccessException if the query fails
      */
     public static Doctor getDoctorById(int doctorId) {
         String query = "SELECT * FROM Doctor WHERE doctor_id = ?";
         Connection conn = DBConnection.getConnection();
         if (conn == null) {
-            System.err.println("Warning: Database connection is null. Returning null doctor.");
-            return null;
+            throw new DataAccessException("No database connection to retrieve doctor");
         }
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, doctorId);
             ResultSet rs = stmt.executeQuery();
@@ -54,7 +67,7 @@ public class DoctorDAO {
                 );
             }
         } catch (SQLException e) {
-            System.err.println("Error retrieving doctor: " + e.getMessage());
+            throw new DataAccessException("Error retrieving doctor: " + e.getMessage(), e);
         } finally {
             try { conn.close(); } catch (SQLException ignore) {}
         }
@@ -68,23 +81,16 @@ public class DoctorDAO {
         List<Doctor> doctors = new ArrayList<>();
         String query = "SELECT * FROM Doctor";
         
-        Connection conn = DBConnection.getConnection();
+        Connection conn = DBConnection.getReadConnection();
         if (conn == null) {
             System.err.println("Warning: Database connection is null. Returning empty doctor list.");
             return doctors;
         }
-        try (Statement stmt = conn.createStatement();
+        try (Statement stmt = QueryBudget.LIST.create(conn);
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
-                doctors.add(new Doctor(
-                    rs.getInt("doctor_id"),
-                    rs.getString("first_name"),
-                    rs.getString("last_name"),
-                    rs.getString("specialization"),
-                    rs.getString("phone"),
-                    rs.getInt("department_id")
-                ));
+                doctors.add(mapDoctor(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving all doctors: " + e.getMessage());
@@ -94,6 +100,52 @@ public class DoctorDAO {
         return doctors;
     }
     
+    /**
+     * Retrieves the doctors with the given IDs in as few queries as possible; unknown IDs are skipped
+     * @throws DataAccessException if a query fails
+     */
+    public static List<Doctor> getDoctorsByIds(Collection<Integer> doctorIds) {
+        return IdLookup.fetch("SELECT * FROM Doctor WHERE doctor_id IN ", "doctors", doctorIds, DoctorDAO::mapDoctor);
+    }
+    
+    /**
+     * Like {@link #getDoctorsByIds(Collection)}, but cancelling the token aborts the running query
+     * @return Doctors found before cancellation
+     * @throws DataAccessException if a query fails other than by cancellation
+     */
+    public static List<Doctor> getDoctorsByIds(Collection<Integer> doctorIds, CancellationToken token) {
+        return IdLookup.fetch("SELECT * FROM Doctor WHERE doctor_id IN ", "doctors", doctorIds, DoctorDAO::mapDoctor, token);
+    }
+    
+    /**
+     * Retrieves ID, name and department of all doctors, for combo boxes and pickers
+     */
+    public static List<DoctorSummary> getAllDoctorSummaries() {
+        List<DoctorSummary> summaries = new ArrayList<>();
+        String query = "SELECT doctor_id, first_name, last_name, department_id FROM Doctor ORDER BY doctor_id";
+        
+        try (Connection conn = DBConnection.getReadConnection()) {
+            if (conn == null) {
+                System.err.println("Warning: Database connection is null. Returning empty doctor list.");
+                return summaries;
+            }
+            try (Statement stmt = QueryBudget.LIST.create(conn);
+                 ResultSet rs = stmt.executeQuery(query)) {
+                while (rs.next()) {
+                    summaries.add(new DoctorSummary(
+                        rs.getInt("doctor_id"),
+                        rs.getString("first_name"),
+                        rs.getString("last_name"),
+                        rs.getInt("department_id")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving doctor summaries: " + e.getMessage());
+        }
+        return summaries;
+    }
+    
     /**
      * Retrieves doctors by department
      */
@@ -101,21 +153,14 @@ public class DoctorDAO {
         List<Doctor> doctors = new ArrayList<>();
         String query = "SELECT * FROM Doctor WHERE department_id = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, departmentId);
             ResultSet rs = stmt.executeQuery();
             
             while (rs.next()) {
-                doctors.add(new Doctor(
-                    rs.getInt("doctor_id"),
-                    rs.getString("first_name"),
-                    rs.getString("last_name"),
-                    rs.getString("specialization"),
-                    rs.getString("phone"),
-                    rs.getInt("department_id")
-                ));
+                doctors.add(mapDoctor(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving doctors by department: " + e.getMessage());
@@ -123,13 +168,22 @@ public class DoctorDAO {
         return doctors;
     }
     
+    /**
+     * Retrieves the doctors inserted, updated or deleted since the given time
+     * @param since Sync point of the previous call, or null for every row
+     * @return Changes, or null if the query failed
+     */
+    public static ChangeSet<Doctor> getChangedSince(Instant since) {
+        return ChangeQuery.fetch("Doctor", "doctor_id", since, DoctorDAO::mapDoctor);
+    }
+    
     /**
      * Updates a doctor
      */
     public static boolean updateDoctor(Doctor doctor) {
         String query = "UPDATE Doctor SET first_name = ?, last_name = ?, specialization = ?, phone = ?, department_id = ? WHERE doctor_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setString(1, doctor.getFirstName());
             stmt.setString(2, doctor.getLastName());
@@ -150,8 +204,8 @@ public class DoctorDAO {
      */
     public static boolean deleteDoctor(int doctorId) {
         String query = "DELETE FROM Doctor WHERE doctor_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, doctorId);
             return stmt.executeUpdate() > 0;
@@ -160,4 +214,15 @@ public class DoctorDAO {
             return false;
         }
     }
+    
+    private static Doctor mapDoctor(ResultSet rs) throws SQLException {
+        return new Doctor(
+            rs.getInt("doctor_id"),
+            rs.getString("first_name"),
+            rs.getString("last_name"),
+            rs.getString("specialization"),
+            rs.getString("phone"),
+            rs.getInt("department_id")
+        );
+    }
 }
@@ -0,0 +1,94 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import util.CancellationToken;
+
+/**
+ * Loads rows for a set of IDs with chunked "WHERE id IN (...)" queries,
+ * replacing one query per ID. Reads the primary, like the other lookups behind the service caches.
+ */
+class IdLookup {
+
+    private static final int MAX_CHUNK_SIZE = 500;
+    private static final int MIN_CHUNK_SIZE = 8;
+
+    private IdLookup() {
+    }
+
+    /**
+     * @param query SELECT ending in "IN " to which the placeholder list is appended
+     */
+    static <T> List<T> fetch(String query, String label, Collection<Integer> ids, RowMapper<T> mapper) {
+        return fetch(query, label, ids, mapper, null);
+    }
+
+    /**
+     * @param token Cancels the running chunk query with Statement.cancel; null if not cancellable
+     * @return Rows found, or those found before the query was cancelled
+     * @throws DataAccessException if a query fails other than by cancellation
+     */
+    static <T> List<T> fetch(String query, String label, Collection<Integer> ids, RowMapper<T> mapper,
+                             CancellationToken token) {
+        List<T> results = new ArrayList<>();
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinct.removeIf(id -> id == null || id <= 0);
+        if (distinct.isEmpty()) {
+            return results;
+        }
+
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) {
+                throw new DataAccessException("No database connection to retrieve " + label + " by ID");
+            }
+            for (int start = 0; start < distinct.size() && !QueryBudget.isCancelled(token); start += MAX_CHUNK_SIZE) {
+                List<Integer> chunk = distinct.subList(start, Math.min(start + MAX_CHUNK_SIZE, distinct.size()));
+                // Round the placeholder count up to a power of two (padding with a repeated ID)
+                // so a few statement shapes cover every chunk size and stay in the statement cache
+                int placeholders = placeholderCount(chunk.size());
+                try (PreparedStatement stmt = QueryBudget.LIST.prepare(conn, query + placeholderList(placeholders))) {
+                    CancellationToken.Registration cancel = QueryBudget.cancelOn(token, stmt);
+                    try {
+                        for (int i = 0; i < placeholders; i++) {
+                            stmt.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                        }
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                results.add(mapper.map(rs));
+                            }
+                        }
+                    } finally {
+                        cancel.close();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            if (!QueryBudget.isCancelled(token)) {
+                throw new DataAccessException("Error retrieving " + label + " by ID: " + e.getMessage(), e);
+            }
+        }
+        return results;
+    }
+
+    private static int placeholderCount(int size) {
+        int count = MIN_CHUNK_SIZE;
+        while (count < size) {
+            count <<= 1;
+        }
+        return Math.min(count, Math.max(size, MAX_CHUNK_SIZE));
+    }
+
+    private static String placeholderList(int count) {
+        StringBuilder sb = new StringBuilder(count * 3 + 2).append('(');
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.append(')').toString();
+    }
+}
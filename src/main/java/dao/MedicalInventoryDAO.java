@@ -4,6 +4,8 @@ import model.MedicalInventory;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class MedicalInventoryDAO {
     
@@ -12,17 +14,18 @@ public class MedicalInventoryDAO {
      */
     public static boolean addInventoryItem(MedicalInventory item) {
         String query = "INSERT INTO MedicalInventory (item_name, category, quantity, unit_price, expiry_date, supplier) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, item.getItemName());
-            stmt.setString(2, item.getCategory());
-            stmt.setInt(3, item.getQuantity());
-            stmt.setDouble(4, item.getUnitPrice());
-            stmt.setDate(5, item.getExpiryDate() != null ? java.sql.Date.valueOf(item.getExpiryDate()) : null);
-            stmt.setString(6, item.getSupplier());
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return RowInsert.execute(query, item, (stmt, row) -> {
+                stmt.setString(1, row.getItemName());
+                stmt.setString(2, row.getCategory());
+                stmt.setInt(3, row.getQuantity());
+                stmt.setDouble(4, row.getUnitPrice());
+                stmt.setDate(5, row.getExpiryDate() != null ? java.sql.Date.valueOf(row.getExpiryDate()) : null);
+                stmt.setString(6, row.getSupplier());
+            }, "MedicalInventory", "inventory_id", "last_updated", (row, id, lastUpdated) -> {
+                row.setInventoryId(id);
+                row.setLastUpdated(lastUpdated);
+            });
         } catch (SQLException e) {
             System.err.println("Error adding inventory item: " + e.getMessage());
             return false;
@@ -34,8 +37,8 @@ public class MedicalInventoryDAO {
      */
     public static MedicalInventory getInventoryItemById(int inventoryId) {
         String query = "SELECT * FROM MedicalInventory WHERE inventory_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, inventoryId);
             ResultSet rs = stmt.executeQuery();
@@ -66,21 +69,12 @@ public class MedicalInventoryDAO {
         List<MedicalInventory> items = new ArrayList<>();
         String query = "SELECT * FROM MedicalInventory";
         
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
+        try (Connection conn = DBConnection.getReadConnection();
+             Statement stmt = QueryBudget.LIST.create(conn);
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
-                MedicalInventory item = new MedicalInventory(
-                    rs.getInt("inventory_id"),
-                    rs.getString("item_name"),
-                    rs.getString("category"),
-                    rs.getInt("quantity"),
-                    rs.getDouble("unit_price"),
-                    rs.getDate("expiry_date") != null ? rs.getDate("expiry_date").toLocalDate() : null,
-                    rs.getString("supplier")
-                );
-                item.setLastUpdated(rs.getTimestamp("last_updated").toLocalDateTime());
+                MedicalInventory item = mapMedicalInventory(rs);
                 items.add(item);
             }
         } catch (SQLException e) {
@@ -89,13 +83,45 @@ public class MedicalInventoryDAO {
         return items;
     }
     
+    /**
+     * Streams all inventory items to the action one row at a time, without loading the table into memory
+     * @return true if every row was delivered
+     */
+    public static boolean streamAllInventoryItems(Consumer<? super MedicalInventory> action) {
+        return ResultStream.forEach("SELECT * FROM MedicalInventory ORDER BY inventory_id", "inventory items", MedicalInventoryDAO::mapMedicalInventory, action);
+    }
+    
+    /**
+     * Streams all inventory items; the stream holds a database connection and must be closed
+     */
+    public static Stream<MedicalInventory> streamAllInventoryItems() {
+        return ResultStream.stream("SELECT * FROM MedicalInventory ORDER BY inventory_id", "inventory items", MedicalInventoryDAO::mapMedicalInventory);
+    }
+    
+    /**
+     * Retrieves one page of inventory items ordered by ID, seeking past the previous page's last ID
+     * @param afterId Last ID of the previous page, or 0 for the first page
+     */
+    public static Page<MedicalInventory> getInventoryItemPage(int afterId, int limit, SortOrder sort) {
+        String query = "SELECT * FROM MedicalInventory"
+            + (afterId > 0 ? " WHERE inventory_id " + sort.seekOperator() + " ?" : "")
+            + " ORDER BY inventory_id " + sort.keyword() + " LIMIT ?";
+        return PagedQuery.fetch(query, "MedicalInventory", limit, stmt -> {
+            if (afterId > 0) {
+                stmt.setInt(1, afterId);
+                return 2;
+            }
+            return 1;
+        }, MedicalInventoryDAO::mapMedicalInventory, null);
+    }
+    
     /**
      * Updates an inventory item
      */
     public static boolean updateInventoryItem(MedicalInventory item) {
         String query = "UPDATE MedicalInventory SET item_name = ?, category = ?, quantity = ?, unit_price = ?, expiry_date = ?, supplier = ? WHERE inventory_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setString(1, item.getItemName());
             stmt.setString(2, item.getCategory());
@@ -117,8 +143,8 @@ public class MedicalInventoryDAO {
      */
     public static boolean deleteInventoryItem(int inventoryId) {
         String query = "DELETE FROM MedicalInventory WHERE inventory_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, inventoryId);
             return stmt.executeUpdate() > 0;
@@ -127,4 +153,18 @@ public class MedicalInventoryDAO {
             return false;
         }
     }
+    
+    private static MedicalInventory mapMedicalInventory(ResultSet rs) throws SQLException {
+        MedicalInventory item = new MedicalInventory(
+            rs.getInt("inventory_id"),
+            rs.getString("item_name"),
+            rs.getString("category"),
+            rs.getInt("quantity"),
+            rs.getDouble("unit_price"),
+            rs.getDate("expiry_date") != null ? rs.getDate("expiry_date").toLocalDate() : null,
+            rs.getString("supplier")
+        );
+        item.setLastUpdated(rs.getTimestamp("last_updated").toLocalDateTime());
+        return item;
+    }
 }
@@ -0,0 +1,63 @@
+package dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list query.
+ * The next page is requested with the key of {@link #getLastItem()}.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final boolean hasMore;
+    private final long totalEstimate;
+
+    public Page(List<T> items, boolean hasMore, long totalEstimate) {
+        this.items = Collections.unmodifiableList(items);
+        this.hasMore = hasMore;
+        this.totalEstimate = totalEstimate;
+    }
+
+    public static <T> Page<T> empty() {
+        return new Page<>(Collections.emptyList(), false, -1);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Whether more rows exist after this page
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Approximate row count of the whole table, from InnoDB statistics (-1 if unknown)
+     */
+    public long getTotalEstimate() {
+        return totalEstimate;
+    }
+
+    public T getLastItem() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "size=" + items.size() +
+                ", hasMore=" + hasMore +
+                ", totalEstimate=" + totalEstimate +
+                '}';
+    }
+}
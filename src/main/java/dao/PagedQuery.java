@@ -0,0 +1,116 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import util.CancellationToken;
+
+/**
+ * Runs keyset-paginated queries for the get*Page DAO methods, and offset queries for get*PageAt.
+ * Fetches one row more than requested to learn whether another page exists,
+ * so no COUNT(*) over the table is needed. A failed page query throws rather than returning an
+ * empty page, which a paged table would take for the end of the list.
+ */
+class PagedQuery {
+
+    /**
+     * Binds the seek key parameters; the LIMIT parameter is bound afterwards
+     */
+    interface KeyBinder {
+        int bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    private static final String ROW_ESTIMATE_QUERY =
+        "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+
+    private PagedQuery() {
+    }
+
+    /**
+     * @param query SELECT ending in "LIMIT ?"
+     * @param table Table name used for the row count estimate
+     * @param token Aborts the page query with Statement.cancel; null if not cancellable
+     * @throws DataAccessException if there is no connection or the query fails
+     * @throws java.util.concurrent.CancellationException if the query was aborted through the token
+     */
+    static <T> Page<T> fetch(String query, String table, int limit, KeyBinder keyBinder, RowMapper<T> mapper,
+                             CancellationToken token) {
+        try (Connection conn = DBConnection.getReadConnection()) {
+            if (conn == null) {
+                throw new DataAccessException("No database connection to retrieve " + table + " page");
+            }
+            List<T> items = new ArrayList<>(limit);
+            boolean hasMore = false;
+            try (PreparedStatement stmt = QueryBudget.LIST.prepare(conn, query)) {
+                CancellationToken.Registration cancel = QueryBudget.cancelOn(token, stmt);
+                try {
+                    int index = keyBinder.bind(stmt);
+                    stmt.setInt(index, limit + 1);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            if (items.size() == limit) {
+                                hasMore = true;
+                                break;
+                            }
+                            items.add(mapper.map(rs));
+                        }
+                    }
+                } finally {
+                    cancel.close();
+                }
+            }
+            return new Page<>(items, hasMore, estimateRowCount(conn, table));
+        } catch (SQLException e) {
+            if (QueryBudget.isCancelled(token)) {
+                token.throwIfCancelled();
+            }
+            throw new DataAccessException("Error retrieving " + table + " page: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fetches the page that starts offset rows into the ordering, for jumps to a page whose
+     * predecessor is not at hand. A deferred join skips the offset rows on the ID alone and
+     * reads full rows only for the page itself.
+     * @param orderBy ORDER BY column list without direction, ending in the ID column
+     */
+    static <T> Page<T> fetchAt(String table, String idColumn, String[] orderBy, int offset, int limit,
+                               SortOrder sort, RowMapper<T> mapper, CancellationToken token) {
+        String order = orderList(orderBy, sort, "");
+        String query = "SELECT t.* FROM " + table + " t JOIN (SELECT " + idColumn + " AS page_id FROM " + table
+            + " ORDER BY " + order + " LIMIT ?, ?) k ON t." + idColumn + " = k.page_id"
+            + " ORDER BY " + orderList(orderBy, sort, "t.");
+        return fetch(query, table, limit, stmt -> {
+            stmt.setInt(1, Math.max(offset, 0));
+            return 2;
+        }, mapper, token);
+    }
+
+    private static String orderList(String[] columns, SortOrder sort, String prefix) {
+        StringBuilder sb = new StringBuilder();
+        for (String column : columns) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(prefix).append(column).append(' ').append(sort.keyword());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads the InnoDB row estimate, which is cheap compared to COUNT(*) on large tables
+     */
+    private static long estimateRowCount(Connection conn, String table) {
+        try (PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, ROW_ESTIMATE_QUERY)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+}
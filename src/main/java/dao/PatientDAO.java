@@ -5,10 +5,16 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import model.Patient;
+import model.PatientSummary;
+import util.CancellationToken;
 
 public class PatientDAO {
     
@@ -17,35 +23,60 @@ public class PatientDAO {
      */
     public static boolean addPatient(Patient patient) {
         String query = "INSERT INTO Patient (first_name, last_name, date_of_birth, gender, phone, address, blood_type) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, patient.getFirstName());
-            stmt.setString(2, patient.getLastName());
-            stmt.setDate(3, java.sql.Date.valueOf(patient.getDateOfBirth()));
-            stmt.setString(4, patient.getGender());
-            stmt.setString(5, patient.getPhone());
-            stmt.setString(6, patient.getAddress());
-            stmt.setString(7, patient.getBloodType());
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return RowInsert.execute(query, patient, PatientDAO::bindInsert, "Patient", "patient_id", "created_at",
+                (row, id, createdAt) -> {
+                    row.setPatientId(id);
+                    row.setCreatedAt(createdAt);
+                });
         } catch (SQLException e) {
             System.err.println("Error adding patient: " + e.getMessage());
             return false;
         }
     }
     
+    /**
+     * Adds patients in JDBC batches using the default batch size
+     */
+    public static BatchResult addPatients(List<Patient> patients) {
+        return addPatients(patients, DBConnection.getBatchSize());
+    }
+    
+    /**
+     * Adds patients in JDBC batches, one transaction per batch.
+     * Generated IDs are set on the inserted patients; failed rows are reported in the result.
+     */
+    public static BatchResult addPatients(List<Patient> patients, int batchSize) {
+        String query = "INSERT INTO Patient (first_name, last_name, date_of_birth, gender, phone, address, blood_type) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        return BatchInsert.execute(query, patients, batchSize, PatientDAO::bindInsert, "Patient", "patient_id", "created_at",
+            (patient, id, createdAt) -> {
+                patient.setPatientId(id);
+                patient.setCreatedAt(createdAt);
+            });
+    }
+    
+    private static void bindInsert(PreparedStatement stmt, Patient patient) throws SQLException {
+        stmt.setString(1, patient.getFirstName());
+        stmt.setString(2, patient.getLastName());
+        stmt.setDate(3, java.sql.Date.valueOf(patient.getDateOfBirth()));
+        stmt.setString(4, patient.getGender());
+        stmt.setString(5, patient.getPhone());
+        stmt.setString(6, patient.getAddress());
+        stmt.setString(7, patient.getBloodType());
+    }
+    
     /**
      * Retrieves a patient by ID
+     * @return The patient, or null if there is no such patient
+     * @throws DataAccessException if the query fails
      */
     public static Patient getPatientById(int patientId) {
         String query = "SELECT * FROM Patient WHERE patient_id = ?";
         Connection conn = DBConnection.getConnection();
         if (conn == null) {
-            System.err.println("Warning: Database connection is null. Returning null patient.");
-            return null;
+            throw new DataAccessException("No database connection to retrieve patient");
         }
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, patientId);
             ResultSet rs = stmt.executeQuery();
@@ -65,7 +96,7 @@ public class PatientDAO {
                 return patient;
             }
         } catch (SQLException e) {
-            System.err.println("Error retrieving patient: " + e.getMessage());
+            throw new DataAccessException("Error retrieving patient: " + e.getMessage(), e);
         } finally {
             try { conn.close(); } catch (SQLException ignore) {}
         }
@@ -79,48 +110,147 @@ public class PatientDAO {
         List<Patient> patients = new ArrayList<>();
         String query = "SELECT * FROM Patient";
         
-        try {
-            Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection()) {
             if (conn == null) {
                 System.err.println("Warning: Database connection is null. Returning empty patient list.");
                 return patients;
             }
-            
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            
-            while (rs.next()) {
-                Patient patient = new Patient(
-                    rs.getInt("patient_id"),
-                    rs.getString("first_name"),
-                    rs.getString("last_name"),
-                    rs.getDate("date_of_birth").toLocalDate(),
-                    rs.getString("gender"),
-                    rs.getString("phone"),
-                    rs.getString("address"),
-                    rs.getString("blood_type")
-                );
-                patient.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-                patients.add(patient);
+            try (Statement stmt = QueryBudget.LIST.create(conn);
+                 ResultSet rs = stmt.executeQuery(query)) {
+                
+                while (rs.next()) {
+                    patients.add(mapPatient(rs));
+                }
             }
-            
-            // Close resources
-            rs.close();
-            stmt.close();
-            conn.close();
         } catch (SQLException e) {
             System.err.println("Error retrieving all patients: " + e.getMessage());
         }
         return patients;
     }
     
+    /**
+     * Retrieves the patients with the given IDs in as few queries as possible; unknown IDs are skipped
+     * @throws DataAccessException if a query fails
+     */
+    public static List<Patient> getPatientsByIds(Collection<Integer> patientIds) {
+        return IdLookup.fetch("SELECT * FROM Patient WHERE patient_id IN ", "patients", patientIds, PatientDAO::mapPatient);
+    }
+    
+    /**
+     * Like {@link #getPatientsByIds(Collection)}, but cancelling the token aborts the running query
+     * @return Patients found before cancellation
+     * @throws DataAccessException if a query fails other than by cancellation
+     */
+    public static List<Patient> getPatientsByIds(Collection<Integer> patientIds, CancellationToken token) {
+        return IdLookup.fetch("SELECT * FROM Patient WHERE patient_id IN ", "patients", patientIds, PatientDAO::mapPatient, token);
+    }
+    
+    /**
+     * Retrieves the patients with the most recent appointments (or, without any, the newest patients)
+     * @param limit Maximum number of patients
+     */
+    public static List<Patient> getRecentlyActivePatients(int limit) {
+        List<Patient> patients = new ArrayList<>();
+        String query = "SELECT p.* FROM Patient p "
+            + "LEFT JOIN (SELECT patient_id, MAX(appointment_date) AS last_visit FROM Appointment GROUP BY patient_id) a "
+            + "ON a.patient_id = p.patient_id "
+            + "ORDER BY COALESCE(a.last_visit, DATE(p.created_at)) DESC, p.patient_id DESC LIMIT ?";
+        
+        try (Connection conn = DBConnection.getReadConnection()) {
+            if (conn == null) {
+                System.err.println("Warning: Database connection is null. Returning empty patient list.");
+                return patients;
+            }
+            try (PreparedStatement stmt = QueryBudget.LIST.prepare(conn, query)) {
+                stmt.setInt(1, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        patients.add(mapPatient(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving recently active patients: " + e.getMessage());
+        }
+        return patients;
+    }
+    
+    /**
+     * Retrieves ID and name of all patients, for combo boxes and pickers
+     */
+    public static List<PatientSummary> getAllPatientSummaries() {
+        List<PatientSummary> summaries = new ArrayList<>();
+        String query = "SELECT patient_id, first_name, last_name FROM Patient ORDER BY patient_id";
+        
+        try (Connection conn = DBConnection.getReadConnection()) {
+            if (conn == null) {
+                System.err.println("Warning: Database connection is null. Returning empty patient list.");
+                return summaries;
+            }
+            try (Statement stmt = QueryBudget.LIST.create(conn);
+                 ResultSet rs = stmt.executeQuery(query)) {
+                while (rs.next()) {
+                    summaries.add(new PatientSummary(
+                        rs.getInt("patient_id"),
+                        rs.getString("first_name"),
+                        rs.getString("last_name")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving patient summaries: " + e.getMessage());
+        }
+        return summaries;
+    }
+    
+    /**
+     * Streams all patients to the action one row at a time, without loading the table into memory
+     * @return true if every row was delivered
+     */
+    public static boolean streamAllPatients(Consumer<? super Patient> action) {
+        return ResultStream.forEach("SELECT * FROM Patient ORDER BY patient_id", "patients", PatientDAO::mapPatient, action);
+    }
+    
+    /**
+     * Streams all patients; the stream holds a database connection and must be closed
+     */
+    public static Stream<Patient> streamAllPatients() {
+        return ResultStream.stream("SELECT * FROM Patient ORDER BY patient_id", "patients", PatientDAO::mapPatient);
+    }
+    
+    /**
+     * Retrieves one page of patients ordered by ID, seeking past the previous page's last ID
+     * @param afterId Last ID of the previous page, or 0 for the first page
+     */
+    public static Page<Patient> getPatientPage(int afterId, int limit, SortOrder sort) {
+        String query = "SELECT * FROM Patient"
+            + (afterId > 0 ? " WHERE patient_id " + sort.seekOperator() + " ?" : "")
+            + " ORDER BY patient_id " + sort.keyword() + " LIMIT ?";
+        return PagedQuery.fetch(query, "Patient", limit, stmt -> {
+            if (afterId > 0) {
+                stmt.setInt(1, afterId);
+                return 2;
+            }
+            return 1;
+        }, PatientDAO::mapPatient, null);
+    }
+    
+    /**
+     * Retrieves the patients inserted, updated or deleted since the given time
+     * @param since Sync point of the previous call, or null for every row
+     * @return Changes, or null if the query failed
+     */
+    public static ChangeSet<Patient> getChangedSince(Instant since) {
+        return ChangeQuery.fetch("Patient", "patient_id", since, PatientDAO::mapPatient);
+    }
+    
     /**
      * Updates an existing patient
      */
     public static boolean updatePatient(Patient patient) {
         String query = "UPDATE Patient SET first_name = ?, last_name = ?, date_of_birth = ?, gender = ?, phone = ?, address = ?, blood_type = ? WHERE patient_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setString(1, patient.getFirstName());
             stmt.setString(2, patient.getLastName());
@@ -143,8 +273,8 @@ public class PatientDAO {
      */
     public static boolean deletePatient(int patientId) {
         String query = "DELETE FROM Patient WHERE patient_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, patientId);
             return stmt.executeUpdate() > 0;
@@ -153,4 +283,19 @@ public class PatientDAO {
             return false;
         }
     }
+    
+    private static Patient mapPatient(ResultSet rs) throws SQLException {
+        Patient patient = new Patient(
+            rs.getInt("patient_id"),
+            rs.getString("first_name"),
+            rs.getString("last_name"),
+            rs.getDate("date_of_birth").toLocalDate(),
+            rs.getString("gender"),
+            rs.getString("phone"),
+            rs.getString("address"),
+            rs.getString("blood_type")
+        );
+        patient.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return patient;
+    }
 }
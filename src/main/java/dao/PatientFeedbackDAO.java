@@ -2,8 +2,12 @@ package dao;
 
 import model.PatientFeedback;
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import util.CancellationToken;
 
 public class PatientFeedbackDAO {
     
@@ -12,17 +16,18 @@ public class PatientFeedbackDAO {
      */
     public static boolean addFeedback(PatientFeedback feedback) {
         String query = "INSERT INTO PatientFeedback (patient_id, doctor_id, appointment_id, rating, comments, feedback_date) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setInt(1, feedback.getPatientId());
-            stmt.setInt(2, feedback.getDoctorId());
-            stmt.setInt(3, feedback.getAppointmentId());
-            stmt.setInt(4, feedback.getRating());
-            stmt.setString(5, feedback.getComments());
-            stmt.setDate(6, java.sql.Date.valueOf(feedback.getFeedbackDate()));
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return RowInsert.execute(query, feedback, (stmt, row) -> {
+                stmt.setInt(1, row.getPatientId());
+                stmt.setInt(2, row.getDoctorId());
+                stmt.setInt(3, row.getAppointmentId());
+                stmt.setInt(4, row.getRating());
+                stmt.setString(5, row.getComments());
+                stmt.setDate(6, java.sql.Date.valueOf(row.getFeedbackDate()));
+            }, "PatientFeedback", "feedback_id", "created_at", (row, id, createdAt) -> {
+                row.setFeedbackId(id);
+                row.setCreatedAt(createdAt);
+            });
         } catch (SQLException e) {
             System.err.println("Error adding feedback: " + e.getMessage());
             return false;
@@ -34,8 +39,8 @@ public class PatientFeedbackDAO {
      */
     public static PatientFeedback getFeedbackById(int feedbackId) {
         String query = "SELECT * FROM PatientFeedback WHERE feedback_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, feedbackId);
             ResultSet rs = stmt.executeQuery();
@@ -66,21 +71,12 @@ public class PatientFeedbackDAO {
         List<PatientFeedback> feedbackList = new ArrayList<>();
         String query = "SELECT * FROM PatientFeedback";
         
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
+        try (Connection conn = DBConnection.getReadConnection();
+             Statement stmt = QueryBudget.LIST.create(conn);
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
-                PatientFeedback feedback = new PatientFeedback(
-                    rs.getInt("feedback_id"),
-                    rs.getInt("patient_id"),
-                    rs.getInt("doctor_id"),
-                    rs.getInt("appointment_id"),
-                    rs.getInt("rating"),
-                    rs.getString("comments"),
-                    rs.getDate("feedback_date").toLocalDate()
-                );
-                feedback.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                PatientFeedback feedback = mapPatientFeedback(rs);
                 feedbackList.add(feedback);
             }
         } catch (SQLException e) {
@@ -89,6 +85,60 @@ public class PatientFeedbackDAO {
         return feedbackList;
     }
     
+    /**
+     * Streams all feedback to the action one row at a time, without loading the table into memory
+     * @return true if every row was delivered
+     */
+    public static boolean streamAllFeedback(Consumer<? super PatientFeedback> action) {
+        return ResultStream.forEach("SELECT * FROM PatientFeedback ORDER BY feedback_id", "feedback", PatientFeedbackDAO::mapPatientFeedback, action);
+    }
+    
+    /**
+     * Streams all feedback; the stream holds a database connection and must be closed
+     */
+    public static Stream<PatientFeedback> streamAllFeedback() {
+        return ResultStream.stream("SELECT * FROM PatientFeedback ORDER BY feedback_id", "feedback", PatientFeedbackDAO::mapPatientFeedback);
+    }
+    
+    /**
+     * Retrieves one page of feedback entries ordered by ID, seeking past the previous page's last ID
+     * @param afterId Last ID of the previous page, or 0 for the first page
+     */
+    public static Page<PatientFeedback> getFeedbackPage(int afterId, int limit, SortOrder sort) {
+        return getFeedbackPage(afterId, limit, sort, null);
+    }
+    
+    /**
+     * Same as getFeedbackPage, aborted when the token is cancelled
+     */
+    public static Page<PatientFeedback> getFeedbackPage(int afterId, int limit, SortOrder sort, CancellationToken token) {
+        String query = "SELECT * FROM PatientFeedback"
+            + (afterId > 0 ? " WHERE feedback_id " + sort.seekOperator() + " ?" : "")
+            + " ORDER BY feedback_id " + sort.keyword() + " LIMIT ?";
+        return PagedQuery.fetch(query, "PatientFeedback", limit, stmt -> {
+            if (afterId > 0) {
+                stmt.setInt(1, afterId);
+                return 2;
+            }
+            return 1;
+        }, PatientFeedbackDAO::mapPatientFeedback, token);
+    }
+    
+    /**
+     * Retrieves the page of feedback entries that starts offset rows into the ID ordering
+     */
+    public static Page<PatientFeedback> getFeedbackPageAt(int offset, int limit, SortOrder sort) {
+        return getFeedbackPageAt(offset, limit, sort, null);
+    }
+    
+    /**
+     * Same as getFeedbackPageAt, aborted when the token is cancelled
+     */
+    public static Page<PatientFeedback> getFeedbackPageAt(int offset, int limit, SortOrder sort, CancellationToken token) {
+        return PagedQuery.fetchAt("PatientFeedback", "feedback_id", new String[] {"feedback_id"},
+            offset, limit, sort, PatientFeedbackDAO::mapPatientFeedback, token);
+    }
+    
     /**
      * Retrieves feedback by patient ID
      */
@@ -96,8 +146,8 @@ public class PatientFeedbackDAO {
         List<PatientFeedback> feedbackList = new ArrayList<>();
         String query = "SELECT * FROM PatientFeedback WHERE patient_id = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, patientId);
             ResultSet rs = stmt.executeQuery();
@@ -121,13 +171,22 @@ public class PatientFeedbackDAO {
         return feedbackList;
     }
     
+    /**
+     * Retrieves the feedback inserted, updated or deleted since the given time
+     * @param since Sync point of the previous call, or null for every row
+     * @return Changes, or null if the query failed
+     */
+    public static ChangeSet<PatientFeedback> getChangedSince(Instant since) {
+        return ChangeQuery.fetch("PatientFeedback", "feedback_id", since, PatientFeedbackDAO::mapPatientFeedback);
+    }
+    
     /**
      * Updates feedback
      */
     public static boolean updateFeedback(PatientFeedback feedback) {
         String query = "UPDATE PatientFeedback SET patient_id = ?, doctor_id = ?, appointment_id = ?, rating = ?, comments = ?, feedback_date = ? WHERE feedback_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, feedback.getPatientId());
             stmt.setInt(2, feedback.getDoctorId());
@@ -149,8 +208,8 @@ public class PatientFeedbackDAO {
      */
     public static boolean deleteFeedback(int feedbackId) {
         String query = "DELETE FROM PatientFeedback WHERE feedback_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, feedbackId);
             return stmt.executeUpdate() > 0;
@@ -159,4 +218,18 @@ public class PatientFeedbackDAO {
             return false;
         }
     }
+    
+    private static PatientFeedback mapPatientFeedback(ResultSet rs) throws SQLException {
+        PatientFeedback feedback = new PatientFeedback(
+            rs.getInt("feedback_id"),
+            rs.getInt("patient_id"),
+            rs.getInt("doctor_id"),
+            rs.getInt("appointment_id"),
+            rs.getInt("rating"),
+            rs.getString("comments"),
+            rs.getDate("feedback_date").toLocalDate()
+        );
+        feedback.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return feedback;
+    }
 }
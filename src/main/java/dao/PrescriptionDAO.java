@@ -2,8 +2,12 @@ package dao;
 
 import model.Prescription;
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import util.CancellationToken;
 
 public class PrescriptionDAO {
     
@@ -12,17 +16,18 @@ public class PrescriptionDAO {
      */
     public static boolean addPrescription(Prescription prescription) {
         String query = "INSERT INTO Prescription (patient_id, doctor_id, appointment_id, prescription_date, diagnosis, notes) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setInt(1, prescription.getPatientId());
-            stmt.setInt(2, prescription.getDoctorId());
-            stmt.setInt(3, prescription.getAppointmentId());
-            stmt.setDate(4, java.sql.Date.valueOf(prescription.getPrescriptionDate()));
-            stmt.setString(5, prescription.getDiagnosis());
-            stmt.setString(6, prescription.getNotes());
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return RowInsert.execute(query, prescription, (stmt, row) -> {
+                stmt.setInt(1, row.getPatientId());
+                stmt.setInt(2, row.getDoctorId());
+                stmt.setInt(3, row.getAppointmentId());
+                stmt.setDate(4, java.sql.Date.valueOf(row.getPrescriptionDate()));
+                stmt.setString(5, row.getDiagnosis());
+                stmt.setString(6, row.getNotes());
+            }, "Prescription", "prescription_id", "created_at", (row, id, createdAt) -> {
+                row.setPrescriptionId(id);
+                row.setCreatedAt(createdAt);
+            });
         } catch (SQLException e) {
             System.err.println("Error adding prescription: " + e.getMessage());
             return false;
@@ -34,8 +39,8 @@ public class PrescriptionDAO {
      */
     public static Prescription getPrescriptionById(int prescriptionId) {
         String query = "SELECT * FROM Prescription WHERE prescription_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, prescriptionId);
             ResultSet rs = stmt.executeQuery();
@@ -66,21 +71,12 @@ public class PrescriptionDAO {
         List<Prescription> prescriptions = new ArrayList<>();
         String query = "SELECT * FROM Prescription";
         
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
+        try (Connection conn = DBConnection.getReadConnection();
+             Statement stmt = QueryBudget.LIST.create(conn);
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
-                Prescription prescription = new Prescription(
-                    rs.getInt("prescription_id"),
-                    rs.getInt("patient_id"),
-                    rs.getInt("doctor_id"),
-                    rs.getInt("appointment_id"),
-                    rs.getDate("prescription_date").toLocalDate(),
-                    rs.getString("diagnosis"),
-                    rs.getString("notes")
-                );
-                prescription.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                Prescription prescription = mapPrescription(rs);
                 prescriptions.add(prescription);
             }
         } catch (SQLException e) {
@@ -89,6 +85,60 @@ public class PrescriptionDAO {
         return prescriptions;
     }
     
+    /**
+     * Streams all prescriptions to the action one row at a time, without loading the table into memory
+     * @return true if every row was delivered
+     */
+    public static boolean streamAllPrescriptions(Consumer<? super Prescription> action) {
+        return ResultStream.forEach("SELECT * FROM Prescription ORDER BY prescription_id", "prescriptions", PrescriptionDAO::mapPrescription, action);
+    }
+    
+    /**
+     * Streams all prescriptions; the stream holds a database connection and must be closed
+     */
+    public static Stream<Prescription> streamAllPrescriptions() {
+        return ResultStream.stream("SELECT * FROM Prescription ORDER BY prescription_id", "prescriptions", PrescriptionDAO::mapPrescription);
+    }
+    
+    /**
+     * Retrieves one page of prescriptions ordered by ID, seeking past the previous page's last ID
+     * @param afterId Last ID of the previous page, or 0 for the first page
+     */
+    public static Page<Prescription> getPrescriptionPage(int afterId, int limit, SortOrder sort) {
+        return getPrescriptionPage(afterId, limit, sort, null);
+    }
+    
+    /**
+     * Same as getPrescriptionPage, aborted when the token is cancelled
+     */
+    public static Page<Prescription> getPrescriptionPage(int afterId, int limit, SortOrder sort, CancellationToken token) {
+        String query = "SELECT * FROM Prescription"
+            + (afterId > 0 ? " WHERE prescription_id " + sort.seekOperator() + " ?" : "")
+            + " ORDER BY prescription_id " + sort.keyword() + " LIMIT ?";
+        return PagedQuery.fetch(query, "Prescription", limit, stmt -> {
+            if (afterId > 0) {
+                stmt.setInt(1, afterId);
+                return 2;
+            }
+            return 1;
+        }, PrescriptionDAO::mapPrescription, token);
+    }
+    
+    /**
+     * Retrieves the page of prescriptions that starts offset rows into the ID ordering
+     */
+    public static Page<Prescription> getPrescriptionPageAt(int offset, int limit, SortOrder sort) {
+        return getPrescriptionPageAt(offset, limit, sort, null);
+    }
+    
+    /**
+     * Same as getPrescriptionPageAt, aborted when the token is cancelled
+     */
+    public static Page<Prescription> getPrescriptionPageAt(int offset, int limit, SortOrder sort, CancellationToken token) {
+        return PagedQuery.fetchAt("Prescription", "prescription_id", new String[] {"prescription_id"},
+            offset, limit, sort, PrescriptionDAO::mapPrescription, token);
+    }
+    
     /**
      * Retrieves prescriptions by patient ID
      */
@@ -96,8 +146,8 @@ public class PrescriptionDAO {
         List<Prescription> prescriptions = new ArrayList<>();
         String query = "SELECT * FROM Prescription WHERE patient_id = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, patientId);
             ResultSet rs = stmt.executeQuery();
@@ -121,13 +171,22 @@ public class PrescriptionDAO {
         return prescriptions;
     }
     
+    /**
+     * Retrieves the prescriptions inserted, updated or deleted since the given time
+     * @param since Sync point of the previous call, or null for every row
+     * @return Changes, or null if the query failed
+     */
+    public static ChangeSet<Prescription> getChangedSince(Instant since) {
+        return ChangeQuery.fetch("Prescription", "prescription_id", since, PrescriptionDAO::mapPrescription);
+    }
+    
     /**
      * Updates a prescription
      */
     public static boolean updatePrescription(Prescription prescription) {
         String query = "UPDATE Prescription SET patient_id = ?, doctor_id = ?, appointment_id = ?, prescription_date = ?, diagnosis = ?, notes = ? WHERE prescription_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, prescription.getPatientId());
             stmt.setInt(2, prescription.getDoctorId());
@@ -149,8 +208,8 @@ public class PrescriptionDAO {
      */
     public static boolean deletePrescription(int prescriptionId) {
         String query = "DELETE FROM Prescription WHERE prescription_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, prescriptionId);
             return stmt.executeUpdate() > 0;
@@ -159,4 +218,18 @@ public class PrescriptionDAO {
             return false;
         }
     }
+    
+    private static Prescription mapPrescription(ResultSet rs) throws SQLException {
+        Prescription prescription = new Prescription(
+            rs.getInt("prescription_id"),
+            rs.getInt("patient_id"),
+            rs.getInt("doctor_id"),
+            rs.getInt("appointment_id"),
+            rs.getDate("prescription_date").toLocalDate(),
+            rs.getString("diagnosis"),
+            rs.getString("notes")
+        );
+        prescription.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        return prescription;
+    }
 }
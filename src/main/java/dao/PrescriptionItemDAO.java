@@ -12,8 +12,8 @@ public class PrescriptionItemDAO {
      */
     public static boolean addPrescriptionItem(PrescriptionItem item) {
         String query = "INSERT INTO PrescriptionItem (prescription_id, inventory_id, dosage, frequency, duration, quantity) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setInt(1, item.getPrescriptionId());
             stmt.setInt(2, item.getInventoryId());
@@ -22,20 +22,51 @@ public class PrescriptionItemDAO {
             stmt.setString(5, item.getDuration());
             stmt.setInt(6, item.getQuantity());
             
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    item.setPrescriptionItemId(keys.getInt(1));
+                }
+            }
+            return true;
         } catch (SQLException e) {
             System.err.println("Error adding prescription item: " + e.getMessage());
             return false;
         }
     }
     
+    /**
+     * Adds prescription items in JDBC batches using the default batch size
+     */
+    public static BatchResult addPrescriptionItems(List<PrescriptionItem> items) {
+        return addPrescriptionItems(items, DBConnection.getBatchSize());
+    }
+    
+    /**
+     * Adds prescription items in JDBC batches, one transaction per batch.
+     * Generated IDs are set on the inserted items; failed rows are reported in the result.
+     */
+    public static BatchResult addPrescriptionItems(List<PrescriptionItem> items, int batchSize) {
+        String query = "INSERT INTO PrescriptionItem (prescription_id, inventory_id, dosage, frequency, duration, quantity) VALUES (?, ?, ?, ?, ?, ?)";
+        return BatchInsert.execute(query, items, batchSize, (stmt, item) -> {
+            stmt.setInt(1, item.getPrescriptionId());
+            stmt.setInt(2, item.getInventoryId());
+            stmt.setString(3, item.getDosage());
+            stmt.setString(4, item.getFrequency());
+            stmt.setString(5, item.getDuration());
+            stmt.setInt(6, item.getQuantity());
+        }, PrescriptionItem::setPrescriptionItemId);
+    }
+    
     /**
      * Retrieves a prescription item by ID
      */
     public static PrescriptionItem getPrescriptionItemById(int prescriptionItemId) {
         String query = "SELECT * FROM PrescriptionItem WHERE prescription_item_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, prescriptionItemId);
             ResultSet rs = stmt.executeQuery();
@@ -64,8 +95,8 @@ public class PrescriptionItemDAO {
         List<PrescriptionItem> items = new ArrayList<>();
         String query = "SELECT * FROM PrescriptionItem";
         
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
+        try (Connection conn = DBConnection.getReadConnection();
+             Statement stmt = QueryBudget.LIST.create(conn);
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
@@ -92,8 +123,8 @@ public class PrescriptionItemDAO {
         List<PrescriptionItem> items = new ArrayList<>();
         String query = "SELECT * FROM PrescriptionItem WHERE prescription_id = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, prescriptionId);
             ResultSet rs = stmt.executeQuery();
@@ -120,8 +151,8 @@ public class PrescriptionItemDAO {
      */
     public static boolean updatePrescriptionItem(PrescriptionItem item) {
         String query = "UPDATE PrescriptionItem SET prescription_id = ?, inventory_id = ?, dosage = ?, frequency = ?, duration = ?, quantity = ? WHERE prescription_item_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, item.getPrescriptionId());
             stmt.setInt(2, item.getInventoryId());
@@ -143,8 +174,8 @@ public class PrescriptionItemDAO {
      */
     public static boolean deletePrescriptionItem(int prescriptionItemId) {
         String query = "DELETE FROM PrescriptionItem WHERE prescription_item_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getWriteConnection();
+             PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query)) {
             
             stmt.setInt(1, prescriptionItemId);
             return stmt.executeUpdate() > 0;
@@ -0,0 +1,82 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import util.CancellationToken;
+import util.EnvironmentConfig;
+
+/**
+ * Query timeout budgets by kind of DAO operation. Statements created through a budget get
+ * Statement.setQueryTimeout, so a stuck query fails (and frees its connection) instead of
+ * holding up everyone waiting on the pool. Timeouts are in seconds and configured with
+ * DB_TIMEOUT_INTERACTIVE_S, DB_TIMEOUT_LIST_S and DB_TIMEOUT_REPORT_S; 0 means no limit.
+ */
+public enum QueryBudget {
+
+    /** Single-row lookups and writes a user is waiting on */
+    INTERACTIVE("DB_TIMEOUT_INTERACTIVE_S", 5),
+    /** Table pages, searches and list loads */
+    LIST("DB_TIMEOUT_LIST_S", 15),
+    /** Exports and bulk writes, which also run on the batch bulkhead */
+    REPORT("DB_TIMEOUT_REPORT_S", 120);
+
+    private final int timeoutSeconds;
+
+    QueryBudget(String configKey, long defaultSeconds) {
+        this.timeoutSeconds = (int) Math.max(EnvironmentConfig.getLongConfig(configKey, defaultSeconds), 0);
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        return apply(conn.prepareStatement(sql));
+    }
+
+    PreparedStatement prepare(Connection conn, String sql, int autoGeneratedKeys) throws SQLException {
+        return apply(conn.prepareStatement(sql, autoGeneratedKeys));
+    }
+
+    Statement create(Connection conn) throws SQLException {
+        return apply(conn.createStatement());
+    }
+
+    Statement create(Connection conn, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return apply(conn.createStatement(resultSetType, resultSetConcurrency));
+    }
+
+    private <S extends Statement> S apply(S stmt) throws SQLException {
+        try {
+            stmt.setQueryTimeout(timeoutSeconds);
+            return stmt;
+        } catch (SQLException e) {
+            stmt.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels the running statement (Statement.cancel) when the token is cancelled.
+     * Close the registration once the statement is done.
+     * @param token May be null, for calls that cannot be cancelled
+     */
+    static CancellationToken.Registration cancelOn(CancellationToken token, Statement stmt) {
+        if (token == null) {
+            return () -> { };
+        }
+        return token.onCancel(() -> {
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                System.err.println("Failed to cancel query: " + e.getMessage());
+            }
+        });
+    }
+
+    static boolean isCancelled(CancellationToken token) {
+        return token != null && token.isCancelled();
+    }
+}
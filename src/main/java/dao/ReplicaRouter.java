@@ -0,0 +1,280 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks the read replica for read-only DAO queries, or sends them to the primary.
+ * Replicas are checked in the background: one is only used while it answers and its
+ * replication lag is within the limit. After a write, reads stay on the primary for a
+ * short window so the application reads its own writes. The window is process-wide, as
+ * each workstation runs one session and its screens read through different threads.
+ */
+public class ReplicaRouter {
+
+    public enum Strategy { ROUND_ROBIN, LEAST_LATENCY }
+
+    /**
+     * Creates the connection pool of a replica for a bulkhead
+     */
+    interface PoolFactory {
+        ConnectionPool create(Replica replica, Bulkhead bulkhead);
+    }
+
+    /**
+     * One configured replica and what the last check found
+     */
+    static class Replica {
+        final String name;
+        final String url;
+        final Map<Bulkhead, ConnectionPool> pools = new ConcurrentHashMap<>();
+        final AtomicLong reads = new AtomicLong();
+        volatile boolean healthy;
+        volatile long lagSeconds = -1;
+        // Moving average of the health check round trip
+        volatile double latencyMs = -1;
+        volatile String lastError = "not checked yet";
+
+        Replica(String name, String url) {
+            this.name = name;
+            this.url = url;
+        }
+    }
+
+    /**
+     * State of one replica
+     */
+    public static class ReplicaStatus {
+        public final String name;
+        public final boolean healthy;
+        public final long lagSeconds;
+        public final double latencyMs;
+        public final long reads;
+        public final String lastError;
+
+        public ReplicaStatus(String name, boolean healthy, long lagSeconds, double latencyMs, long reads, String lastError) {
+            this.name = name;
+            this.healthy = healthy;
+            this.lagSeconds = lagSeconds;
+            this.latencyMs = latencyMs;
+            this.reads = reads;
+            this.lastError = lastError;
+        }
+    }
+
+    /**
+     * Snapshot of the routing counters
+     */
+    public static class Stats {
+        public final Strategy strategy;
+        public final long replicaReads;
+        public final long primaryReads;
+        // Reads kept on the primary because of a recent write; included in primaryReads
+        public final long stickyReads;
+        public final List<ReplicaStatus> replicas;
+
+        public Stats(Strategy strategy, long replicaReads, long primaryReads, long stickyReads, List<ReplicaStatus> replicas) {
+            this.strategy = strategy;
+            this.replicaReads = replicaReads;
+            this.primaryReads = primaryReads;
+            this.stickyReads = stickyReads;
+            this.replicas = replicas;
+        }
+    }
+
+    private static final double LATENCY_SMOOTHING = 0.3;
+
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final long readYourWritesMs;
+    private final long maxLagSeconds;
+    private final PoolFactory poolFactory;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLong primaryReads = new AtomicLong();
+    private final AtomicLong stickyReads = new AtomicLong();
+    private volatile long lastWriteAt;
+    private final ScheduledExecutorService checker;
+
+    ReplicaRouter(List<Replica> replicas, Strategy strategy, long readYourWritesMs, long maxLagSeconds,
+                  long checkIntervalMs, PoolFactory poolFactory) {
+        this.replicas = replicas;
+        this.strategy = strategy;
+        this.readYourWritesMs = readYourWritesMs;
+        this.maxLagSeconds = maxLagSeconds;
+        this.poolFactory = poolFactory;
+        this.checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-replica-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::checkAll, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts (or restarts) the read-your-writes window
+     */
+    void markWrite() {
+        lastWriteAt = System.currentTimeMillis();
+    }
+
+    /**
+     * @return Replica to read from, or null to read from the primary
+     */
+    Replica choose() {
+        if (System.currentTimeMillis() - lastWriteAt < readYourWritesMs) {
+            stickyReads.incrementAndGet();
+            primaryReads.incrementAndGet();
+            return null;
+        }
+        List<Replica> candidates = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                candidates.add(replica);
+            }
+        }
+        if (candidates.isEmpty()) {
+            primaryReads.incrementAndGet();
+            return null;
+        }
+        Replica chosen;
+        if (strategy == Strategy.LEAST_LATENCY) {
+            chosen = candidates.get(0);
+            for (Replica replica : candidates) {
+                if (replica.latencyMs < chosen.latencyMs) {
+                    chosen = replica;
+                }
+            }
+        } else {
+            chosen = candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size()));
+        }
+        chosen.reads.incrementAndGet();
+        return chosen;
+    }
+
+    ConnectionPool getPool(Replica replica, Bulkhead bulkhead) {
+        return replica.pools.computeIfAbsent(bulkhead, b -> poolFactory.create(replica, b));
+    }
+
+    /**
+     * Takes the replica out of rotation until the next successful check
+     */
+    void markFailed(Replica replica, SQLException e) {
+        if (replica.healthy) {
+            System.err.println("✗ Replica " + replica.name + " failed, reading from the primary: " + e.getMessage());
+        }
+        replica.healthy = false;
+        replica.lastError = e.getMessage();
+        movedToPrimary(replica);
+    }
+
+    /**
+     * Records a read that went to the primary because the replica's pool had no connection
+     * to spare; a busy replica is not an unhealthy one, so it stays in rotation
+     */
+    void markBusy(Replica replica) {
+        movedToPrimary(replica);
+    }
+
+    // A read that was counted against the replica ends up on the primary
+    private void movedToPrimary(Replica replica) {
+        replica.reads.decrementAndGet();
+        primaryReads.incrementAndGet();
+    }
+
+    public Stats getStats() {
+        List<ReplicaStatus> statuses = new ArrayList<>(replicas.size());
+        long replicaReads = 0;
+        for (Replica replica : replicas) {
+            long reads = replica.reads.get();
+            replicaReads += reads;
+            statuses.add(new ReplicaStatus(replica.name, replica.healthy, replica.lagSeconds, replica.latencyMs,
+                reads, replica.lastError));
+        }
+        return new Stats(strategy, replicaReads, primaryReads.get(), stickyReads.get(), statuses);
+    }
+
+    void shutdown() {
+        checker.shutdownNow();
+        for (Replica replica : replicas) {
+            for (ConnectionPool pool : replica.pools.values()) {
+                pool.shutdown();
+            }
+            replica.pools.clear();
+        }
+    }
+
+    private void checkAll() {
+        for (Replica replica : replicas) {
+            try {
+                check(replica);
+            } catch (RuntimeException e) {
+                replica.healthy = false;
+                replica.lastError = e.getMessage();
+            }
+        }
+    }
+
+    /**
+     * Reads the replication lag; a replica that does not answer, is not replicating or
+     * lags more than the limit is skipped until a later check passes
+     */
+    private void check(Replica replica) {
+        long start = System.nanoTime();
+        try (Connection conn = getPool(replica, Bulkhead.INTERACTIVE).borrow()) {
+            Long lag = readLagSeconds(conn);
+            double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+            replica.latencyMs = replica.latencyMs < 0 ? elapsedMs
+                : replica.latencyMs + LATENCY_SMOOTHING * (elapsedMs - replica.latencyMs);
+            replica.lagSeconds = lag != null ? lag : -1;
+            boolean healthy = lag != null && lag <= maxLagSeconds;
+            if (healthy != replica.healthy) {
+                System.out.println((healthy ? "✓ Replica " + replica.name + " in rotation"
+                    : "⚠ Replica " + replica.name + " out of rotation") + " (lag: " + (lag != null ? lag + " s" : "unknown") + ")");
+            }
+            replica.lastError = lag == null ? "replication is not running" : healthy ? null : "lag " + lag + " s over " + maxLagSeconds + " s";
+            replica.healthy = healthy;
+        } catch (SQLException e) {
+            if (replica.healthy) {
+                System.err.println("✗ Replica " + replica.name + " check failed: " + e.getMessage());
+            }
+            replica.healthy = false;
+            replica.lastError = e.getMessage();
+        }
+    }
+
+    /**
+     * @return Seconds behind the primary, or null if the server is not replicating
+     */
+    private static Long readLagSeconds(Connection conn) throws SQLException {
+        try (Statement stmt = QueryBudget.INTERACTIVE.create(conn)) {
+            ResultSet rs;
+            String column;
+            try {
+                rs = stmt.executeQuery("SHOW REPLICA STATUS");
+                column = "Seconds_Behind_Source";
+            } catch (SQLException e) {
+                // Servers before MySQL 8.0.22 only know the old statement
+                rs = stmt.executeQuery("SHOW SLAVE STATUS");
+                column = "Seconds_Behind_Master";
+            }
+            try (ResultSet status = rs) {
+                if (!status.next()) {
+                    return null;
+                }
+                long lag = status.getLong(column);
+                return status.wasNull() ? null : lag;
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams query results row by row for the streamAll* DAO methods.
+ * Uses a forward-only, read-only cursor with the MySQL driver's streaming fetch size,
+ * so only the current row is held in memory regardless of table size.
+ * Streams hold their connection until closed, so they borrow from the batch bulkhead.
+ */
+class ResultStream {
+
+    private ResultStream() {
+    }
+
+    /**
+     * Passes every row to the action while the cursor is open
+     * @return true if all rows were delivered, false if the query failed part way
+     */
+    static <T> boolean forEach(String query, String label, RowMapper<T> mapper, Consumer<? super T> action) {
+        Cursor<T> cursor = open(query, label, mapper);
+        if (cursor == null) {
+            return false;
+        }
+        try {
+            cursor.forEachRemaining(action);
+            return !cursor.failed;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Opens a lazily read stream of rows; the connection is held until the stream is closed,
+     * so callers must close it (try-with-resources), including when stopping early.
+     * @return Row stream, empty if the query could not be started
+     */
+    static <T> Stream<T> stream(String query, String label, RowMapper<T> mapper) {
+        Cursor<T> cursor = open(query, label, mapper);
+        if (cursor == null) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    private static <T> Cursor<T> open(String query, String label, RowMapper<T> mapper) {
+        Connection conn = DBConnection.getReadConnection(Bulkhead.BATCH);
+        if (conn == null) {
+            System.err.println("Warning: Database connection is null. Cannot stream " + label + ".");
+            return null;
+        }
+        Statement stmt = null;
+        try {
+            stmt = QueryBudget.REPORT.create(conn, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Integer.MIN_VALUE tells Connector/J to stream rows instead of buffering the whole result
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            ResultSet rs = stmt.executeQuery(query);
+            return new Cursor<>(conn, stmt, rs, label, mapper);
+        } catch (SQLException e) {
+            System.err.println("Error streaming " + label + ": " + e.getMessage());
+            if (stmt != null) {
+                try { stmt.close(); } catch (SQLException ignore) {}
+            }
+            try { conn.close(); } catch (SQLException ignore) {}
+            return null;
+        }
+    }
+
+    private static class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Connection conn;
+        private final Statement stmt;
+        private final ResultSet rs;
+        private final String label;
+        private final RowMapper<T> mapper;
+        private boolean exhausted;
+        private boolean failed;
+        private boolean closed;
+
+        Cursor(Connection conn, Statement stmt, ResultSet rs, String label, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.stmt = stmt;
+            this.rs = rs;
+            this.label = label;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (exhausted || closed) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    exhausted = true;
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Error streaming " + label + ": " + e.getMessage());
+                exhausted = true;
+                failed = true;
+                return false;
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!exhausted) {
+                // Closing a streaming result early makes the driver read every remaining row;
+                // cancel the query first so an abandoned export does not drain the whole table
+                try { stmt.cancel(); } catch (SQLException ignore) {}
+            }
+            try { rs.close(); } catch (SQLException ignore) {}
+            try { stmt.close(); } catch (SQLException ignore) {}
+            try { conn.close(); } catch (SQLException ignore) {}
+        }
+    }
+}
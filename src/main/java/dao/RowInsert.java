@@ -0,0 +1,100 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Single-row inserts for the add* DAO methods. The generated key and the timestamp the
+ * column default fills in (created_at, last_updated) are read back in the insert's
+ * transaction, so the model carries the server's time rather than the workstation clock.
+ */
+class RowInsert {
+
+    /**
+     * Receives an inserted row's generated key and its timestamp as stored
+     */
+    interface KeyAssigner<T> {
+        void assign(T row, int key, LocalDateTime timestamp);
+    }
+
+    private RowInsert() {
+    }
+
+    /**
+     * @param timestampColumn Column left to its default and read back after the insert
+     * @return false if no row was inserted
+     */
+    static <T> boolean execute(String sql, T row, BatchInsert.Binder<T> binder, String table, String idColumn,
+                               String timestampColumn, KeyAssigner<T> keyAssigner) throws SQLException {
+        try (Connection conn = DBConnection.getWriteConnection()) {
+            if (conn == null) {
+                System.err.println("Warning: Database connection is null. Cannot insert into " + table + ".");
+                return false;
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, sql, Statement.RETURN_GENERATED_KEYS)) {
+                binder.bind(stmt, row);
+                int key = 0;
+                if (stmt.executeUpdate() > 0) {
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        key = keys.next() ? keys.getInt(1) : 0;
+                    }
+                }
+                if (key == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                LocalDateTime timestamp = readTimestamps(conn, table, idColumn, timestampColumn,
+                    Collections.singletonList(key)).get(key);
+                conn.commit();
+                keyAssigner.assign(row, key, timestamp);
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Reads a timestamp column for the given rows, on the connection (and so in the
+     * transaction) that inserted them
+     */
+    static Map<Integer, LocalDateTime> readTimestamps(Connection conn, String table, String idColumn, String column,
+                                                      Collection<Integer> ids) throws SQLException {
+        Map<Integer, LocalDateTime> timestamps = new HashMap<>();
+        if (ids.isEmpty()) {
+            return timestamps;
+        }
+        StringBuilder query = new StringBuilder("SELECT ").append(idColumn).append(", ").append(column)
+            .append(" FROM ").append(table).append(" WHERE ").append(idColumn).append(" IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        query.append(')');
+        try (PreparedStatement stmt = QueryBudget.INTERACTIVE.prepare(conn, query.toString())) {
+            int index = 1;
+            for (int id : ids) {
+                stmt.setInt(index++, id);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp timestamp = rs.getTimestamp(2);
+                    timestamps.put(rs.getInt(1), timestamp != null ? timestamp.toLocalDateTime() : null);
+                }
+            }
+        }
+        return timestamps;
+    }
+}
@@ -0,0 +1,11 @@
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to a model object
+ */
+interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,31 @@
+package dao;
+
+/**
+ * Direction of a keyset-paginated list query
+ */
+public enum SortOrder {
+    ASCENDING("ASC", ">"),
+    DESCENDING("DESC", "<");
+
+    private final String keyword;
+    private final String seekOperator;
+
+    SortOrder(String keyword, String seekOperator) {
+        this.keyword = keyword;
+        this.seekOperator = seekOperator;
+    }
+
+    /**
+     * SQL keyword for ORDER BY
+     */
+    String keyword() {
+        return keyword;
+    }
+
+    /**
+     * Comparison that selects rows after the last key of the previous page
+     */
+    String seekOperator() {
+        return seekOperator;
+    }
+}
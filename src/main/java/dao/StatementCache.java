@@ -0,0 +1,260 @@
+package dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * Closing a cached statement only resets it so the next prepareStatement()
+ * with the same SQL skips the parse/prepare round trip.
+ * Only used by the thread that has the owning connection checked out.
+ */
+class StatementCache {
+
+    // Statement settings that are reset on logical close; any other setter makes the statement uncacheable
+    private static final Set<String> RESETTABLE_SETTERS = new HashSet<>(Arrays.asList(
+        "setQueryTimeout", "setFetchSize", "setMaxRows"));
+    private static final Set<String> STATEMENT_SETTERS = new HashSet<>(Arrays.asList(
+        "setFetchDirection", "setMaxFieldSize", "setEscapeProcessing", "setPoolable",
+        "setLargeMaxRows", "setCursorName"));
+
+    private final Connection physical;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                StatementCache.this.evictions.incrementAndGet();
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached statement for the SQL, preparing it on a miss
+     * @return Statement proxy, or null if the cached statement is already in use
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : "S:" + sql;
+        CachedStatement cached = statements.get(key);
+        if (cached != null) {
+            if (cached.inUse) {
+                // Same SQL opened twice on one connection; let the caller prepare an uncached one
+                return null;
+            }
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            PreparedStatement stmt = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS
+                ? physical.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : physical.prepareStatement(sql);
+            cached = new CachedStatement(stmt);
+            statements.put(key, cached);
+        }
+        cached.inUse = true;
+        return cached.newProxy();
+    }
+
+    /**
+     * Logically closes statements the borrower forgot to close before returning the connection
+     */
+    void releaseAll() {
+        for (CachedStatement cached : new ArrayList<>(statements.values())) {
+            if (cached.inUse) {
+                cached.logicalClose();
+            }
+        }
+    }
+
+    /**
+     * Closes every cached statement, e.g. when the physical connection is destroyed
+     */
+    void clear() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closePhysical();
+        }
+        statements.clear();
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    private class CachedStatement {
+        private final PreparedStatement physicalStatement;
+        private final List<ResultSet> openResults = new ArrayList<>();
+        private boolean inUse;
+        private boolean settingsChanged;
+        private boolean evicted;
+        private Lease current;
+
+        CachedStatement(PreparedStatement physicalStatement) {
+            this.physicalStatement = physicalStatement;
+        }
+
+        PreparedStatement newProxy() {
+            current = new Lease(this);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                current);
+        }
+
+        /**
+         * Resets the statement once its borrower has closed it
+         */
+        void release() {
+            for (ResultSet rs : openResults) {
+                try {
+                    rs.close();
+                } catch (SQLException ignore) {}
+            }
+            openResults.clear();
+            inUse = false;
+            current = null;
+
+            if (evicted) {
+                statements.values().remove(this);
+                closePhysical();
+                return;
+            }
+            try {
+                physicalStatement.clearParameters();
+                physicalStatement.clearBatch();
+                physicalStatement.clearWarnings();
+                if (settingsChanged) {
+                    physicalStatement.setQueryTimeout(0);
+                    physicalStatement.setFetchSize(0);
+                    physicalStatement.setMaxRows(0);
+                    settingsChanged = false;
+                }
+            } catch (SQLException e) {
+                statements.values().remove(this);
+                closePhysical();
+            }
+        }
+
+        void logicalClose() {
+            if (current != null) {
+                current.close();
+            }
+        }
+
+        void evict() {
+            // Statements still in use are closed when their borrower closes them
+            evicted = true;
+            if (!inUse) {
+                closePhysical();
+            }
+        }
+
+        void closePhysical() {
+            try {
+                physicalStatement.close();
+            } catch (SQLException ignore) {}
+        }
+    }
+
+    /**
+     * One borrower's view of a cached statement. Each handed-out proxy gets its own lease, so a
+     * stale proxy, or a cancel that arrives after its borrower closed it, cannot reach the
+     * statement once it has been handed to the next borrower.
+     */
+    private static class Lease implements InvocationHandler {
+        private final CachedStatement cached;
+        private volatile boolean closed;
+
+        Lease(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            switch (methodName) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed || cached.physicalStatement.isClosed();
+                case "cancel":
+                    cancel();
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.physicalStatement + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            if (RESETTABLE_SETTERS.contains(methodName)) {
+                cached.settingsChanged = true;
+            } else if (STATEMENT_SETTERS.contains(methodName)) {
+                // Settings we cannot reliably undo; drop the statement from the cache on close
+                cached.evicted = true;
+            }
+
+            try {
+                Object result = method.invoke(cached.physicalStatement, args);
+                if (result instanceof ResultSet) {
+                    cached.openResults.add((ResultSet) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Called from the thread that cancels a query; holding the lock keeps close() from
+         * handing the statement on while the cancel is still going out
+         */
+        private synchronized void cancel() throws SQLException {
+            if (!closed) {
+                cached.physicalStatement.cancel();
+            }
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cached.release();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package model;
+
+/**
+ * Lightweight, read-only view of a doctor for combo boxes and lists
+ */
+public final class DoctorSummary {
+    private final int doctorId;
+    private final String firstName;
+    private final String lastName;
+    private final int departmentId;
+
+    public DoctorSummary(int doctorId, String firstName, String lastName, int departmentId) {
+        this.doctorId = doctorId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.departmentId = departmentId;
+    }
+
+    public int getDoctorId() {
+        return doctorId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getFullName() {
+        return firstName + " " + lastName;
+    }
+
+    public int getDepartmentId() {
+        return departmentId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DoctorSummary)) return false;
+        return doctorId == ((DoctorSummary) o).doctorId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(doctorId);
+    }
+
+    @Override
+    public String toString() {
+        return "DoctorSummary{" +
+                "doctorId=" + doctorId +
+                ", firstName='" + firstName + '\'' +
+                ", lastName='" + lastName + '\'' +
+                ", departmentId=" + departmentId +
+                '}';
+    }
+}
@@ -0,0 +1,53 @@
+package model;
+
+/**
+ * Lightweight, read-only view of a patient for combo boxes and lists
+ */
+public final class PatientSummary {
+    private final int patientId;
+    private final String firstName;
+    private final String lastName;
+
+    public PatientSummary(int patientId, String firstName, String lastName) {
+        this.patientId = patientId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getFullName() {
+        return firstName + " " + lastName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PatientSummary)) return false;
+        return patientId == ((PatientSummary) o).patientId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(patientId);
+    }
+
+    @Override
+    public String toString() {
+        return "PatientSummary{" +
+                "patientId=" + patientId +
+                ", firstName='" + firstName + '\'' +
+                ", lastName='" + lastName + '\'' +
+                '}';
+    }
+}
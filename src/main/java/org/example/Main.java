@@ -9,10 +9,24 @@ import controller.MedicalLogController;
 import controller.PatientFeedbackTabController;
 import controller.PatientTabController;
 import controller.PrescriptionTabController;
+import dao.DBConnection;
+import dao.MongoDBConnection;
+import java.lang.management.ManagementFactory;
 import javafx.application.Application;
+import javafx.beans.binding.Bindings;
+import javafx.geometry.Insets;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TabPane;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
+import service.CacheSnapshot;
+import service.CacheWarmup;
+import service.ReferenceDataStore;
+import ui.util.LazyTab;
+import ui.util.TaskRunner;
 
 /**
  * Main Application Entry Point - Refactored to follow Single Responsibility Principle
@@ -20,22 +34,22 @@ import javafx.stage.Stage;
  */
 public class Main extends Application {
 
-    private PatientTabController patientController;
-    private DoctorTabController doctorController;
-    private AppointmentTabController appointmentController;
-    private DepartmentTabController departmentController;
-    private PrescriptionTabController prescriptionController;
-    private PatientFeedbackTabController feedbackController;
-    private MedicalInventoryTabController inventoryController;
-    private DashboardController dashboardController;
-
     @Override
     public void start(Stage primaryStage) {
+        long startNanos = System.nanoTime();
         System.out.println("========================================");
         System.out.println("Hospital Management System - Starting...");
         System.out.println("========================================\n");
         System.out.println("✓ Application started\n");
 
+        // Fill the caches in the background while the tabs are being built
+        if (CacheSnapshot.restore()) {
+            CacheWarmup.skip();
+        } else {
+            CacheWarmup.start();
+        }
+        startBackgroundInitialization();
+
         primaryStage.setTitle("Hospital Management System");
         primaryStage.setWidth(1000);
         primaryStage.setHeight(700);
@@ -43,38 +57,69 @@ public class Main extends Application {
         TabPane tabPane = new TabPane();
         tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
 
-        // Initialize controllers
-        patientController = new PatientTabController();
-        doctorController = new DoctorTabController();
-        appointmentController = new AppointmentTabController();
-        departmentController = new DepartmentTabController();
-        prescriptionController = new PrescriptionTabController();
-        feedbackController = new PatientFeedbackTabController();
-        inventoryController = new MedicalInventoryTabController();
-        dashboardController = new DashboardController();
-        MedicalLogController medicalLogController = new MedicalLogController(primaryStage);
-
-        // Add tabs (delegated to controller classes)
+        // Each tab's controller is created when the tab is first opened
         tabPane.getTabs().addAll(
-            dashboardController.createDashboardTab(),
-            patientController.createPatientTab(),
-            doctorController.createDoctorTab(),
-            appointmentController.createAppointmentTab(),
-            departmentController.createDepartmentTab(),
-            prescriptionController.createPrescriptionTab(),
-            feedbackController.createPatientFeedbackTab(),
-            inventoryController.createMedicalInventoryTab(),
-            medicalLogController.createMedicalLogTab()
+            LazyTab.create("Dashboard", () -> new DashboardController().createDashboardTab()),
+            LazyTab.create("Patient Management", () -> new PatientTabController().createPatientTab()),
+            LazyTab.create("Doctor Management", () -> new DoctorTabController().createDoctorTab()),
+            LazyTab.create("Appointment Management", () -> new AppointmentTabController().createAppointmentTab()),
+            LazyTab.create("Department Management", () -> new DepartmentTabController().createDepartmentTab()),
+            LazyTab.create("Prescriptions", () -> new PrescriptionTabController().createPrescriptionTab()),
+            LazyTab.create("Patient Feedback", () -> new PatientFeedbackTabController().createPatientFeedbackTab()),
+            LazyTab.create("Medical Inventory", () -> new MedicalInventoryTabController().createMedicalInventoryTab()),
+            LazyTab.create("Medical Logs (NoSQL)", () -> new MedicalLogController(primaryStage).createMedicalLogTab())
         );
 
         // Select Dashboard tab by default
         tabPane.getSelectionModel().select(0);
 
-        Scene scene = new Scene(tabPane);
+        // Busy indicator for database work running on the background task pool
+        ProgressIndicator busyIndicator = new ProgressIndicator();
+        busyIndicator.setPrefSize(16, 16);
+        Label busyLabel = new Label();
+        HBox statusBar = new HBox(8, busyIndicator, busyLabel);
+        statusBar.setPadding(new Insets(2, 8, 2, 8));
+        statusBar.visibleProperty().bind(TaskRunner.pendingTasksProperty().greaterThan(0));
+        statusBar.managedProperty().bind(statusBar.visibleProperty());
+        busyLabel.textProperty().bind(Bindings.format("%d background task(s) running", TaskRunner.pendingTasksProperty()));
+
+        BorderPane root = new BorderPane(tabPane);
+        root.setBottom(statusBar);
+
+        Scene scene = new Scene(root);
         primaryStage.setScene(scene);
+        primaryStage.setOnShown(e -> System.out.printf("✓ First window shown in %d ms (%d ms after JVM start)%n",
+            (System.nanoTime() - startNanos) / 1_000_000,
+            System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime()));
         primaryStage.show();
     }
 
+    /**
+     * Opens the MySQL pool, connects to MongoDB and loads the shared patient, doctor and
+     * department lists in parallel, so the window does not wait for any of them
+     */
+    private void startBackgroundInitialization() {
+        long startNanos = System.nanoTime();
+        TaskRunner.run("Connecting to MySQL", DBConnection::warmUp,
+            idle -> System.out.println("✓ MySQL pool ready with " + idle + " idle connection(s) after "
+                + (System.nanoTime() - startNanos) / 1_000_000 + " ms"),
+            error -> System.err.println("✗ MySQL warm-up failed: " + error.getMessage()));
+        TaskRunner.run("Connecting to MongoDB", () -> MongoDBConnection.getInstance().testConnection(),
+            connected -> System.out.println((connected ? "✓ MongoDB reachable after " : "✗ MongoDB not reachable after ")
+                + (System.nanoTime() - startNanos) / 1_000_000 + " ms"),
+            error -> System.err.println("✗ MongoDB warm-up failed: " + error.getMessage()));
+        ReferenceDataStore.getPatients();
+        ReferenceDataStore.getDoctors();
+        ReferenceDataStore.getDepartments();
+    }
+
+
+    @Override
+    public void stop() {
+        CacheSnapshot.save();
+        DBConnection.closeConnection();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -0,0 +1,172 @@
+package service;
+
+import dao.AppointmentDAO;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import model.Appointment;
+import util.IntKeyedCache;
+import util.SimpleCache;
+
+/**
+ * Appointment cache with lookups by appointment ID, by patient, and by doctor and day.
+ * The two indexes hold appointment IDs and resolve them through the by-ID cache, skipping
+ * appointments that no longer match the index key. A write therefore only has to refresh
+ * the by-ID entry and invalidate the index entries the appointment now belongs to.
+ */
+class AppointmentCache {
+
+    private final IntKeyedCache<Appointment> byId;
+    private final IntKeyedCache<int[]> byPatient;
+    private final SimpleCache<DoctorDay, int[]> byDoctorDay;
+
+    /**
+     * @param maxAppointments Maximum number of cached appointments
+     * @param maxIndexEntries Maximum number of cached patients and doctor days, each
+     * @param ttlMs Time-to-live of appointments and index entries
+     * @param negativeTtlMs How long missing appointments and empty index entries are remembered
+     */
+    AppointmentCache(long maxAppointments, long maxIndexEntries, long ttlMs, long negativeTtlMs) {
+        byId = new IntKeyedCache<>(maxAppointments, ttlMs, 0, null, negativeTtlMs);
+        byPatient = new IntKeyedCache<>(maxIndexEntries, ttlMs, 0, null, negativeTtlMs);
+        byDoctorDay = new SimpleCache<>(maxIndexEntries, ttlMs, 0, null, null, negativeTtlMs);
+    }
+
+    Appointment get(int appointmentId) {
+        return byId.get(appointmentId, AppointmentDAO::getAppointmentById);
+    }
+
+    List<Appointment> getByPatient(int patientId) {
+        int[] ids = byPatient.get(patientId, id -> index(AppointmentDAO.getAppointmentsByPatient(id)));
+        return resolve(ids, appointment -> appointment.getPatientId() == patientId);
+    }
+
+    List<Appointment> getByDoctorAndDate(int doctorId, LocalDate date) {
+        int[] ids = byDoctorDay.get(new DoctorDay(doctorId, date),
+            key -> index(AppointmentDAO.getAppointmentsByDoctorAndDate(key.doctorId, key.date)));
+        return resolve(ids, appointment -> appointment.getDoctorId() == doctorId
+            && date.equals(appointment.getAppointmentDate()));
+    }
+
+    /**
+     * Records a created or updated appointment
+     */
+    void written(Appointment appointment) {
+        byId.put(appointment.getAppointmentId(), appointment);
+        invalidateIndexes(appointment);
+    }
+
+    /**
+     * Drops the index entries a new appointment belongs to, without caching the appointment itself
+     */
+    void invalidateIndexes(Appointment appointment) {
+        byPatient.invalidate(appointment.getPatientId());
+        if (appointment.getAppointmentDate() != null) {
+            byDoctorDay.invalidate(new DoctorDay(appointment.getDoctorId(), appointment.getAppointmentDate()));
+        }
+    }
+
+    void invalidate(int appointmentId) {
+        byId.invalidate(appointmentId);
+    }
+
+    void clear() {
+        byId.clear();
+        byPatient.clear();
+        byDoctorDay.clear();
+    }
+
+    long size() {
+        return byId.size();
+    }
+
+    SimpleCache.Stats stats() {
+        return byId.stats();
+    }
+
+    SimpleCache.Stats patientIndexStats() {
+        return byPatient.stats();
+    }
+
+    SimpleCache.Stats doctorDayIndexStats() {
+        return byDoctorDay.stats();
+    }
+
+    /**
+     * Caches the loaded appointments by ID and returns their IDs in query order.
+     * An empty result is returned as null, so a patient or doctor day without appointments
+     * is remembered only for the negative TTL. A failed query throws instead and is not cached.
+     */
+    private int[] index(List<Appointment> appointments) {
+        if (appointments.isEmpty()) {
+            return null;
+        }
+        int[] ids = new int[appointments.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Appointment appointment = appointments.get(i);
+            ids[i] = appointment.getAppointmentId();
+            // A write that happened while this query ran has already put the newer copy
+            byId.putIfAbsent(ids[i], appointment);
+        }
+        return ids;
+    }
+
+    private List<Appointment> resolve(int[] ids, Predicate<Appointment> stillMatches) {
+        List<Appointment> result = new ArrayList<>();
+        if (ids == null) {
+            return result;
+        }
+        List<Integer> keys = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            keys.add(id);
+        }
+        Map<Integer, Appointment> found = byId.getAll(keys, AppointmentCache::loadAppointments);
+        for (int id : ids) {
+            Appointment appointment = found.get(id);
+            if (appointment != null && stillMatches.test(appointment)) {
+                result.add(appointment);
+            }
+        }
+        return result;
+    }
+
+    private static Map<Integer, Appointment> loadAppointments(Set<Integer> appointmentIds) {
+        Map<Integer, Appointment> loaded = new HashMap<>();
+        for (Appointment appointment : AppointmentDAO.getAppointmentsByIds(appointmentIds)) {
+            loaded.put(appointment.getAppointmentId(), appointment);
+        }
+        return loaded;
+    }
+
+    private static final class DoctorDay {
+        final int doctorId;
+        final LocalDate date;
+
+        DoctorDay(int doctorId, LocalDate date) {
+            this.doctorId = doctorId;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DoctorDay)) {
+                return false;
+            }
+            DoctorDay other = (DoctorDay) o;
+            return doctorId == other.doctorId && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(doctorId, date);
+        }
+    }
+}
@@ -1,11 +1,38 @@
 package service;
 
 import dao.AppointmentDAO;
+import dao.BatchResult;
+import dao.ChangeSet;
+import dao.DataAccessException;
+import dao.Page;
+import dao.SortOrder;
 import model.Appointment;
+import model.Doctor;
+import model.Patient;
+import util.CancellationToken;
+import util.EnvironmentConfig;
+import util.SimpleCache;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class AppointmentService {
     
+    // Appointments change more often than patients, so they expire sooner
+    private static final AppointmentCache cache = new AppointmentCache(
+        EnvironmentConfig.getLongConfig("APPOINTMENT_CACHE_MAX_SIZE", 20000),
+        EnvironmentConfig.getLongConfig("APPOINTMENT_INDEX_MAX_SIZE", 5000),
+        EnvironmentConfig.getLongConfig("APPOINTMENT_CACHE_TTL_MS", 10 * 60 * 1000L),
+        EnvironmentConfig.getLongConfig("APPOINTMENT_CACHE_NEGATIVE_TTL_MS", 5 * 1000L));
+    // Where syncCache continues from; null until its first call
+    private static Instant cacheSyncPoint;
+    
     /**
      * Creates a new appointment
      */
@@ -14,18 +41,44 @@ public class AppointmentService {
             System.err.println("Invalid appointment data");
             return false;
         }
-        return AppointmentDAO.addAppointment(appointment);
+        boolean result = AppointmentDAO.addAppointment(appointment);
+        if (result && appointment.getAppointmentId() > 0) {
+            cache.written(appointment);
+        }
+        return result;
     }
     
     /**
-     * Retrieves an appointment by ID
+     * Creates many appointments in batches; rejected rows are reported in the result
+     */
+    public static BatchResult createAppointments(List<Appointment> appointments) {
+        if (appointments == null) {
+            System.err.println("Invalid appointment list");
+            return new BatchResult(0);
+        }
+        BatchResult result = AppointmentDAO.addAppointments(appointments);
+        for (Appointment appointment : appointments) {
+            if (appointment.getAppointmentId() > 0) {
+                cache.invalidateIndexes(appointment);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Retrieves an appointment by ID (with caching)
      */
     public static Appointment getAppointment(int appointmentId) {
         if (appointmentId <= 0) {
             System.err.println("Invalid appointment ID");
             return null;
         }
-        return AppointmentDAO.getAppointmentById(appointmentId);
+        try {
+            return cache.get(appointmentId);
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return null;
+        }
     }
     
     /**
@@ -36,14 +89,169 @@ public class AppointmentService {
     }
     
     /**
-     * Retrieves appointments for a patient
+     * Streams every appointment to the action (exports, reports) without loading them all into memory
+     * @return true if every appointment was delivered
+     */
+    public static boolean forEachAppointment(Consumer<? super Appointment> action) {
+        return AppointmentDAO.streamAllAppointments(action);
+    }
+    
+    /**
+     * Streams every appointment; close the stream when done
+     */
+    public static Stream<Appointment> streamAllAppointments() {
+        return AppointmentDAO.streamAllAppointments();
+    }
+    
+    /**
+     * Retrieves one page of appointments ordered by date, then ID
+     * @param afterDate Date of the previous page's last appointment, or null for the first page
+     * @param afterId ID of the previous page's last appointment
+     */
+    public static Page<Appointment> getAppointmentPage(LocalDate afterDate, int afterId, int limit, SortOrder sort) {
+        if (limit <= 0 || sort == null) {
+            System.err.println("Invalid page request");
+            return Page.empty();
+        }
+        return AppointmentDAO.getAppointmentPage(afterDate, afterId, limit, sort);
+    }
+    
+    /**
+     * Retrieves the page starting at offset, seeking past previous when it is given
+     * @param previous The appointment just before offset, or null if not known
+     */
+    public static Page<Appointment> getAppointmentPageAt(int offset, Appointment previous, int limit, SortOrder sort) {
+        return getAppointmentPageAt(offset, previous, limit, sort, null);
+    }
+    
+    /**
+     * @param token Aborts the page query when cancelled, e.g. once the page is no longer wanted
+     */
+    public static Page<Appointment> getAppointmentPageAt(int offset, Appointment previous, int limit, SortOrder sort,
+                                                         CancellationToken token) {
+        if (offset < 0 || limit <= 0 || sort == null) {
+            System.err.println("Invalid page request");
+            return Page.empty();
+        }
+        if (offset == 0 || previous != null) {
+            return previous != null
+                ? AppointmentDAO.getAppointmentPage(previous.getAppointmentDate(), previous.getAppointmentId(), limit, sort, token)
+                : AppointmentDAO.getAppointmentPage(null, 0, limit, sort, token);
+        }
+        return AppointmentDAO.getAppointmentPageAt(offset, limit, sort, token);
+    }
+    
+    /**
+     * Finds appointments by patient or doctor name, newest first. Names are matched through
+     * the patient and doctor search indexes.
+     * @param includeText Also match status and notes; that query scans the table
+     */
+    public static List<Appointment> searchAppointments(String text, int limit, boolean includeText,
+                                                       CancellationToken token) {
+        if (text == null || text.trim().isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        String search = text.trim();
+        List<Integer> patientIds = new ArrayList<>();
+        for (Patient patient : PatientService.searchPatients(search, limit)) {
+            patientIds.add(patient.getPatientId());
+        }
+        List<Integer> doctorIds = new ArrayList<>();
+        for (Doctor doctor : DoctorService.searchDoctors(search, limit)) {
+            doctorIds.add(doctor.getDoctorId());
+        }
+        token.throwIfCancelled();
+        List<Appointment> byName = AppointmentDAO.searchAppointments(patientIds, doctorIds, limit, token);
+        if (!includeText) {
+            return byName;
+        }
+        token.throwIfCancelled();
+        Map<Integer, Appointment> merged = new LinkedHashMap<>();
+        for (Appointment appointment : byName) {
+            merged.put(appointment.getAppointmentId(), appointment);
+        }
+        for (Appointment appointment : AppointmentDAO.searchAppointmentText(search, limit, token)) {
+            merged.putIfAbsent(appointment.getAppointmentId(), appointment);
+        }
+        List<Appointment> results = new ArrayList<>(merged.values());
+        results.sort(Comparator.comparing(Appointment::getAppointmentDate, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Appointment::getAppointmentId, Comparator.reverseOrder()));
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+    
+    /**
+     * Retrieves appointments for a patient (with caching)
      */
     public static List<Appointment> getPatientAppointments(int patientId) {
         if (patientId <= 0) {
             System.err.println("Invalid patient ID");
             return null;
         }
-        return AppointmentDAO.getAppointmentsByPatient(patientId);
+        try {
+            return cache.getByPatient(patientId);
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Retrieves a doctor's appointments on one day, ordered by time (with caching)
+     */
+    public static List<Appointment> getDoctorAppointments(int doctorId, LocalDate date) {
+        if (doctorId <= 0 || date == null) {
+            System.err.println("Invalid doctor ID or date");
+            return new ArrayList<>();
+        }
+        try {
+            return cache.getByDoctorAndDate(doctorId, date);
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Retrieves the appointments changed or deleted since the given sync point, and applies them to the cache
+     * @param since Sync point of the previous call, or null for all appointments
+     * @return The changes, or null on error
+     */
+    public static ChangeSet<Appointment> getAppointmentsChangedSince(Instant since) {
+        ChangeSet<Appointment> changes = AppointmentDAO.getChangedSince(since);
+        if (changes != null && !changes.isFull()) {
+            for (Appointment appointment : changes.getUpserted()) {
+                cache.written(appointment);
+            }
+            for (int id : changes.getDeletedIds()) {
+                cache.invalidate(id);
+            }
+        }
+        return changes;
+    }
+    
+    /**
+     * Applies the appointments changed or deleted on other workstations since the previous call
+     * to the cache. The paged table reloads its own rows, but the cache only learns of other
+     * workstations' edits this way. The first call clears the cache and records where to
+     * continue from instead of reading the whole table.
+     * @return false if the changes could not be read
+     */
+    public static synchronized boolean syncCache() {
+        if (cacheSyncPoint == null) {
+            Instant start = AppointmentDAO.getChangeSyncPoint();
+            if (start == null) {
+                return false;
+            }
+            cache.clear();
+            cacheSyncPoint = start;
+            return true;
+        }
+        ChangeSet<Appointment> changes = getAppointmentsChangedSince(cacheSyncPoint);
+        if (changes == null) {
+            return false;
+        }
+        cacheSyncPoint = changes.getSyncPoint();
+        return true;
     }
     
     /**
@@ -54,7 +262,11 @@ public class AppointmentService {
             System.err.println("Invalid appointment data for update");
             return false;
         }
-        return AppointmentDAO.updateAppointment(appointment);
+        boolean result = AppointmentDAO.updateAppointment(appointment);
+        if (result) {
+            cache.written(appointment);
+        }
+        return result;
     }
     
     /**
@@ -65,20 +277,68 @@ public class AppointmentService {
             System.err.println("Invalid appointment ID");
             return false;
         }
-        return AppointmentDAO.deleteAppointment(appointmentId);
+        boolean result = AppointmentDAO.deleteAppointment(appointmentId);
+        if (result) {
+            cache.invalidate(appointmentId);
+        }
+        return result;
     }
     
     /**
      * Cancels an appointment by updating its status
      */
     public static boolean cancelAppointment(int appointmentId) {
-        Appointment appointment = AppointmentDAO.getAppointmentById(appointmentId);
+        Appointment appointment = getAppointment(appointmentId);
         if (appointment == null) {
             System.err.println("Appointment not found");
             return false;
         }
-        appointment.setStatus("Cancelled");
-        return AppointmentDAO.updateAppointment(appointment);
+        // The cached instance is shared with other readers, so change a copy and cache it once saved
+        Appointment cancelled = new Appointment(appointment.getAppointmentId(), appointment.getPatientId(),
+            appointment.getDoctorId(), appointment.getAppointmentDate(), appointment.getAppointmentTime(),
+            "Cancelled", appointment.getNotes());
+        cancelled.setCreatedAt(appointment.getCreatedAt());
+        boolean result = AppointmentDAO.updateAppointment(cancelled);
+        if (result) {
+            cache.written(cancelled);
+        }
+        return result;
+    }
+    
+    /**
+     * Gets statistics of the appointment cache (lookups by ID)
+     */
+    public static SimpleCache.Stats getCacheStats() {
+        return cache.stats();
+    }
+    
+    /**
+     * Gets statistics of the by-patient appointment index
+     */
+    public static SimpleCache.Stats getPatientIndexStats() {
+        return cache.patientIndexStats();
+    }
+    
+    /**
+     * Gets statistics of the by-doctor-and-day appointment index
+     */
+    public static SimpleCache.Stats getDoctorDayIndexStats() {
+        return cache.doctorDayIndexStats();
+    }
+    
+    /**
+     * Gets the number of cached appointments
+     */
+    public static long getCacheSize() {
+        return cache.size();
+    }
+    
+    /**
+     * Clears the appointment cache and its indexes
+     */
+    public static void clearCache() {
+        cache.clear();
+        System.out.println("✓ Appointment cache cleared");
     }
     
     /**
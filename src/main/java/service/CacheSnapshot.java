@@ -0,0 +1,228 @@
+package service;
+
+import dao.DBConnection;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import model.Department;
+import model.Doctor;
+import model.Patient;
+import util.EnvironmentConfig;
+
+/**
+ * Saves the department, doctor and patient caches to a local binary file at shutdown
+ * and restores them at startup, so the UI has warm caches immediately after a restart.
+ * Restored entries are re-read from the database in the background to pick up changes
+ * made while the application was down.
+ * Enabled with CACHE_SNAPSHOT_ENABLED=true; the file is CACHE_SNAPSHOT_FILE.
+ * The file contains patient data, so it should only be enabled on trusted workstations.
+ */
+public class CacheSnapshot {
+
+    // Format: magic, version, body length, CRC32 of body, then the body
+    private static final int MAGIC = 0x484D5343; // "HMSC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private static final boolean enabled = Boolean.parseBoolean(EnvironmentConfig.getConfig("CACHE_SNAPSHOT_ENABLED", "false"));
+    private static final Path file = Paths.get(EnvironmentConfig.getConfig("CACHE_SNAPSHOT_FILE", "cache-snapshot.bin"));
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Writes the current cache contents to the snapshot file
+     * @return true if the snapshot was written
+     */
+    public static boolean save() {
+        if (!enabled) {
+            return false;
+        }
+        List<Department> departments = DepartmentService.getCachedDepartments();
+        List<Doctor> doctors = DoctorService.getCachedDoctors();
+        List<Patient> patients = PatientService.getCachedPatients();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream body = new DataOutputStream(bytes);
+            body.writeInt(departments.size());
+            for (Department department : departments) {
+                body.writeInt(department.getDepartmentId());
+                writeString(body, department.getName());
+                writeString(body, department.getLocation());
+            }
+            body.writeInt(doctors.size());
+            for (Doctor doctor : doctors) {
+                body.writeInt(doctor.getDoctorId());
+                writeString(body, doctor.getFirstName());
+                writeString(body, doctor.getLastName());
+                writeString(body, doctor.getSpecialization());
+                writeString(body, doctor.getPhone());
+                body.writeInt(doctor.getDepartmentId());
+            }
+            body.writeInt(patients.size());
+            for (Patient patient : patients) {
+                body.writeInt(patient.getPatientId());
+                writeString(body, patient.getFirstName());
+                writeString(body, patient.getLastName());
+                body.writeLong(patient.getDateOfBirth() == null ? NULL_LONG : patient.getDateOfBirth().toEpochDay());
+                writeString(body, patient.getGender());
+                writeString(body, patient.getPhone());
+                writeString(body, patient.getAddress());
+                writeString(body, patient.getBloodType());
+                body.writeLong(patient.getCreatedAt() == null ? NULL_LONG : patient.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+            }
+            body.flush();
+            byte[] content = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(content);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(content.length).putLong(crc.getValue()).flip();
+
+            // Write next to the target and rename, so a crash never leaves a half-written snapshot
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(header);
+                channel.write(ByteBuffer.wrap(content));
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("✓ Cache snapshot saved: " + departments.size() + " departments, "
+                + doctors.size() + " doctors, " + patients.size() + " patients");
+            return true;
+        } catch (IOException e) {
+            System.err.println("⚠ Failed to save cache snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Loads the snapshot file into the caches and starts revalidating it in the background
+     * @return true if a valid snapshot was restored
+     */
+    public static boolean restore() {
+        if (!enabled || !Files.exists(file)) {
+            return false;
+        }
+        List<Department> departments = new ArrayList<>();
+        List<Doctor> doctors = new ArrayList<>();
+        List<Patient> patients = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                System.err.println("⚠ Cache snapshot ignored: invalid size");
+                return false;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                System.err.println("⚠ Cache snapshot ignored: not a snapshot file");
+                return false;
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                System.err.println("⚠ Cache snapshot ignored: version " + version + ", expected " + VERSION);
+                return false;
+            }
+            int length = buffer.getInt();
+            long checksum = buffer.getLong();
+            if (length != buffer.remaining()) {
+                System.err.println("⚠ Cache snapshot ignored: truncated");
+                return false;
+            }
+            ByteBuffer body = buffer.slice();
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if (crc.getValue() != checksum) {
+                System.err.println("⚠ Cache snapshot ignored: checksum mismatch");
+                return false;
+            }
+
+            for (int i = body.getInt(); i > 0; i--) {
+                departments.add(new Department(body.getInt(), readString(body), readString(body)));
+            }
+            for (int i = body.getInt(); i > 0; i--) {
+                doctors.add(new Doctor(body.getInt(), readString(body), readString(body),
+                    readString(body), readString(body), body.getInt()));
+            }
+            for (int i = body.getInt(); i > 0; i--) {
+                int id = body.getInt();
+                String firstName = readString(body);
+                String lastName = readString(body);
+                long dateOfBirth = body.getLong();
+                Patient patient = new Patient(id, firstName, lastName,
+                    dateOfBirth == NULL_LONG ? null : LocalDate.ofEpochDay(dateOfBirth),
+                    readString(body), readString(body), readString(body), readString(body));
+                long createdAt = body.getLong();
+                if (createdAt != NULL_LONG) {
+                    patient.setCreatedAt(LocalDateTime.ofEpochSecond(createdAt, 0, ZoneOffset.UTC));
+                }
+                patients.add(patient);
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            System.err.println("⚠ Cache snapshot ignored: " + e.getMessage());
+            return false;
+        }
+
+        DepartmentService.preloadCache(departments);
+        DoctorService.preloadCache(doctors);
+        PatientService.preloadCache(patients);
+        System.out.println("✓ Cache snapshot restored: " + departments.size() + " departments, "
+            + doctors.size() + " doctors, " + patients.size() + " patients");
+
+        Thread revalidation = new Thread(() -> revalidate(departments, doctors, patients), "cache-snapshot-revalidate");
+        revalidation.setDaemon(true);
+        revalidation.start();
+        return true;
+    }
+
+    private static void revalidate(List<Department> departments, List<Doctor> doctors, List<Patient> patients) {
+        // Without a database every entry would look deleted; keep the snapshot until it expires instead
+        if (!DBConnection.isConnectionActive()) {
+            System.err.println("⚠ Cache snapshot not revalidated: database unavailable");
+            return;
+        }
+        long start = System.nanoTime();
+        DepartmentService.revalidateCache(departments.stream().map(Department::getDepartmentId).collect(Collectors.toList()));
+        DoctorService.revalidateCache(doctors.stream().map(Doctor::getDoctorId).collect(Collectors.toList()));
+        PatientService.revalidateCache(patients.stream().map(Patient::getPatientId).collect(Collectors.toList()));
+        System.out.println("✓ Cache snapshot revalidated in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
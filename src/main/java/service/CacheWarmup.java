@@ -0,0 +1,185 @@
+package service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import model.Department;
+import model.Doctor;
+import model.Patient;
+import util.EnvironmentConfig;
+
+/**
+ * Preloads the department, doctor and patient caches at startup so the first screens
+ * after a restart do not fill them one miss at a time. The loads run in parallel on
+ * background threads; listeners receive progress as each one finishes.
+ * Configured with CACHE_WARMUP_POLICY (off, eager or recent-n) and
+ * CACHE_WARMUP_RECENT_PATIENTS (the N for recent-n).
+ */
+public class CacheWarmup {
+
+    public enum Policy {
+        /** No warm-up */
+        OFF,
+        /** All departments and doctors, and patients up to the patient cache's capacity */
+        EAGER,
+        /** All departments and doctors, and the N most recently active patients */
+        RECENT_N
+    }
+
+    public enum State { NOT_STARTED, DISABLED, SKIPPED, RUNNING, FINISHED }
+
+    /**
+     * Snapshot of warm-up progress
+     */
+    public static class Status {
+        public final State state;
+        public final Policy policy;
+        public final int tasksDone;
+        public final int tasksTotal;
+        public final long entriesLoaded;
+        public final long elapsedMs;
+
+        public Status(State state, Policy policy, int tasksDone, int tasksTotal, long entriesLoaded, long elapsedMs) {
+            this.state = state;
+            this.policy = policy;
+            this.tasksDone = tasksDone;
+            this.tasksTotal = tasksTotal;
+            this.entriesLoaded = entriesLoaded;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    private static final Policy policy = EnvironmentConfig.getEnumConfig("CACHE_WARMUP_POLICY", Policy.class, Policy.RECENT_N);
+    private static final int recentPatients = (int) EnvironmentConfig.getLongConfig("CACHE_WARMUP_RECENT_PATIENTS", 500);
+
+    private static final List<Consumer<Status>> listeners = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger tasksDone = new AtomicInteger();
+    private static final AtomicLong entriesLoaded = new AtomicLong();
+    private static volatile State state = State.NOT_STARTED;
+    private static volatile int tasksTotal;
+    private static volatile long startNanos;
+    private static volatile long finishNanos;
+
+    /**
+     * Starts the warm-up in the background according to the configured policy; later calls do nothing
+     */
+    public static synchronized void start() {
+        if (state != State.NOT_STARTED) {
+            return;
+        }
+        if (policy == Policy.OFF) {
+            state = State.DISABLED;
+            System.out.println("⚠ Cache warm-up disabled");
+            notifyListeners();
+            return;
+        }
+
+        startNanos = System.nanoTime();
+        tasksTotal = 3;
+        state = State.RUNNING;
+        System.out.println("Cache warm-up started (policy: " + policy.name().toLowerCase().replace('_', '-') + ")");
+        notifyListeners();
+
+        ExecutorService executor = Executors.newFixedThreadPool(tasksTotal, r -> {
+            Thread thread = new Thread(r, "cache-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture.allOf(
+            CompletableFuture.runAsync(() -> runTask("departments", CacheWarmup::loadDepartments), executor),
+            CompletableFuture.runAsync(() -> runTask("doctors", CacheWarmup::loadDoctors), executor),
+            CompletableFuture.runAsync(() -> runTask("patients", CacheWarmup::loadPatients), executor)
+        ).whenComplete((ignored, error) -> {
+            executor.shutdown();
+            finishNanos = System.nanoTime();
+            state = State.FINISHED;
+            Status status = getStatus();
+            System.out.println("✓ Cache warm-up finished: " + status.entriesLoaded + " entries in " + status.elapsedMs + " ms");
+            notifyListeners();
+        });
+    }
+
+    /**
+     * Marks the warm-up as not needed, e.g. because the caches were restored from a snapshot
+     */
+    public static synchronized void skip() {
+        if (state == State.NOT_STARTED) {
+            state = State.SKIPPED;
+            notifyListeners();
+        }
+    }
+
+    /**
+     * Registers a listener for progress updates; it is called right away with the current status.
+     * Listeners run on the warm-up threads.
+     */
+    public static void addListener(Consumer<Status> listener) {
+        listeners.add(listener);
+        listener.accept(getStatus());
+    }
+
+    public static Status getStatus() {
+        State current = state;
+        long elapsedMs = 0;
+        if (current == State.RUNNING) {
+            elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+        } else if (current == State.FINISHED) {
+            elapsedMs = (finishNanos - startNanos) / 1_000_000;
+        }
+        return new Status(current, policy, tasksDone.get(), tasksTotal, entriesLoaded.get(), elapsedMs);
+    }
+
+    private static void runTask(String name, IntSupplier task) {
+        try {
+            int loaded = task.getAsInt();
+            entriesLoaded.addAndGet(loaded);
+            System.out.println("✓ Warmed up " + loaded + " " + name);
+        } catch (RuntimeException e) {
+            System.err.println("Cache warm-up of " + name + " failed: " + e.getMessage());
+        } finally {
+            tasksDone.incrementAndGet();
+            notifyListeners();
+        }
+    }
+
+    private static int loadDepartments() {
+        List<Department> departments = DepartmentService.getAllDepartments();
+        DepartmentService.preloadCache(departments);
+        return departments.size();
+    }
+
+    private static int loadDoctors() {
+        List<Doctor> doctors = DoctorService.getAllDoctors();
+        DoctorService.preloadCache(doctors);
+        return doctors.size();
+    }
+
+    private static int loadPatients() {
+        List<Patient> patients;
+        if (policy == Policy.EAGER) {
+            // Stop reading at capacity; anything beyond it would only evict what was just loaded
+            try (Stream<Patient> stream = PatientService.streamAllPatients()) {
+                patients = stream.limit(PatientService.getCacheCapacity()).collect(Collectors.toList());
+            }
+        } else {
+            patients = PatientService.getRecentlyActivePatients(recentPatients);
+        }
+        PatientService.preloadCache(patients);
+        return patients.size();
+    }
+
+    private static void notifyListeners() {
+        Status status = getStatus();
+        for (Consumer<Status> listener : listeners) {
+            listener.accept(status);
+        }
+    }
+}
@@ -1,17 +1,37 @@
 package service;
 
+import dao.DataAccessException;
 import dao.DepartmentDAO;
 import model.Department;
+import util.EnvironmentConfig;
+import util.IntKeyedCache;
+import util.SimpleCache;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class DepartmentService {
     
+    // Departments rarely change, so they are kept for longer than patients and doctors
+    private static final IntKeyedCache<Department> cache = new IntKeyedCache<>(
+        EnvironmentConfig.getLongConfig("DEPARTMENT_CACHE_MAX_SIZE", 500),
+        EnvironmentConfig.getLongConfig("DEPARTMENT_CACHE_TTL_MS", 60 * 60 * 1000L),
+        EnvironmentConfig.getLongConfig("DEPARTMENT_CACHE_REFRESH_MS", 30 * 60 * 1000L),
+        DepartmentDAO::getDepartmentById,
+        EnvironmentConfig.getLongConfig("DEPARTMENT_CACHE_NEGATIVE_TTL_MS", 30 * 1000L));
+    
     public static boolean createDepartment(Department department) {
         if (department == null || department.getName() == null || department.getName().isEmpty()) {
             System.err.println("Invalid department data");
             return false;
         }
-        return DepartmentDAO.addDepartment(department);
+        boolean result = DepartmentDAO.addDepartment(department);
+        if (result && department.getDepartmentId() > 0) {
+            cache.put(department.getDepartmentId(), department);
+            ReferenceDataStore.departmentSaved(department);
+        }
+        return result;
     }
     
     public static Department getDepartment(int departmentId) {
@@ -19,7 +39,12 @@ public class DepartmentService {
             System.err.println("Invalid department ID");
             return null;
         }
-        return DepartmentDAO.getDepartmentById(departmentId);
+        try {
+            return cache.get(departmentId, DepartmentDAO::getDepartmentById);
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return null;
+        }
     }
     
     public static List<Department> getAllDepartments() {
@@ -31,7 +56,12 @@ public class DepartmentService {
             System.err.println("Invalid department data for update");
             return false;
         }
-        return DepartmentDAO.updateDepartment(department);
+        boolean result = DepartmentDAO.updateDepartment(department);
+        if (result) {
+            cache.invalidate(department.getDepartmentId());
+            ReferenceDataStore.departmentSaved(department);
+        }
+        return result;
     }
     
     public static boolean deleteDepartment(int departmentId) {
@@ -39,6 +69,57 @@ public class DepartmentService {
             System.err.println("Invalid department ID");
             return false;
         }
-        return DepartmentDAO.deleteDepartment(departmentId);
+        boolean result = DepartmentDAO.deleteDepartment(departmentId);
+        if (result) {
+            cache.invalidate(departmentId);
+            ReferenceDataStore.departmentDeleted(departmentId);
+        }
+        return result;
+    }
+    
+    public static void preloadCache(Collection<Department> departments) {
+        for (Department department : departments) {
+            cache.put(department.getDepartmentId(), department);
+        }
+    }
+    
+    public static List<Department> getCachedDepartments() {
+        return cache.values();
+    }
+    
+    /**
+     * Re-reads all departments, replacing cached copies and dropping departments that no longer exist
+     */
+    public static void revalidateCache(Collection<Integer> departmentIds) {
+        List<Department> departments = DepartmentDAO.getAllDepartments();
+        if (departments.isEmpty()) {
+            // Also what a failed query returns; keep the cached copies rather than drop them all
+            return;
+        }
+        Map<Integer, Department> current = new HashMap<>();
+        for (Department department : departments) {
+            current.put(department.getDepartmentId(), department);
+        }
+        for (Integer id : departmentIds) {
+            Department department = current.get(id);
+            if (department != null) {
+                cache.put(id, department);
+            } else {
+                cache.invalidate(id);
+            }
+        }
+    }
+    
+    public static SimpleCache.Stats getCacheStats() {
+        return cache.stats();
+    }
+    
+    public static long getCacheSize() {
+        return cache.size();
+    }
+    
+    public static void clearCache() {
+        cache.clear();
+        System.out.println("✓ Department cache cleared");
     }
 }
@@ -1,13 +1,40 @@
 package service;
 
+import dao.ChangeSet;
+import dao.DataAccessException;
 import dao.DoctorDAO;
 import model.Doctor;
+import model.DoctorSummary;
+import util.EnvironmentConfig;
+import util.IntKeyedCache;
+import util.CancellationToken;
 import util.SimpleCache;
+import util.TextSearchIndex;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
 
 public class DoctorService {
     
-    private static final SimpleCache<Integer, Doctor> cache = new SimpleCache<>();
+    // Bounded, expiring cache; entries older than the refresh interval are reloaded in the background
+    private static final IntKeyedCache<Doctor> cache = new IntKeyedCache<>(
+        EnvironmentConfig.getLongConfig("DOCTOR_CACHE_MAX_SIZE", 2000),
+        EnvironmentConfig.getLongConfig("DOCTOR_CACHE_TTL_MS", 30 * 60 * 1000L),
+        EnvironmentConfig.getLongConfig("DOCTOR_CACHE_REFRESH_MS", 10 * 60 * 1000L),
+        DoctorDAO::getDoctorById,
+        EnvironmentConfig.getLongConfig("DOCTOR_CACHE_NEGATIVE_TTL_MS", 30 * 1000L));
+    
+    // Search box index over names, specialization and phone, maintained like PatientService's
+    private static final TextSearchIndex<Doctor> searchIndex = new TextSearchIndex<>(Doctor::getDoctorId,
+        doctor -> new String[] {doctor.getFirstName(), doctor.getLastName(), doctor.getSpecialization(),
+            doctor.getPhone(), doctor.getPhone() != null ? doctor.getPhone().replaceAll("\\D", "") : null});
+    private static volatile boolean searchIndexLoaded;
     
     /**
      * Creates a new doctor in the system
@@ -21,6 +48,8 @@ public class DoctorService {
         if (result && doctor.getDoctorId() > 0) {
             // Cache the newly created doctor immediately
             cache.put(doctor.getDoctorId(), doctor);
+            ReferenceDataStore.doctorSaved(toSummary(doctor));
+            searchIndex.put(doctor);
         }
         return result;
     }
@@ -33,15 +62,90 @@ public class DoctorService {
             System.err.println("Invalid doctor ID");
             return null;
         }
-        Doctor cached = cache.get(doctorId);
-        if (cached != null) {
-            return cached;
+        try {
+            return cache.get(doctorId, DoctorDAO::getDoctorById);
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Returns the doctor only if it is cached, never querying, e.g. for table cells on the JavaFX thread
+     * @return Cached doctor, or null if it is not cached (or cached as nonexistent)
+     */
+    public static Doctor getDoctorIfCached(int doctorId) {
+        return doctorId > 0 ? cache.get(doctorId) : null;
+    }
+    
+    /**
+     * Retrieves several doctors by ID; cached doctors are served from the cache
+     * and the rest are loaded with a single batched query
+     * @return Doctors keyed by ID (IDs that do not exist are absent)
+     */
+    public static Map<Integer, Doctor> getDoctors(Collection<Integer> doctorIds) {
+        if (doctorIds == null) {
+            return new HashMap<>();
+        }
+        List<Integer> validIds = doctorIds.stream()
+            .filter(id -> id != null && id > 0)
+            .collect(Collectors.toList());
+        try {
+            return cache.getAll(validIds, DoctorService::loadDoctors);
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return cachedDoctors(validIds);
+        }
+    }
+    
+    /**
+     * Like {@link #getDoctors(Collection)}, for callers that may abandon the lookup (e.g. a superseded search)
+     * @throws CancellationException if the token is cancelled before the doctors are loaded
+     */
+    public static Map<Integer, Doctor> getDoctors(Collection<Integer> doctorIds, CancellationToken token) {
+        if (doctorIds == null) {
+            return new HashMap<>();
+        }
+        List<Integer> validIds = doctorIds.stream()
+            .filter(id -> id != null && id > 0)
+            .collect(Collectors.toList());
+        try {
+            return cache.getAll(validIds, missing -> {
+                List<Doctor> found = DoctorDAO.getDoctorsByIds(missing, token);
+                // A cancelled query returns only part of the rows; caching that would mark the rest as missing
+                token.throwIfCancelled();
+                return toMap(found);
+            });
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return cachedDoctors(validIds);
         }
-        Doctor doctor = DoctorDAO.getDoctorById(doctorId);
-        if (doctor != null) {
-            cache.put(doctorId, doctor);
+    }
+    
+    private static Map<Integer, Doctor> loadDoctors(Set<Integer> doctorIds) {
+        return toMap(DoctorDAO.getDoctorsByIds(doctorIds));
+    }
+    
+    /**
+     * The doctors that are cached, for when loading the rest failed
+     */
+    private static Map<Integer, Doctor> cachedDoctors(List<Integer> doctorIds) {
+        Map<Integer, Doctor> found = new HashMap<>();
+        for (int id : doctorIds) {
+            Doctor doctor = cache.get(id);
+            if (doctor != null) {
+                found.put(id, doctor);
+            }
+        }
+        return found;
+    }
+    
+    private static Map<Integer, Doctor> toMap(List<Doctor> doctors) {
+        Map<Integer, Doctor> loaded = new HashMap<>();
+        for (Doctor doctor : doctors) {
+            loaded.put(doctor.getDoctorId(), doctor);
         }
-        return doctor;
+        return loaded;
     }
     
     /**
@@ -51,6 +155,60 @@ public class DoctorService {
         return DoctorDAO.getAllDoctors();
     }
     
+    /**
+     * Retrieves ID, name and department of all doctors (for selection lists)
+     */
+    public static List<DoctorSummary> getAllDoctorSummaries() {
+        return DoctorDAO.getAllDoctorSummaries();
+    }
+    
+    /**
+     * Retrieves the doctors changed or deleted since the given sync point, and applies them to the cache
+     * @param since Sync point of the previous call, or null for all doctors
+     * @return The changes, or null on error
+     */
+    public static ChangeSet<Doctor> getDoctorsChangedSince(Instant since) {
+        ChangeSet<Doctor> changes = DoctorDAO.getChangedSince(since);
+        if (changes == null) {
+            return null;
+        }
+        if (changes.isFull()) {
+            searchIndex.replaceAll(changes.getUpserted());
+            searchIndexLoaded = true;
+            return changes;
+        }
+        for (Doctor doctor : changes.getUpserted()) {
+            cache.put(doctor.getDoctorId(), doctor);
+            searchIndex.put(doctor);
+        }
+        for (int id : changes.getDeletedIds()) {
+            cache.invalidate(id);
+            searchIndex.remove(id);
+        }
+        return changes;
+    }
+    
+    /**
+     * Searches doctors by name, specialization or phone number, ignoring case and accents
+     * @param limit Maximum number of results
+     * @return Matching doctors, best matches first
+     */
+    public static List<Doctor> searchDoctors(String query, int limit) {
+        if (!searchIndexLoaded) {
+            loadSearchIndex();
+        }
+        return searchIndex.search(query, limit);
+    }
+    
+    private static synchronized void loadSearchIndex() {
+        if (searchIndexLoaded) {
+            return;
+        }
+        List<Doctor> doctors = DoctorDAO.getAllDoctors();
+        searchIndex.replaceAll(doctors);
+        searchIndexLoaded = !doctors.isEmpty();
+    }
+    
     /**
      * Retrieves doctors by department
      */
@@ -73,6 +231,8 @@ public class DoctorService {
         boolean result = DoctorDAO.updateDoctor(doctor);
         if (result) {
             cache.invalidate(doctor.getDoctorId());
+            ReferenceDataStore.doctorSaved(toSummary(doctor));
+            searchIndex.put(doctor);
         }
         return result;
     }
@@ -88,10 +248,57 @@ public class DoctorService {
         boolean result = DoctorDAO.deleteDoctor(doctorId);
         if (result) {
             cache.invalidate(doctorId);
+            ReferenceDataStore.doctorDeleted(doctorId);
+            searchIndex.remove(doctorId);
         }
         return result;
     }
     
+    /**
+     * Puts already-loaded doctors into the cache, e.g. when warming it up at startup
+     */
+    public static void preloadCache(Collection<Doctor> doctors) {
+        for (Doctor doctor : doctors) {
+            cache.put(doctor.getDoctorId(), doctor);
+        }
+    }
+    
+    /**
+     * Returns the doctors currently in the cache
+     */
+    public static List<Doctor> getCachedDoctors() {
+        return cache.values();
+    }
+    
+    /**
+     * Re-reads the given doctors in bulk, replacing cached copies and dropping doctors that no longer exist.
+     * If the query fails the cached copies are kept.
+     */
+    public static void revalidateCache(Collection<Integer> doctorIds) {
+        Map<Integer, Doctor> current;
+        try {
+            current = loadDoctors(new HashSet<>(doctorIds));
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        for (Integer id : doctorIds) {
+            Doctor doctor = current.get(id);
+            if (doctor != null) {
+                cache.put(id, doctor);
+            } else {
+                cache.invalidate(id);
+            }
+        }
+    }
+    
+    /**
+     * Gets the maximum number of cached doctors
+     */
+    public static long getCacheCapacity() {
+        return cache.maximumSize();
+    }
+    
     /**
      * Gets cache statistics
      */
@@ -140,4 +347,8 @@ public class DoctorService {
         
         return true;
     }
+    
+    private static DoctorSummary toSummary(Doctor doctor) {
+        return new DoctorSummary(doctor.getDoctorId(), doctor.getFirstName(), doctor.getLastName(), doctor.getDepartmentId());
+    }
 }
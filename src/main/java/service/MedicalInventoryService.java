@@ -1,8 +1,12 @@
 package service;
 
 import dao.MedicalInventoryDAO;
+import dao.Page;
+import dao.SortOrder;
 import model.MedicalInventory;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class MedicalInventoryService {
     
@@ -26,6 +30,22 @@ public class MedicalInventoryService {
         return MedicalInventoryDAO.getAllInventoryItems();
     }
     
+    public static boolean forEachInventoryItem(Consumer<? super MedicalInventory> action) {
+        return MedicalInventoryDAO.streamAllInventoryItems(action);
+    }
+    
+    public static Stream<MedicalInventory> streamAllInventoryItems() {
+        return MedicalInventoryDAO.streamAllInventoryItems();
+    }
+    
+    public static Page<MedicalInventory> getInventoryItemPage(int afterId, int limit, SortOrder sort) {
+        if (limit <= 0 || sort == null) {
+            System.err.println("Invalid page request");
+            return Page.empty();
+        }
+        return MedicalInventoryDAO.getInventoryItemPage(afterId, limit, sort);
+    }
+    
     public static List<MedicalInventory> getLowStockItems(int threshold) {
         // This method may not exist in DAO, remove or implement it
         return MedicalInventoryDAO.getAllInventoryItems();
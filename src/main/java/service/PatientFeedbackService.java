@@ -1,8 +1,15 @@
 package service;
 
+import dao.ChangeSet;
 import dao.PatientFeedbackDAO;
+import dao.Page;
+import dao.SortOrder;
 import model.PatientFeedback;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import util.CancellationToken;
 
 public class PatientFeedbackService {
     
@@ -26,6 +33,54 @@ public class PatientFeedbackService {
         return PatientFeedbackDAO.getAllFeedback();
     }
     
+    /**
+     * Retrieves the feedback changed or deleted since the given sync point
+     * @param since Sync point of the previous call, or null for all feedback
+     * @return The changes, or null on error
+     */
+    public static ChangeSet<PatientFeedback> getFeedbackChangedSince(Instant since) {
+        return PatientFeedbackDAO.getChangedSince(since);
+    }
+    
+    public static boolean forEachFeedback(Consumer<? super PatientFeedback> action) {
+        return PatientFeedbackDAO.streamAllFeedback(action);
+    }
+    
+    public static Stream<PatientFeedback> streamAllFeedback() {
+        return PatientFeedbackDAO.streamAllFeedback();
+    }
+    
+    public static Page<PatientFeedback> getFeedbackPage(int afterId, int limit, SortOrder sort) {
+        if (limit <= 0 || sort == null) {
+            System.err.println("Invalid page request");
+            return Page.empty();
+        }
+        return PatientFeedbackDAO.getFeedbackPage(afterId, limit, sort);
+    }
+    
+    /**
+     * Retrieves the page starting at offset, seeking past previous when it is given
+     * @param previous The feedback entry just before offset, or null if not known
+     */
+    public static Page<PatientFeedback> getFeedbackPageAt(int offset, PatientFeedback previous, int limit, SortOrder sort) {
+        return getFeedbackPageAt(offset, previous, limit, sort, null);
+    }
+    
+    /**
+     * @param token Aborts the page query when cancelled, e.g. once the page is no longer wanted
+     */
+    public static Page<PatientFeedback> getFeedbackPageAt(int offset, PatientFeedback previous, int limit, SortOrder sort,
+                                                          CancellationToken token) {
+        if (offset < 0 || limit <= 0 || sort == null) {
+            System.err.println("Invalid page request");
+            return Page.empty();
+        }
+        if (offset == 0 || previous != null) {
+            return PatientFeedbackDAO.getFeedbackPage(previous != null ? previous.getFeedbackId() : 0, limit, sort, token);
+        }
+        return PatientFeedbackDAO.getFeedbackPageAt(offset, limit, sort, token);
+    }
+    
     public static List<PatientFeedback> getFeedbackByPatient(int patientId) {
         if (patientId <= 0) {
             System.err.println("Invalid patient ID");
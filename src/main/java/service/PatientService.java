@@ -1,13 +1,47 @@
 package service;
 
+import dao.BatchResult;
+import dao.ChangeSet;
+import dao.DataAccessException;
+import dao.Page;
 import dao.PatientDAO;
+import dao.SortOrder;
 import model.Patient;
+import model.PatientSummary;
+import util.EnvironmentConfig;
+import util.IntKeyedCache;
+import util.CancellationToken;
 import util.SimpleCache;
+import util.TextSearchIndex;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class PatientService {
     
-    private static final SimpleCache<Integer, Patient> cache = new SimpleCache<>();
+    // Bounded, expiring cache; entries older than the refresh interval are reloaded in the background
+    private static final IntKeyedCache<Patient> cache = new IntKeyedCache<>(
+        EnvironmentConfig.getLongConfig("PATIENT_CACHE_MAX_SIZE", 10000),
+        EnvironmentConfig.getLongConfig("PATIENT_CACHE_TTL_MS", 30 * 60 * 1000L),
+        EnvironmentConfig.getLongConfig("PATIENT_CACHE_REFRESH_MS", 10 * 60 * 1000L),
+        PatientDAO::getPatientById,
+        EnvironmentConfig.getLongConfig("PATIENT_CACHE_NEGATIVE_TTL_MS", 30 * 1000L));
+    
+    // Search box index over names, phone and blood type; filled by the first full load
+    // and then kept current by this class's writes and change-set refreshes
+    private static final TextSearchIndex<Patient> searchIndex = new TextSearchIndex<>(Patient::getPatientId,
+        patient -> new String[] {patient.getFirstName(), patient.getLastName(), patient.getPhone(),
+            digitsOf(patient.getPhone()), patient.getBloodType()});
+    private static volatile boolean searchIndexLoaded;
     
     /**
      * Creates a new patient in the system
@@ -21,6 +55,26 @@ public class PatientService {
         if (result && patient.getPatientId() > 0) {
             // Cache the newly created patient immediately
             cache.put(patient.getPatientId(), patient);
+            ReferenceDataStore.patientSaved(toSummary(patient));
+            searchIndex.put(patient);
+        }
+        return result;
+    }
+    
+    /**
+     * Creates many patients in batches (e.g. data migrations).
+     * Rows the database rejects are reported in the result instead of failing the whole load.
+     */
+    public static BatchResult createPatients(List<Patient> patients) {
+        if (patients == null) {
+            System.err.println("Invalid patient list");
+            return new BatchResult(0);
+        }
+        // Bulk loads are not cached; they would flood the cache with rows nobody has asked for yet
+        BatchResult result = PatientDAO.addPatients(patients);
+        if (result.getInsertedCount() > 0) {
+            ReferenceDataStore.refreshPatients();
+            searchIndexLoaded = false;
         }
         return result;
     }
@@ -33,15 +87,91 @@ public class PatientService {
             System.err.println("Invalid patient ID");
             return null;
         }
-        Patient cached = cache.get(patientId);
-        if (cached != null) {
-            return cached;
+        try {
+            // Concurrent misses for the same ID share one query; a failed query is not cached
+            return cache.get(patientId, PatientDAO::getPatientById);
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return null;
         }
-        Patient patient = PatientDAO.getPatientById(patientId);
-        if (patient != null) {
-            cache.put(patientId, patient);
+    }
+    
+    /**
+     * Returns the patient only if it is cached, never querying, e.g. for table cells on the JavaFX thread
+     * @return Cached patient, or null if it is not cached (or cached as nonexistent)
+     */
+    public static Patient getPatientIfCached(int patientId) {
+        return patientId > 0 ? cache.get(patientId) : null;
+    }
+    
+    /**
+     * Retrieves several patients by ID; cached patients are served from the cache
+     * and the rest are loaded with a single batched query
+     * @return Patients keyed by ID (IDs that do not exist are absent)
+     */
+    public static Map<Integer, Patient> getPatients(Collection<Integer> patientIds) {
+        if (patientIds == null) {
+            return new HashMap<>();
+        }
+        List<Integer> validIds = patientIds.stream()
+            .filter(id -> id != null && id > 0)
+            .collect(Collectors.toList());
+        try {
+            return cache.getAll(validIds, PatientService::loadPatients);
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return cachedPatients(validIds);
         }
-        return patient;
+    }
+    
+    /**
+     * Like {@link #getPatients(Collection)}, for callers that may abandon the lookup (e.g. a superseded search)
+     * @throws CancellationException if the token is cancelled before the patients are loaded
+     */
+    public static Map<Integer, Patient> getPatients(Collection<Integer> patientIds, CancellationToken token) {
+        if (patientIds == null) {
+            return new HashMap<>();
+        }
+        List<Integer> validIds = patientIds.stream()
+            .filter(id -> id != null && id > 0)
+            .collect(Collectors.toList());
+        try {
+            return cache.getAll(validIds, missing -> {
+                List<Patient> found = PatientDAO.getPatientsByIds(missing, token);
+                // A cancelled query returns only part of the rows; caching that would mark the rest as missing
+                token.throwIfCancelled();
+                return toMap(found);
+            });
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return cachedPatients(validIds);
+        }
+    }
+    
+    private static Map<Integer, Patient> loadPatients(Set<Integer> patientIds) {
+        return toMap(PatientDAO.getPatientsByIds(patientIds));
+    }
+    
+    /**
+     * The patients that are cached, for when loading the rest failed
+     */
+    private static Map<Integer, Patient> cachedPatients(List<Integer> patientIds) {
+        Map<Integer, Patient> found = new HashMap<>();
+        for (int id : patientIds) {
+            Patient patient = cache.get(id);
+            if (patient != null) {
+                found.put(id, patient);
+            }
+        }
+        return found;
+    }
+    
+    private static Map<Integer, Patient> toMap(List<Patient> patients) {
+        Map<Integer, Patient> loaded = new HashMap<>();
+        for (Patient patient : patients) {
+            loaded.put(patient.getPatientId(), patient);
+        }
+        return loaded;
     }
     
     /**
@@ -51,6 +181,99 @@ public class PatientService {
         return PatientDAO.getAllPatients();
     }
     
+    /**
+     * Retrieves ID and name of all patients (for selection lists)
+     */
+    public static List<PatientSummary> getAllPatientSummaries() {
+        return PatientDAO.getAllPatientSummaries();
+    }
+    
+    /**
+     * Retrieves the patients with the most recent appointments
+     * @param limit Maximum number of patients
+     */
+    public static List<Patient> getRecentlyActivePatients(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        return PatientDAO.getRecentlyActivePatients(limit);
+    }
+    
+    /**
+     * Retrieves the patients changed or deleted since the given sync point, and applies them to the cache
+     * @param since Sync point of the previous call, or null for all patients
+     * @return The changes, or null on error
+     */
+    public static ChangeSet<Patient> getPatientsChangedSince(Instant since) {
+        ChangeSet<Patient> changes = PatientDAO.getChangedSince(since);
+        if (changes == null) {
+            return null;
+        }
+        if (changes.isFull()) {
+            searchIndex.replaceAll(changes.getUpserted());
+            searchIndexLoaded = true;
+            return changes;
+        }
+        for (Patient patient : changes.getUpserted()) {
+            cache.put(patient.getPatientId(), patient);
+            searchIndex.put(patient);
+        }
+        for (int id : changes.getDeletedIds()) {
+            cache.invalidate(id);
+            searchIndex.remove(id);
+        }
+        return changes;
+    }
+    
+    /**
+     * Searches patients by name, phone number or blood type, ignoring case and accents
+     * @param limit Maximum number of results
+     * @return Matching patients, best matches first
+     */
+    public static List<Patient> searchPatients(String query, int limit) {
+        if (!searchIndexLoaded) {
+            loadSearchIndex();
+        }
+        return searchIndex.search(query, limit);
+    }
+    
+    private static synchronized void loadSearchIndex() {
+        if (searchIndexLoaded) {
+            return;
+        }
+        List<Patient> patients = PatientDAO.getAllPatients();
+        searchIndex.replaceAll(patients);
+        // An empty list may be a failed query; try again on the next search
+        searchIndexLoaded = !patients.isEmpty();
+    }
+    
+    /**
+     * Streams every patient to the action (exports, reports) without loading them all into memory
+     * @return true if every patient was delivered
+     */
+    public static boolean forEachPatient(Consumer<? super Patient> action) {
+        return PatientDAO.streamAllPatients(action);
+    }
+    
+    /**
+     * Streams every patient; close the stream when done
+     */
+    public static Stream<Patient> streamAllPatients() {
+        return PatientDAO.streamAllPatients();
+    }
+    
+    /**
+     * Retrieves one page of patients ordered by ID
+     * @param afterId Last patient ID of the previous page, or 0 for the first page
+     */
+    public static Page<Patient> getPatientPage(int afterId, int limit, SortOrder sort) {
+        if (limit <= 0 || sort == null) {
+            System.err.println("Invalid page request");
+            return Page.empty();
+        }
+        return PatientDAO.getPatientPage(afterId, limit, sort);
+    }
+    
     /**
      * Updates an existing patient
      */
@@ -62,6 +285,8 @@ public class PatientService {
         boolean result = PatientDAO.updatePatient(patient);
         if (result) {
             cache.invalidate(patient.getPatientId());
+            ReferenceDataStore.patientSaved(toSummary(patient));
+            searchIndex.put(patient);
         }
         return result;
     }
@@ -77,10 +302,57 @@ public class PatientService {
         boolean result = PatientDAO.deletePatient(patientId);
         if (result) {
             cache.invalidate(patientId);
+            ReferenceDataStore.patientDeleted(patientId);
+            searchIndex.remove(patientId);
         }
         return result;
     }
     
+    /**
+     * Puts already-loaded patients into the cache, e.g. when warming it up at startup
+     */
+    public static void preloadCache(Collection<Patient> patients) {
+        for (Patient patient : patients) {
+            cache.put(patient.getPatientId(), patient);
+        }
+    }
+    
+    /**
+     * Returns the patients currently in the cache
+     */
+    public static List<Patient> getCachedPatients() {
+        return cache.values();
+    }
+    
+    /**
+     * Re-reads the given patients in bulk, replacing cached copies and dropping patients that no longer exist.
+     * If the query fails the cached copies are kept.
+     */
+    public static void revalidateCache(Collection<Integer> patientIds) {
+        Map<Integer, Patient> current;
+        try {
+            current = loadPatients(new HashSet<>(patientIds));
+        } catch (DataAccessException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        for (Integer id : patientIds) {
+            Patient patient = current.get(id);
+            if (patient != null) {
+                cache.put(id, patient);
+            } else {
+                cache.invalidate(id);
+            }
+        }
+    }
+    
+    /**
+     * Gets the maximum number of cached patients
+     */
+    public static long getCacheCapacity() {
+        return cache.maximumSize();
+    }
+    
     /**
      * Gets cache statistics
      */
@@ -129,4 +401,12 @@ public class PatientService {
         
         return true;
     }
+    
+    private static PatientSummary toSummary(Patient patient) {
+        return new PatientSummary(patient.getPatientId(), patient.getFirstName(), patient.getLastName());
+    }
+    
+    private static String digitsOf(String phone) {
+        return phone != null ? phone.replaceAll("\\D", "") : null;
+    }
 }
@@ -1,5 +1,6 @@
 package service;
 
+import dao.BatchResult;
 import dao.PrescriptionItemDAO;
 import model.PrescriptionItem;
 import java.util.List;
@@ -14,6 +15,14 @@ public class PrescriptionItemService {
         return PrescriptionItemDAO.addPrescriptionItem(item);
     }
     
+    public static BatchResult createPrescriptionItems(List<PrescriptionItem> items) {
+        if (items == null) {
+            System.err.println("Invalid prescription item list");
+            return new BatchResult(0);
+        }
+        return PrescriptionItemDAO.addPrescriptionItems(items);
+    }
+    
     public static PrescriptionItem getPrescriptionItem(int itemId) {
         if (itemId <= 0) {
             System.err.println("Invalid prescription item ID");
@@ -1,8 +1,15 @@
 package service;
 
+import dao.ChangeSet;
 import dao.PrescriptionDAO;
+import dao.Page;
+import dao.SortOrder;
 import model.Prescription;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import util.CancellationToken;
 
 public class PrescriptionService {
     
@@ -26,6 +33,55 @@ public class PrescriptionService {
         return PrescriptionDAO.getAllPrescriptions();
     }
     
+    /**
+     * Retrieves the prescriptions changed or deleted since the given sync point
+     * @param since Sync point of the previous call, or null for all prescriptions
+     * @return The changes, or null on error
+     */
+    public static ChangeSet<Prescription> getPrescriptionsChangedSince(Instant since) {
+        return PrescriptionDAO.getChangedSince(since);
+    }
+    
+    public static boolean forEachPrescription(Consumer<? super Prescription> action) {
+        return PrescriptionDAO.streamAllPrescriptions(action);
+    }
+    
+    public static Stream<Prescription> streamAllPrescriptions() {
+        return PrescriptionDAO.streamAllPrescriptions();
+    }
+    
+    public static Page<Prescription> getPrescriptionPage(int afterId, int limit, SortOrder sort) {
+        if (limit <= 0 || sort == null) {
+            System.err.println("Invalid page request");
+            return Page.empty();
+        }
+        return PrescriptionDAO.getPrescriptionPage(afterId, limit, sort);
+    }
+    
+    /**
+     * Retrieves the page starting at offset; seeks past previous when it is given, which is
+     * cheaper than skipping offset rows
+     * @param previous The prescription just before offset, or null if not known
+     */
+    public static Page<Prescription> getPrescriptionPageAt(int offset, Prescription previous, int limit, SortOrder sort) {
+        return getPrescriptionPageAt(offset, previous, limit, sort, null);
+    }
+    
+    /**
+     * @param token Aborts the page query when cancelled, e.g. once the page is no longer wanted
+     */
+    public static Page<Prescription> getPrescriptionPageAt(int offset, Prescription previous, int limit, SortOrder sort,
+                                                           CancellationToken token) {
+        if (offset < 0 || limit <= 0 || sort == null) {
+            System.err.println("Invalid page request");
+            return Page.empty();
+        }
+        if (offset == 0 || previous != null) {
+            return PrescriptionDAO.getPrescriptionPage(previous != null ? previous.getPrescriptionId() : 0, limit, sort, token);
+        }
+        return PrescriptionDAO.getPrescriptionPageAt(offset, limit, sort, token);
+    }
+    
     public static List<Prescription> getPrescriptionsByPatient(int patientId) {
         if (patientId <= 0) {
             System.err.println("Invalid patient ID");
@@ -0,0 +1,275 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import model.Department;
+import model.DoctorSummary;
+import model.PatientSummary;
+
+/**
+ * Shared reference data for combo boxes and pickers: patient and doctor summaries and
+ * departments, each held once and handed out as the same read-only ObservableList to
+ * every controller. A list is loaded in the background on first use. After that the
+ * services apply their writes to it, and refresh re-reads it and merges the differences
+ * by ID, so bound controls keep their selection. Lists only change on the JavaFX thread.
+ */
+public class ReferenceDataStore {
+
+    // One thread per list, so all three can load at once at startup
+    private static final ExecutorService loader = Executors.newFixedThreadPool(3, r -> {
+        Thread thread = new Thread(r, "reference-data");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Ref<PatientSummary> patients = new Ref<>("patients",
+        PatientService::getAllPatientSummaries, PatientSummary::getPatientId,
+        (a, b) -> Objects.equals(a.getFirstName(), b.getFirstName())
+            && Objects.equals(a.getLastName(), b.getLastName()));
+
+    private static final Ref<DoctorSummary> doctors = new Ref<>("doctors",
+        DoctorService::getAllDoctorSummaries, DoctorSummary::getDoctorId,
+        (a, b) -> Objects.equals(a.getFirstName(), b.getFirstName())
+            && Objects.equals(a.getLastName(), b.getLastName())
+            && a.getDepartmentId() == b.getDepartmentId());
+
+    private static final Ref<Department> departments = new Ref<>("departments",
+        DepartmentService::getAllDepartments, Department::getDepartmentId,
+        (a, b) -> Objects.equals(a.getName(), b.getName())
+            && Objects.equals(a.getLocation(), b.getLocation()));
+
+    /**
+     * All patients ordered by ID; loaded on first call
+     */
+    public static ObservableList<PatientSummary> getPatients() {
+        return patients.view();
+    }
+
+    /**
+     * All doctors ordered by ID; loaded on first call
+     */
+    public static ObservableList<DoctorSummary> getDoctors() {
+        return doctors.view();
+    }
+
+    /**
+     * All departments ordered by ID; loaded on first call
+     */
+    public static ObservableList<Department> getDepartments() {
+        return departments.view();
+    }
+
+    public static void refreshPatients() {
+        patients.refresh();
+    }
+
+    public static void refreshDoctors() {
+        doctors.refresh();
+    }
+
+    public static void refreshDepartments() {
+        departments.refresh();
+    }
+
+    static void patientSaved(PatientSummary patient) {
+        patients.saved(patient);
+    }
+
+    static void patientDeleted(int patientId) {
+        patients.deleted(patientId);
+    }
+
+    static void doctorSaved(DoctorSummary doctor) {
+        doctors.saved(doctor);
+    }
+
+    static void doctorDeleted(int doctorId) {
+        doctors.deleted(doctorId);
+    }
+
+    static void departmentSaved(Department department) {
+        departments.saved(department);
+    }
+
+    static void departmentDeleted(int departmentId) {
+        departments.deleted(departmentId);
+    }
+
+    private static void runOnFxThread(Runnable action) {
+        if (Platform.isFxApplicationThread()) {
+            action.run();
+            return;
+        }
+        try {
+            Platform.runLater(action);
+        } catch (IllegalStateException e) {
+            // JavaFX is not running (e.g. console mode); nothing can be bound to the lists
+            action.run();
+        }
+    }
+
+    /**
+     * One shared list, kept sorted by ID
+     */
+    private static final class Ref<T> {
+        private final String name;
+        private final Supplier<List<T>> source;
+        private final ToIntFunction<T> id;
+        private final BiPredicate<T, T> sameContent;
+        private final ObservableList<T> items = FXCollections.observableArrayList();
+        private final ObservableList<T> view = FXCollections.unmodifiableObservableList(items);
+        private final AtomicBoolean requested = new AtomicBoolean();
+        private final AtomicBoolean loading = new AtomicBoolean();
+        // Counts writes, so a load that raced with one can be redone
+        private final AtomicLong writes = new AtomicLong();
+        // Set by refresh calls, so one made while a load is running runs again after it
+        private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+        Ref(String name, Supplier<List<T>> source, ToIntFunction<T> id, BiPredicate<T, T> sameContent) {
+            this.name = name;
+            this.source = source;
+            this.id = id;
+            this.sameContent = sameContent;
+        }
+
+        ObservableList<T> view() {
+            if (requested.compareAndSet(false, true)) {
+                refresh();
+            }
+            return view;
+        }
+
+        void refresh() {
+            requested.set(true);
+            // Set before checking for a running load, which looks at it only after it stops loading
+            refreshRequested.set(true);
+            if (!loading.compareAndSet(false, true)) {
+                return;
+            }
+            loader.execute(() -> {
+                refreshRequested.set(false);
+                long writesBefore = writes.get();
+                List<T> fresh;
+                try {
+                    fresh = source.get();
+                } catch (RuntimeException e) {
+                    System.err.println("Error loading reference " + name + ": " + e.getMessage());
+                    loading.set(false);
+                    if (refreshRequested.get()) {
+                        refresh();
+                    }
+                    return;
+                }
+                List<T> sorted = new ArrayList<>(fresh != null ? fresh : new ArrayList<>());
+                sorted.sort(Comparator.comparingInt(id));
+                runOnFxThread(() -> {
+                    // The DAOs return an empty list on errors; do not wipe a loaded list because of one
+                    if (!sorted.isEmpty() || items.isEmpty()) {
+                        merge(sorted);
+                    }
+                    loading.set(false);
+                    if (refreshRequested.get() || writes.get() != writesBefore) {
+                        refresh();
+                    }
+                });
+            });
+        }
+
+        void saved(T item) {
+            writes.incrementAndGet();
+            if (!requested.get()) {
+                return;
+            }
+            runOnFxThread(() -> {
+                int index = indexOf(id.applyAsInt(item));
+                if (index >= 0) {
+                    items.set(index, item);
+                } else {
+                    items.add(-index - 1, item);
+                }
+            });
+        }
+
+        void deleted(int itemId) {
+            writes.incrementAndGet();
+            if (!requested.get()) {
+                return;
+            }
+            runOnFxThread(() -> {
+                int index = indexOf(itemId);
+                if (index >= 0) {
+                    items.remove(index);
+                }
+            });
+        }
+
+        /**
+         * Turns the list into the fresh one with per-item changes instead of replacing it
+         */
+        private void merge(List<T> fresh) {
+            if (items.isEmpty()) {
+                items.setAll(fresh);
+                return;
+            }
+            int i = 0;
+            int j = 0;
+            while (j < fresh.size()) {
+                T next = fresh.get(j);
+                if (i == items.size()) {
+                    items.addAll(fresh.subList(j, fresh.size()));
+                    return;
+                }
+                int currentId = id.applyAsInt(items.get(i));
+                int nextId = id.applyAsInt(next);
+                if (currentId < nextId) {
+                    items.remove(i);
+                } else if (currentId > nextId) {
+                    items.add(i++, next);
+                    j++;
+                } else {
+                    if (!sameContent.test(items.get(i), next)) {
+                        items.set(i, next);
+                    }
+                    i++;
+                    j++;
+                }
+            }
+            if (i < items.size()) {
+                items.remove(i, items.size());
+            }
+        }
+
+        /**
+         * Binary search by ID
+         * @return Index, or (-(insertion point) - 1) if absent
+         */
+        private int indexOf(int itemId) {
+            int low = 0;
+            int high = items.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midId = id.applyAsInt(items.get(mid));
+                if (midId < itemId) {
+                    low = mid + 1;
+                } else if (midId > itemId) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
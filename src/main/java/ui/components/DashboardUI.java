@@ -30,6 +30,27 @@ public class DashboardUI extends FXMLTabController {
     @FXML
     public Label doctorCacheLabel;
     
+    @FXML
+    public Label appointmentCacheLabel;
+    
+    @FXML
+    public Label connectionPoolLabel;
+    
+    @FXML
+    public Label batchPoolLabel;
+    
+    @FXML
+    public Label replicaLabel;
+    
+    @FXML
+    public Label databaseBreakerLabel;
+    
+    @FXML
+    public Label backgroundTasksLabel;
+    
+    @FXML
+    public Label warmupLabel;
+    
     @FXML
     public Label refreshTimeLabel;
     
@@ -1,8 +1,18 @@
 package ui.components;
 
+import dao.Bulkhead;
+import dao.ConnectionPool;
+import dao.DBConnection;
+import dao.ReplicaRouter;
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
+import service.AppointmentService;
+import service.CacheWarmup;
+import service.DepartmentService;
 import service.PatientService;
 import service.DoctorService;
+import ui.util.TaskRunner;
+import util.CircuitBreaker;
 import util.SimpleCache;
 
 import java.time.LocalDateTime;
@@ -23,6 +33,48 @@ public class DashboardUIController {
     public void initializeEventHandlers() {
         ui.refreshBtn.setOnAction(e -> handleRefreshStats());
         ui.clearCacheBtn.setOnAction(e -> handleClearCache());
+        CacheWarmup.addListener(status -> Platform.runLater(() -> showWarmupStatus(status)));
+        DBConnection.addBreakerListener(stats -> Platform.runLater(() -> showBreakerStatus(stats)));
+        showBreakerStatus(DBConnection.getBreakerStats());
+    }
+    
+    private void showBreakerStatus(CircuitBreaker.Stats stats) {
+        String text;
+        switch (stats.state) {
+            case OPEN:
+                text = String.format("Unavailable | Next retry in: %d s | Retries: %d | Rejected calls: %d | Last error: %s",
+                    (stats.nextProbeInMs + 999) / 1000, stats.probeAttempts, stats.rejected, stats.lastError);
+                break;
+            case HALF_OPEN:
+                text = String.format("Reconnecting | Retries: %d | Rejected calls: %d", stats.probeAttempts, stats.rejected);
+                break;
+            default:
+                text = String.format("Connected | Recent failures: %d | Outages: %d | Rejected calls: %d",
+                    stats.consecutiveFailures, stats.trips, stats.rejected);
+        }
+        ui.databaseBreakerLabel.setText("Database: " + text);
+    }
+    
+    private void showWarmupStatus(CacheWarmup.Status status) {
+        String text;
+        switch (status.state) {
+            case DISABLED:
+                text = "Disabled";
+                break;
+            case SKIPPED:
+                text = "Skipped (caches restored from snapshot)";
+                break;
+            case RUNNING:
+                text = String.format("Running | Tasks: %d/%d | Entries: %d | Elapsed: %d ms",
+                    status.tasksDone, status.tasksTotal, status.entriesLoaded, status.elapsedMs);
+                break;
+            case FINISHED:
+                text = String.format("Finished | Entries: %d | Took: %d ms", status.entriesLoaded, status.elapsedMs);
+                break;
+            default:
+                text = "Not started";
+        }
+        ui.warmupLabel.setText("Cache Warm-up: " + text);
     }
     
     private void handleRefreshStats() {
@@ -30,31 +82,88 @@ public class DashboardUIController {
         SimpleCache.Stats doctorStats = DoctorService.getCacheStats();
 
         String patientInfo = String.format(
-            "Hits: %d | Misses: %d | Writes: %d | Size: %d | Hit Rate: %.2f%%",
-            patientStats.hits, patientStats.misses, patientStats.puts,
+            "Hits: %d | Misses: %d | Writes: %d | Evictions: %d | Size: %d | Hit Rate: %.2f%%",
+            patientStats.hits, patientStats.misses, patientStats.puts, patientStats.evictions,
             PatientService.getCacheSize(),
             patientStats.hitRate * 100
         );
 
         String doctorInfo = String.format(
-            "Hits: %d | Misses: %d | Writes: %d | Size: %d | Hit Rate: %.2f%%",
-            doctorStats.hits, doctorStats.misses, doctorStats.puts,
+            "Hits: %d | Misses: %d | Writes: %d | Evictions: %d | Size: %d | Hit Rate: %.2f%%",
+            doctorStats.hits, doctorStats.misses, doctorStats.puts, doctorStats.evictions,
             DoctorService.getCacheSize(),
             doctorStats.hitRate * 100
         );
 
+        SimpleCache.Stats appointmentStats = AppointmentService.getCacheStats();
+        SimpleCache.Stats byPatientStats = AppointmentService.getPatientIndexStats();
+        SimpleCache.Stats byDoctorDayStats = AppointmentService.getDoctorDayIndexStats();
+        String appointmentInfo = String.format(
+            "Hits: %d | Misses: %d | Size: %d | Hit Rate: %.2f%% | By Patient: %d hits, %d misses | By Doctor/Day: %d hits, %d misses",
+            appointmentStats.hits, appointmentStats.misses,
+            AppointmentService.getCacheSize(),
+            appointmentStats.hitRate * 100,
+            byPatientStats.hits, byPatientStats.misses,
+            byDoctorDayStats.hits, byDoctorDayStats.misses
+        );
+
+
+        TaskRunner.Stats taskStats = TaskRunner.getStats();
+        String taskInfo = String.format(
+            "Queued: %d | Running: %d | Completed: %d | Failed: %d | Cancelled: %d | Rejected: %d | Max Wait: %d ms",
+            taskStats.queued, taskStats.running, taskStats.completed, taskStats.failed,
+            taskStats.cancelled, taskStats.rejected, taskStats.maxWaitMs
+        );
+
         ui.patientCacheLabel.setText("Patient Cache: " + patientInfo);
         ui.doctorCacheLabel.setText("Doctor Cache: " + doctorInfo);
+        ui.appointmentCacheLabel.setText("Appointment Cache: " + appointmentInfo);
+        ui.connectionPoolLabel.setText("Interactive Pool: " + formatPoolStats(DBConnection.getPoolStats(Bulkhead.INTERACTIVE)));
+        ui.batchPoolLabel.setText("Batch Pool: " + formatPoolStats(DBConnection.getPoolStats(Bulkhead.BATCH)));
+        ui.replicaLabel.setText("Read Replicas: " + formatReplicaStats(DBConnection.getReplicaStats()));
+        showBreakerStatus(DBConnection.getBreakerStats());
+        ui.backgroundTasksLabel.setText("Background Tasks: " + taskInfo);
         ui.refreshTimeLabel.setText("Last Updated: " + LocalDateTime.now().format(
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
         ));
     }
     
+    private String formatPoolStats(ConnectionPool.Stats poolStats) {
+        return String.format(
+            "Active: %d | Idle: %d | Queued: %d/%d | Total: %d/%d | Wait p50/p95/p99: %.1f/%.1f/%.1f ms | Timeouts: %d | Rejected: %d | Leaks: %d | Stmt Cache Hit Rate: %.2f%%",
+            poolStats.active, poolStats.idle, poolStats.waiting, poolStats.maxWaiting,
+            poolStats.total, poolStats.maxSize,
+            poolStats.waitP50Ms, poolStats.waitP95Ms, poolStats.waitP99Ms,
+            poolStats.timeouts, poolStats.rejected, poolStats.leaks,
+            poolStats.statementHitRate * 100
+        );
+    }
+    
+    private String formatReplicaStats(ReplicaRouter.Stats stats) {
+        if (stats == null) {
+            return "None configured (all reads on primary)";
+        }
+        StringBuilder sb = new StringBuilder(String.format(
+            "%s | Replica Reads: %d | Primary Reads: %d (after writes: %d)",
+            stats.strategy, stats.replicaReads, stats.primaryReads, stats.stickyReads));
+        for (ReplicaRouter.ReplicaStatus replica : stats.replicas) {
+            if (replica.healthy) {
+                sb.append(String.format(" | %s: lag %d s, %.1f ms", replica.name, replica.lagSeconds, replica.latencyMs));
+            } else {
+                sb.append(String.format(" | %s: out (%s)", replica.name, replica.lastError));
+            }
+        }
+        return sb.toString();
+    }
+    
     private void handleClearCache() {
         PatientService.clearCache();
         DoctorService.clearCache();
+        DepartmentService.clearCache();
+        AppointmentService.clearCache();
         ui.patientCacheLabel.setText("Patient Cache: ---");
         ui.doctorCacheLabel.setText("Doctor Cache: ---");
+        ui.appointmentCacheLabel.setText("Appointment Cache: ---");
         ui.refreshTimeLabel.setText("Cache cleared!");
     }
 }
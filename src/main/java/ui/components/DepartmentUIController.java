@@ -3,8 +3,8 @@ package ui.components;
 import javafx.scene.control.TableView;
 import model.Department;
 import service.DepartmentService;
-
-import java.util.List;
+import service.ReferenceDataStore;
+import ui.util.TaskRunner;
 
 /**
  * Business logic controller for Department UI
@@ -20,11 +20,8 @@ public class DepartmentUIController {
     public void loadDepartmentData() {
         TableView<Department> table = ui.getDepartmentTable();
         if (table != null) {
-            table.getItems().clear();
-            List<Department> departments = DepartmentService.getAllDepartments();
-            if (departments != null) {
-                table.getItems().addAll(departments);
-            }
+            table.setItems(ReferenceDataStore.getDepartments());
+            ReferenceDataStore.refreshDepartments();
         }
     }
 
@@ -37,13 +34,14 @@ public class DepartmentUIController {
         }
 
         Department dept = new Department(name.trim(), location != null ? location.trim() : "");
-        if (DepartmentService.createDepartment(dept)) {
-            ui.showAlert("Success", "Department added successfully!");
-            ui.clearForm();
-            loadDepartmentData();
-        } else {
-            ui.showError("Error", "Failed to add department");
-        }
+        TaskRunner.run("Adding department", () -> DepartmentService.createDepartment(dept), created -> {
+            if (created) {
+                ui.showAlert("Success", "Department added successfully!");
+                ui.clearForm();
+            } else {
+                ui.showError("Error", "Failed to add department");
+            }
+        });
     }
 
     public void handleEditSelected() {
@@ -60,26 +58,28 @@ public class DepartmentUIController {
     private void updateDepartment(Department selected) {
         selected.setName(ui.getDepartmentName());
         selected.setLocation(ui.getLocation());
-        if (DepartmentService.updateDepartment(selected)) {
-            ui.showAlert("Success", "Department updated!");
-            ui.getDepartmentTable().refresh();
-            ui.clearForm();
-            ui.resetAddButton();
-            loadDepartmentData();
-        } else {
-            ui.showError("Error", "Failed to update");
-        }
+        TaskRunner.run("Updating department", () -> DepartmentService.updateDepartment(selected), updated -> {
+            if (updated) {
+                ui.showAlert("Success", "Department updated!");
+                ui.getDepartmentTable().refresh();
+                ui.clearForm();
+                ui.resetAddButton();
+            } else {
+                ui.showError("Error", "Failed to update");
+            }
+        });
     }
 
     public void handleDeleteSelected() {
         Department selected = ui.getDepartmentTable().getSelectionModel().getSelectedItem();
         if (selected != null) {
-            if (DepartmentService.deleteDepartment(selected.getDepartmentId())) {
-                ui.showAlert("Success", "Department deleted!");
-                ui.getDepartmentTable().getItems().remove(selected);
-            } else {
-                ui.showError("Error", "Failed to delete");
-            }
+            TaskRunner.run("Deleting department", () -> DepartmentService.deleteDepartment(selected.getDepartmentId()), deleted -> {
+                if (deleted) {
+                    ui.showAlert("Success", "Department deleted!");
+                } else {
+                    ui.showError("Error", "Failed to delete");
+                }
+            });
         } else {
             ui.showWarning("Selection", "Please select a department");
         }
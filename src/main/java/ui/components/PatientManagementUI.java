@@ -5,7 +5,6 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 import model.Patient;
-import service.PatientService;
 import ui.util.AlertUtil;
 import ui.util.FormUtil;
 import ui.util.FXMLUtil;
@@ -116,12 +115,8 @@ public class PatientManagementUI extends FXMLTabController {
         dobPicker.setValue(patient.getDateOfBirth());
     }
     
-    public void loadPatientDataInTable() {
-        patientTable.getItems().clear();
-        List<Patient> patients = PatientService.getAllPatients();
-        if (patients != null) {
-            patientTable.getItems().addAll(patients);
-        }
+    public void loadPatientDataInTable(List<Patient> patients) {
+        patientTable.getItems().setAll(patients);
     }
     
     public void refreshTable() {
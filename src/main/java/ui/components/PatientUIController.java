@@ -1,13 +1,17 @@
 package ui.components;
 
+import dao.ChangeSet;
 import javafx.scene.control.cell.PropertyValueFactory;
 import model.Patient;
 import service.PatientService;
+import ui.util.SearchPipeline;
+import ui.util.TaskRunner;
 import util.ValidationUtil;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Business logic controller for Patient Management UI
@@ -15,8 +19,20 @@ import java.util.stream.Collectors;
  */
 public class PatientUIController {
     
+    // More rows than anyone scrolls through; keeps one-letter searches cheap to render
+    private static final int SEARCH_LIMIT = 1000;
+    
     private PatientManagementUI ui;
     
+    // Rows loaded into the table, in ID order; searches filter these instead of re-reading the table
+    private final List<Patient> allPatients = new ArrayList<>();
+    // Database time of the last load; a reload only applies what changed after it
+    private Instant lastSync;
+    
+    private final SearchPipeline<List<Patient>> search = new SearchPipeline<>(
+        (text, token) -> PatientService.searchPatients(text, SEARCH_LIMIT),
+        results -> ui.patientTable.getItems().setAll(results));
+    
     public PatientUIController(PatientManagementUI ui) {
         this.ui = ui;
     }
@@ -82,13 +98,15 @@ public class PatientUIController {
                 ui.getBloodGroup()
             );
             
-            if (PatientService.createPatient(patient)) {
-                ui.showMessage("Success", "Patient added successfully!");
-                ui.clearInputFields();
-                loadPatientData();
-            } else {
-                ui.showError("Error", "Failed to add patient.");
-            }
+            TaskRunner.run("Adding patient", () -> PatientService.createPatient(patient), created -> {
+                if (created) {
+                    ui.showMessage("Success", "Patient added successfully!");
+                    ui.clearInputFields();
+                    loadPatientData();
+                } else {
+                    ui.showError("Error", "Failed to add patient.");
+                }
+            });
         } catch (Exception ex) {
             ex.printStackTrace();
             ui.showError("Error", "Failed to add patient: " + ex.getMessage());
@@ -126,15 +144,17 @@ public class PatientUIController {
             patient.setBloodType(ui.getBloodGroup());
             patient.setDateOfBirth(ui.getDateOfBirth());
             
-            if (PatientService.updatePatient(patient)) {
-                ui.showMessage("Success", "Patient updated successfully!");
-                ui.refreshTable();
-                ui.clearInputFields();
-                ui.addBtn.setText("Add Patient");
-                initializeEventHandlers();
-            } else {
-                ui.showError("Error", "Failed to update patient");
-            }
+            TaskRunner.run("Updating patient", () -> PatientService.updatePatient(patient), updated -> {
+                if (updated) {
+                    ui.showMessage("Success", "Patient updated successfully!");
+                    ui.refreshTable();
+                    ui.clearInputFields();
+                    ui.addBtn.setText("Add Patient");
+                    initializeEventHandlers();
+                } else {
+                    ui.showError("Error", "Failed to update patient");
+                }
+            });
         } catch (Exception ex) {
             ex.printStackTrace();
             ui.showError("Error", "Failed to update: " + ex.getMessage());
@@ -148,31 +168,36 @@ public class PatientUIController {
             return;
         }
         
-        if (PatientService.deletePatient(selected.getPatientId())) {
-            ui.showMessage("Success", "Patient deleted successfully!");
-            ui.removePatientFromTable(selected);
-        } else {
-            ui.showError("Error", "Failed to delete patient");
-        }
+        TaskRunner.run("Deleting patient", () -> PatientService.deletePatient(selected.getPatientId()), deleted -> {
+            if (deleted) {
+                ui.showMessage("Success", "Patient deleted successfully!");
+                // Search results come from the index and may be other instances than the loaded rows
+                allPatients.removeIf(p -> p.getPatientId() == selected.getPatientId());
+                ui.removePatientFromTable(selected);
+            } else {
+                ui.showError("Error", "Failed to delete patient");
+            }
+        });
     }
     
     public void handleSearch(String searchText) {
-        List<Patient> allPatients = PatientService.getAllPatients();
-        if (allPatients == null) return;
-        
         if (searchText == null || searchText.trim().isEmpty()) {
+            search.cancel();
             ui.patientTable.getItems().setAll(allPatients);
         } else {
-            String search = searchText.toLowerCase();
-            ui.patientTable.getItems().setAll(allPatients.stream()
-                .filter(p -> (p.getFirstName() + " " + p.getLastName()).toLowerCase().contains(search) ||
-                             (p.getPhone() != null && p.getPhone().contains(search)) ||
-                             (p.getBloodType() != null && p.getBloodType().toLowerCase().contains(search)))
-                .collect(Collectors.toList()));
+            search.submit(searchText);
         }
     }
     
     public void loadPatientData() {
-        ui.loadPatientDataInTable();
+        Instant since = lastSync;
+        TaskRunner.run("Loading patients", () -> {
+            ChangeSet<Patient> changes = PatientService.getPatientsChangedSince(since);
+            return changes != null ? changes : ChangeSet.ofAll(PatientService.getAllPatients(), Patient::getPatientId);
+        }, changes -> {
+            changes.applyTo(allPatients, Patient::getPatientId);
+            lastSync = changes.getSyncPoint();
+            ui.loadPatientDataInTable(allPatients);
+        });
     }
 }
@@ -0,0 +1,78 @@
+package ui.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.beans.value.ObservableValue;
+
+/**
+ * Display names for table cells that never query on the JavaFX thread. A name is taken
+ * from the service cache when it is there; otherwise the cell shows "Loading..." and the
+ * IDs missed during one pulse are loaded together in the background, then filled in.
+ * Only use from the JavaFX thread, e.g. in a cell value factory.
+ */
+public class CachedNames<V> {
+
+    private static final String PLACEHOLDER = "Loading...";
+    private static final String UNKNOWN = "Unknown";
+
+    private final String name;
+    private final IntFunction<V> cached;
+    private final Function<Collection<Integer>, Map<Integer, V>> loader;
+    private final Function<V, String> format;
+    private final Map<Integer, List<StringProperty>> pending = new HashMap<>();
+    private boolean loadScheduled;
+
+    /**
+     * @param name What is loaded, for task names and logs, e.g. "patient names"
+     * @param cached Cache-only lookup; returns null instead of querying
+     * @param loader Loads several entities at once, off the JavaFX thread
+     * @param format Display name of a loaded entity
+     */
+    public CachedNames(String name, IntFunction<V> cached, Function<Collection<Integer>, Map<Integer, V>> loader,
+                       Function<V, String> format) {
+        this.name = name;
+        this.cached = cached;
+        this.loader = loader;
+        this.format = format;
+    }
+
+    public ObservableValue<String> nameOf(int id) {
+        V value = cached.apply(id);
+        if (value != null) {
+            return new SimpleStringProperty(format.apply(value));
+        }
+        StringProperty text = new SimpleStringProperty(PLACEHOLDER);
+        pending.computeIfAbsent(id, k -> new ArrayList<>()).add(text);
+        if (!loadScheduled) {
+            loadScheduled = true;
+            // Let the rest of the pulse's cells register their misses first
+            Platform.runLater(this::loadPending);
+        }
+        return text;
+    }
+
+    private void loadPending() {
+        loadScheduled = false;
+        Map<Integer, List<StringProperty>> batch = new HashMap<>(pending);
+        pending.clear();
+        TaskRunner.run("Loading " + name, () -> loader.apply(batch.keySet()), loaded ->
+            batch.forEach((id, texts) -> {
+                V value = loaded.get(id);
+                String text = value != null ? format.apply(value) : UNKNOWN;
+                texts.forEach(t -> t.set(text));
+            }),
+            error -> {
+                // A name is not worth an error dialog per table redraw; the row shows it is unknown
+                System.err.println("Failed loading " + name + ": " + error.getMessage());
+                batch.values().forEach(texts -> texts.forEach(t -> t.set(UNKNOWN)));
+            });
+    }
+}
@@ -0,0 +1,65 @@
+package ui.util;
+
+import java.util.function.Supplier;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.Tab;
+import javafx.scene.layout.VBox;
+
+/**
+ * Tab whose controller and content are only built the first time it is selected.
+ * Until then it shows a lightweight placeholder, so startup does not pay for tabs
+ * nobody opens.
+ */
+public class LazyTab {
+
+    private LazyTab() {
+    }
+
+    /**
+     * @param title Shown on the tab before it is built
+     * @param factory Creates the controller and its tab; called once, on the JavaFX thread
+     */
+    public static Tab create(String title, Supplier<Tab> factory) {
+        Tab tab = new Tab(title, placeholder());
+        tab.setClosable(false);
+        ChangeListener<Boolean> onFirstSelect = new ChangeListener<Boolean>() {
+            @Override
+            public void changed(ObservableValue<? extends Boolean> obs, Boolean oldVal, Boolean selected) {
+                if (selected) {
+                    tab.selectedProperty().removeListener(this);
+                    build(tab, factory);
+                }
+            }
+        };
+        tab.selectedProperty().addListener(onFirstSelect);
+        return tab;
+    }
+
+    private static void build(Tab tab, Supplier<Tab> factory) {
+        long start = System.nanoTime();
+        try {
+            Tab built = factory.get();
+            Node content = built.getContent();
+            built.setContent(null);
+            tab.setText(built.getText());
+            tab.setContent(content);
+            System.out.println("Built tab '" + tab.getText() + "' in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (RuntimeException e) {
+            System.err.println("Failed to build tab '" + tab.getText() + "': " + e.getMessage());
+            tab.setContent(new Label("Failed to load this tab: " + e.getMessage()));
+        }
+    }
+
+    private static VBox placeholder() {
+        ProgressIndicator indicator = new ProgressIndicator();
+        indicator.setMaxSize(40, 40);
+        VBox box = new VBox(10, indicator, new Label("Loading..."));
+        box.setAlignment(Pos.CENTER);
+        return box;
+    }
+}
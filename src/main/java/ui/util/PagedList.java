@@ -0,0 +1,306 @@
+package ui.util;
+
+import dao.Page;
+import dao.SortOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import util.CancellationToken;
+import util.EnvironmentConfig;
+
+/**
+ * Lazily paged list for a TableView: only the pages the table asks for are loaded, in the
+ * background, and rows not loaded yet read as null. The neighbouring pages are prefetched,
+ * and pages far from the one last viewed are dropped, so memory stays bounded however
+ * large the table is. Sorting happens in the database.
+ * Page size and the number of pages kept are set with PAGED_TABLE_PAGE_SIZE (100) and
+ * PAGED_TABLE_MAX_PAGES (20). Only used from the JavaFX thread.
+ */
+public class PagedList<T> extends ObservableListBase<T> {
+
+    /**
+     * Loads the rows from offset on, runs in the background
+     */
+    public interface PageLoader<T> {
+        /**
+         * @param previous The row just before offset when it is loaded, so the page can be read with
+         *                 a keyset seek; null for the first page or when the page before is not loaded
+         * @param token Cancelled when a refresh or re-sort makes the page obsolete; pass it on to the queries
+         */
+        Page<T> load(int offset, T previous, int limit, SortOrder sort, CancellationToken token);
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = (int) EnvironmentConfig.getLongConfig("PAGED_TABLE_PAGE_SIZE", 100);
+    public static final int DEFAULT_MAX_PAGES = (int) EnvironmentConfig.getLongConfig("PAGED_TABLE_MAX_PAGES", 20);
+
+    private final String name;
+    private final PageLoader<T> loader;
+    private final int pageSize;
+    private final int maxPages;
+
+    private final Map<Integer, List<T>> pages = new HashMap<>();
+    // Pages kept on screen after a refresh until their reload arrives
+    private final Set<Integer> stalePages = new HashSet<>();
+    private final Set<Integer> loading = new HashSet<>();
+    // Tasks of the loads started since the last refresh, so they can be cancelled
+    private final List<TaskRunner.BackgroundTask<Page<T>>> inFlight = new ArrayList<>();
+    private int size;
+    private SortOrder sort = SortOrder.ASCENDING;
+    // Results of loads started before a refresh or re-sort are dropped
+    private int generation;
+    private int lastViewedPage;
+
+    /**
+     * @param name What the rows are, for task names and logs, e.g. "appointments"
+     */
+    public PagedList(String name, PageLoader<T> loader) {
+        this(name, loader, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    public PagedList(String name, PageLoader<T> loader, int pageSize, int maxPages) {
+        this.name = name;
+        this.loader = loader;
+        this.pageSize = Math.max(pageSize, 1);
+        this.maxPages = Math.max(maxPages, 3);
+    }
+
+    /**
+     * Shows the list in the table. Clicking the sort column's header re-sorts in the database;
+     * the other columns are not sortable, as only loaded rows could be sorted in memory.
+     */
+    public void bindTo(TableView<T> table, TableColumn<T, ?> sortColumn) {
+        for (TableColumn<T, ?> column : table.getColumns()) {
+            column.setSortable(column == sortColumn);
+        }
+        table.setSortPolicy(t -> {
+            // Other lists (e.g. search results) are shown as they come
+            if (t.getItems() == this) {
+                boolean descending = !t.getSortOrder().isEmpty()
+                    && t.getSortOrder().get(0).getSortType() == TableColumn.SortType.DESCENDING;
+                setSortOrder(descending ? SortOrder.DESCENDING : SortOrder.ASCENDING);
+            }
+            return true;
+        });
+        table.setItems(this);
+    }
+
+    public SortOrder getSortOrder() {
+        return sort;
+    }
+
+    /**
+     * Reloads the list from the first page in the new order
+     */
+    public void setSortOrder(SortOrder sortOrder) {
+        if (sortOrder == null || sortOrder == sort) {
+            return;
+        }
+        sort = sortOrder;
+        generation++;
+        cancelLoads();
+        stalePages.clear();
+        lastViewedPage = 0;
+        List<T> removed = snapshot(0, size);
+        pages.clear();
+        size = 0;
+        if (!removed.isEmpty()) {
+            beginChange();
+            nextRemove(0, removed);
+            endChange();
+        }
+        request(0);
+    }
+
+    /**
+     * Reloads the pages around the one last viewed, which stay visible until their new rows
+     * arrive; every other page is dropped and loaded again when scrolled to
+     */
+    public void refresh() {
+        generation++;
+        cancelLoads();
+        pages.keySet().removeIf(page -> Math.abs(page - lastViewedPage) > 1);
+        stalePages.clear();
+        stalePages.addAll(pages.keySet());
+        if (size == 0) {
+            request(0);
+            return;
+        }
+        for (int page = lastViewedPage - 1; page <= lastViewedPage + 1; page++) {
+            request(page);
+        }
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        int page = index / pageSize;
+        lastViewedPage = page;
+        request(page);
+        request(page - 1);
+        request(page + 1);
+        return peek(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Searches the loaded rows only, so lookups by the table's selection model do not load every page
+     */
+    @Override
+    public int indexOf(Object o) {
+        int found = -1;
+        for (Map.Entry<Integer, List<T>> entry : pages.entrySet()) {
+            int i = entry.getValue().indexOf(o);
+            if (i >= 0) {
+                int index = entry.getKey() * pageSize + i;
+                if (index < size && (found < 0 || index < found)) {
+                    found = index;
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        int found = -1;
+        for (Map.Entry<Integer, List<T>> entry : pages.entrySet()) {
+            int i = entry.getValue().lastIndexOf(o);
+            if (i >= 0) {
+                found = Math.max(found, entry.getKey() * pageSize + i);
+            }
+        }
+        return found < size ? found : -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    private T peek(int index) {
+        List<T> rows = pages.get(index / pageSize);
+        int i = index % pageSize;
+        return rows != null && i < rows.size() ? rows.get(i) : null;
+    }
+
+    private List<T> snapshot(int from, int to) {
+        List<T> rows = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            rows.add(peek(i));
+        }
+        return rows;
+    }
+
+    private void request(int page) {
+        if (page < 0 || (page > 0 && page * pageSize >= size)) {
+            return;
+        }
+        if ((pages.containsKey(page) && !stalePages.contains(page)) || !loading.add(page)) {
+            return;
+        }
+        int offset = page * pageSize;
+        List<T> before = stalePages.contains(page - 1) ? null : pages.get(page - 1);
+        T previous = before != null && before.size() == pageSize ? before.get(pageSize - 1) : null;
+        int requestGeneration = generation;
+        SortOrder requestSort = sort;
+        TaskRunner.BackgroundTask<Page<T>> task = TaskRunner.runCancellable("Loading " + name,
+            t -> loader.load(offset, previous, pageSize, requestSort, t.getToken()), result -> {
+                if (requestGeneration == generation) {
+                    loading.remove(page);
+                    loaded(page, result);
+                }
+            }, error -> {
+                if (requestGeneration == generation) {
+                    loading.remove(page);
+                }
+                System.err.println("Error loading " + name + " page " + page + ": " + (error != null ? error.getMessage() : "unknown error"));
+            });
+        inFlight.removeIf(t -> t.isDone());
+        inFlight.add(task);
+    }
+
+    /**
+     * Aborts the loads in flight, including their queries, as their results would be dropped
+     */
+    private void cancelLoads() {
+        for (TaskRunner.BackgroundTask<Page<T>> task : inFlight) {
+            task.cancel();
+        }
+        inFlight.clear();
+        loading.clear();
+    }
+
+    private void loaded(int page, Page<T> result) {
+        List<T> rows = result.getItems();
+        int offset = page * pageSize;
+        int end = offset + rows.size();
+
+        int newSize;
+        if (!result.hasMore()) {
+            // The last page pins the exact size
+            newSize = end;
+        } else if (size == 0) {
+            // First page of a fresh list: trust the row estimate until the end is reached
+            newSize = (int) Math.max(result.getTotalEstimate(), end + pageSize);
+        } else if (end >= size) {
+            // The estimate was low; grow so scrolling can go on
+            newSize = end + pageSize;
+        } else {
+            newSize = size;
+        }
+
+        int replaceEnd = Math.min(end, size);
+        List<T> replaced = offset < replaceEnd ? snapshot(offset, replaceEnd) : new ArrayList<>();
+        List<T> removed = newSize < size ? snapshot(newSize, size) : new ArrayList<>();
+        int oldSize = size;
+
+        pages.put(page, rows);
+        stalePages.remove(page);
+        if (newSize < oldSize) {
+            pages.keySet().removeIf(p -> p * pageSize >= newSize);
+        }
+        size = newSize;
+
+        beginChange();
+        if (offset < replaceEnd) {
+            nextReplace(offset, replaceEnd, replaced);
+        }
+        if (newSize > oldSize) {
+            nextAdd(oldSize, newSize);
+        } else if (newSize < oldSize) {
+            nextRemove(newSize, removed);
+        }
+        endChange();
+
+        evictFarPages();
+    }
+
+    /**
+     * Drops the pages farthest from the one last viewed. No change is fired: those rows are off
+     * screen, and the table reads them again (loading them anew) when they are scrolled to.
+     */
+    private void evictFarPages() {
+        while (pages.size() > maxPages) {
+            int farthest = -1;
+            for (int page : pages.keySet()) {
+                if (farthest < 0 || Math.abs(page - lastViewedPage) > Math.abs(farthest - lastViewedPage)) {
+                    farthest = page;
+                }
+            }
+            pages.remove(farthest);
+            stalePages.remove(farthest);
+        }
+    }
+}
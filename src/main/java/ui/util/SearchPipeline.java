@@ -0,0 +1,114 @@
+package ui.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import util.CancellationToken;
+import util.EnvironmentConfig;
+
+/**
+ * Runs a search field's query in the background: input is debounced, each new input
+ * cancels the query still running for the previous one, and only the result for the
+ * latest input is handed to the JavaFX thread.
+ * The default debounce is SEARCH_DEBOUNCE_MS (150 ms).
+ */
+public class SearchPipeline<R> {
+
+    public static final long DEFAULT_DEBOUNCE_MS = EnvironmentConfig.getLongConfig("SEARCH_DEBOUNCE_MS", 150);
+
+    private static final ScheduledExecutorService debouncer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "search-debounce");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Also runs cancellations: Statement.cancel makes a round trip to the server
+    private static final ExecutorService workers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "search-query");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long debounceMs;
+    private final BiFunction<String, CancellationToken, R> query;
+    private final Consumer<R> onResult;
+    private final AtomicLong generation = new AtomicLong();
+    private ScheduledFuture<?> pending;
+    private CancellationToken current;
+
+    /**
+     * @param query Runs the search off the JavaFX thread; should stop early once the token is cancelled
+     * @param onResult Receives the result of the latest search on the JavaFX thread
+     */
+    public SearchPipeline(BiFunction<String, CancellationToken, R> query, Consumer<R> onResult) {
+        this(DEFAULT_DEBOUNCE_MS, query, onResult);
+    }
+
+    public SearchPipeline(long debounceMs, BiFunction<String, CancellationToken, R> query, Consumer<R> onResult) {
+        this.debounceMs = debounceMs;
+        this.query = query;
+        this.onResult = onResult;
+    }
+
+    /**
+     * Schedules a search for the text, superseding any earlier one
+     */
+    public synchronized void submit(String text) {
+        long searchGeneration = supersede();
+        CancellationToken token = new CancellationToken();
+        current = token;
+        pending = debouncer.schedule(() -> workers.execute(() -> run(text, token, searchGeneration)),
+            debounceMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops the pending or running search without starting another, e.g. when the field is cleared
+     */
+    public synchronized void cancel() {
+        supersede();
+        current = null;
+    }
+
+    private long supersede() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        CancellationToken previous = current;
+        if (previous != null) {
+            workers.execute(previous::cancel);
+        }
+        return generation.incrementAndGet();
+    }
+
+    private void run(String text, CancellationToken token, long searchGeneration) {
+        if (token.isCancelled()) {
+            return;
+        }
+        R result;
+        try {
+            result = query.apply(text, token);
+        } catch (CancellationException e) {
+            return;
+        } catch (RuntimeException e) {
+            System.err.println("Search for \"" + text + "\" failed: " + e.getMessage());
+            return;
+        }
+        if (token.isCancelled() || generation.get() != searchGeneration) {
+            return;
+        }
+        Platform.runLater(() -> {
+            // Checked again: input may have changed while this waited for the JavaFX thread
+            if (generation.get() == searchGeneration) {
+                onResult.accept(result);
+            }
+        });
+    }
+}
@@ -0,0 +1,216 @@
+package ui.util;
+
+import dao.DatabaseUnavailableException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.concurrent.Task;
+import util.CancellationToken;
+import util.EnvironmentConfig;
+
+/**
+ * Runs controller work (service and DAO calls) on a bounded background pool so the
+ * JavaFX thread never waits for the database. Success and failure callbacks run on
+ * the JavaFX thread. Configured with UI_TASK_THREADS and UI_TASK_QUEUE_CAPACITY;
+ * when the queue is full a task fails right away instead of piling up.
+ */
+public class TaskRunner {
+
+    /**
+     * Work that can report progress and react to cancellation through its task
+     */
+    public interface Work<T> {
+        T run(BackgroundTask<T> task) throws Exception;
+    }
+
+    /**
+     * Snapshot of the pool's counters
+     */
+    public static class Stats {
+        public final int queued;
+        public final int running;
+        public final long completed;
+        public final long failed;
+        public final long cancelled;
+        public final long rejected;
+        public final long maxWaitMs;
+
+        public Stats(int queued, int running, long completed, long failed, long cancelled, long rejected, long maxWaitMs) {
+            this.queued = queued;
+            this.running = running;
+            this.completed = completed;
+            this.failed = failed;
+            this.cancelled = cancelled;
+            this.rejected = rejected;
+            this.maxWaitMs = maxWaitMs;
+        }
+    }
+
+    private static final int threads = (int) EnvironmentConfig.getLongConfig("UI_TASK_THREADS", 4);
+    private static final int queueCapacity = (int) EnvironmentConfig.getLongConfig("UI_TASK_QUEUE_CAPACITY", 100);
+
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+        30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "ui-task-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Tasks submitted and not yet finished; only changed on the JavaFX thread
+    private static final ReadOnlyIntegerWrapper pending = new ReadOnlyIntegerWrapper();
+
+    private static final LongAdder completed = new LongAdder();
+    private static final LongAdder failed = new LongAdder();
+    private static final LongAdder cancelled = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+    private static final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Runs the work in the background; failures are logged and shown in an error dialog
+     * @param name Short description for logs and error messages, e.g. "Loading doctors"
+     */
+    public static <T> BackgroundTask<T> run(String name, Callable<T> work, Consumer<? super T> onSuccess) {
+        return run(name, work, onSuccess, defaultFailureHandler(name));
+    }
+
+    public static <T> BackgroundTask<T> run(String name, Callable<T> work, Consumer<? super T> onSuccess,
+                                            Consumer<Throwable> onFailure) {
+        return runCancellable(name, task -> work.call(), onSuccess, onFailure);
+    }
+
+    /**
+     * Runs work that takes its task, to report progress or pass the task's token to cancellable queries
+     */
+    public static <T> BackgroundTask<T> runCancellable(String name, Work<T> work, Consumer<? super T> onSuccess,
+                                                       Consumer<Throwable> onFailure) {
+        BackgroundTask<T> task = new BackgroundTask<>(name, work);
+        task.setOnSucceeded(e -> {
+            finished();
+            completed.increment();
+            onSuccess.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            finished();
+            failed.increment();
+            onFailure.accept(task.getException());
+        });
+        task.setOnCancelled(e -> {
+            finished();
+            cancelled.increment();
+        });
+        onFxThread(() -> pending.set(pending.get() + 1));
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            onFxThread(() -> {
+                finished();
+                onFailure.accept(new RejectedExecutionException(name + ": too many background tasks, try again"));
+            });
+        }
+        return task;
+    }
+
+    /**
+     * Number of submitted tasks that have not finished, e.g. for a busy indicator
+     */
+    public static ReadOnlyIntegerProperty pendingTasksProperty() {
+        return pending.getReadOnlyProperty();
+    }
+
+    public static Stats getStats() {
+        return new Stats(executor.getQueue().size(), executor.getActiveCount(), completed.sum(), failed.sum(),
+            cancelled.sum(), rejected.sum(), maxWaitNanos.get() / 1_000_000);
+    }
+
+    private static void finished() {
+        pending.set(pending.get() - 1);
+    }
+
+    private static Consumer<Throwable> defaultFailureHandler(String name) {
+        return error -> {
+            if (error instanceof DatabaseUnavailableException) {
+                // Expected while the database is down; the breaker retries on its own
+                long retryIn = ((DatabaseUnavailableException) error).getRetryInMs();
+                System.err.println(name + " skipped: database unavailable");
+                AlertUtil.showError("Database Unavailable", name + " failed: the database cannot be reached. "
+                    + (retryIn > 0 ? "Reconnecting in " + (retryIn + 999) / 1000 + " s." : "Reconnecting..."));
+                return;
+            }
+            String message = error != null ? error.getMessage() : "unknown error";
+            System.err.println(name + " failed: " + message);
+            AlertUtil.showError("Error", name + " failed: " + message);
+        };
+    }
+
+    private static void onFxThread(Runnable action) {
+        if (Platform.isFxApplicationThread()) {
+            action.run();
+        } else {
+            Platform.runLater(action);
+        }
+    }
+
+    /**
+     * A submitted task. Cancelling it also cancels its token, which aborts queries registered on it.
+     */
+    public static class BackgroundTask<T> extends Task<T> {
+        private final String name;
+        private final Work<T> work;
+        private final CancellationToken token = new CancellationToken();
+        private final long submittedAt = System.nanoTime();
+
+        BackgroundTask(String name, Work<T> work) {
+            this.name = name;
+            this.work = work;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public CancellationToken getToken() {
+            return token;
+        }
+
+        public void reportProgress(long done, long total) {
+            updateProgress(done, total);
+        }
+
+        public void reportMessage(String message) {
+            updateMessage(message);
+        }
+
+        @Override
+        protected T call() throws Exception {
+            maxWaitNanos.accumulateAndGet(System.nanoTime() - submittedAt, Math::max);
+            if (isCancelled()) {
+                return null;
+            }
+            return work.run(this);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean result = super.cancel(mayInterruptIfRunning);
+            // Statement.cancel talks to the server; keep it off the calling (usually JavaFX) thread
+            CompletableFuture.runAsync(token::cancel);
+            return result;
+        }
+    }
+}
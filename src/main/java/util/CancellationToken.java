@@ -0,0 +1,75 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Lets the caller of a long-running operation stop it. The operation checks
+ * {@link #isCancelled()} between steps and registers callbacks (e.g. Statement.cancel
+ * for a running query) that cancel() runs once.
+ */
+public class CancellationToken {
+
+    private final List<Runnable> callbacks = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    /**
+     * Marks the token cancelled and runs the registered callbacks on the calling thread
+     */
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (Runnable callback : toRun) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                System.err.println("Cancellation callback failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if the token has been cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Operation cancelled");
+        }
+    }
+
+    /**
+     * Registers a callback for cancel(); it runs right away if the token is already cancelled.
+     * Close the returned registration when the guarded step is over.
+     */
+    public Registration onCancel(Runnable callback) {
+        synchronized (this) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return () -> {
+                    synchronized (this) {
+                        callbacks.remove(callback);
+                    }
+                };
+            }
+        }
+        callback.run();
+        return () -> { };
+    }
+
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
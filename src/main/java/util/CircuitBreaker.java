@@ -0,0 +1,188 @@
+package util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Circuit breaker for a remote resource. After a run of consecutive failures it opens and
+ * callers are turned away at once instead of each waiting for the resource to time out.
+ * While open, a background probe retries with exponential backoff and jitter; during a
+ * probe the breaker is half-open, and a successful probe closes it again.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Checks whether the resource is back; throwing means it is not
+     */
+    public interface Probe {
+        void run() throws Exception;
+    }
+
+    /**
+     * Snapshot of the breaker
+     */
+    public static class Stats {
+        public final State state;
+        public final int consecutiveFailures;
+        public final long trips;
+        public final long rejected;
+        public final int probeAttempts;
+        public final long nextProbeInMs;
+        public final String lastError;
+
+        public Stats(State state, int consecutiveFailures, long trips, long rejected, int probeAttempts,
+                     long nextProbeInMs, String lastError) {
+            this.state = state;
+            this.consecutiveFailures = consecutiveFailures;
+            this.trips = trips;
+            this.rejected = rejected;
+            this.probeAttempts = probeAttempts;
+            this.nextProbeInMs = nextProbeInMs;
+            this.lastError = lastError;
+        }
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final Probe probe;
+    private final ScheduledExecutorService scheduler;
+    private final List<Consumer<Stats>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile State state = State.CLOSED;
+    private volatile long nextProbeAt;
+    private volatile String lastError;
+    private int consecutiveFailures;
+    private int probeAttempts;
+    private final AtomicLong trips = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param failureThreshold Consecutive failures that open the breaker
+     * @param baseBackoffMs Delay before the first probe; doubles with every failed probe
+     * @param maxBackoffMs Upper bound for the probe delay
+     */
+    public CircuitBreaker(String name, int failureThreshold, long baseBackoffMs, long maxBackoffMs, Probe probe) {
+        this.name = name;
+        this.failureThreshold = Math.max(failureThreshold, 1);
+        this.baseBackoffMs = Math.max(baseBackoffMs, 1);
+        this.maxBackoffMs = Math.max(maxBackoffMs, this.baseBackoffMs);
+        this.probe = probe;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name + "-reconnect");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Whether a call may go ahead; counts a rejection if not
+     */
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public synchronized void recordSuccess() {
+        if (state == State.CLOSED) {
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * Counts a failed call; opens the breaker when the threshold is reached.
+     * Failures while already open are left to the probe.
+     */
+    public synchronized void recordFailure(Throwable error) {
+        lastError = error != null ? error.getMessage() : null;
+        if (state != State.CLOSED || ++consecutiveFailures < failureThreshold) {
+            return;
+        }
+        state = State.OPEN;
+        probeAttempts = 0;
+        trips.incrementAndGet();
+        scheduleProbe();
+        System.err.println("✗ " + name + " circuit opened after " + failureThreshold + " consecutive failures: " + lastError);
+        notifyListeners();
+    }
+
+    /**
+     * Receives a snapshot on every state change, on the breaker's thread or the failing caller's.
+     * Called with the breaker locked, so that snapshots arrive in order; hand off any real work.
+     */
+    public void addListener(Consumer<Stats> listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized Stats getStats() {
+        long nextProbeIn = state == State.OPEN ? Math.max(0, nextProbeAt - System.currentTimeMillis()) : 0;
+        return new Stats(state, consecutiveFailures, trips.get(), rejected.get(), probeAttempts, nextProbeIn, lastError);
+    }
+
+    // Caller holds the lock
+    private void scheduleProbe() {
+        long delay = backoff(probeAttempts);
+        nextProbeAt = System.currentTimeMillis() + delay;
+        scheduler.schedule(this::runProbe, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": half the delay is fixed, the other half random,
+     * so workstations that lost the database together do not all come back at the same moment
+     */
+    private long backoff(int attempt) {
+        long delay = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt, 30));
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    private void runProbe() {
+        synchronized (this) {
+            state = State.HALF_OPEN;
+            notifyListeners();
+        }
+        // The probe itself runs unlocked so callers are never held up by it
+        try {
+            probe.run();
+            synchronized (this) {
+                System.out.println("✓ " + name + " circuit closed after " + (probeAttempts + 1) + " probe(s)");
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+                probeAttempts = 0;
+                notifyListeners();
+            }
+        } catch (Exception e) {
+            synchronized (this) {
+                lastError = e.getMessage();
+                probeAttempts++;
+                state = State.OPEN;
+                scheduleProbe();
+                notifyListeners();
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void notifyListeners() {
+        Stats stats = getStats();
+        for (Consumer<Stats> listener : listeners) {
+            listener.accept(stats);
+        }
+    }
+}
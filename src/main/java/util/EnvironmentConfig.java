@@ -78,4 +78,43 @@ public class EnvironmentConfig {
         
         throw new RuntimeException("Configuration key not found: " + key);
     }
+    
+    /**
+     * Get a numeric configuration value
+     * @param key The configuration key
+     * @param defaultValue Default value if key not found or not a number
+     * @return Configuration value
+     */
+    public static long getLongConfig(String key, long defaultValue) {
+        String value = getConfig(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("⚠ Invalid number for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Get an enum configuration value; matching ignores case and treats '-' as '_'
+     * @param key The configuration key
+     * @param type The enum class
+     * @param defaultValue Default value if key not found or not a constant of the enum
+     * @return Configuration value
+     */
+    public static <E extends Enum<E>> E getEnumConfig(String key, Class<E> type, E defaultValue) {
+        String value = getConfig(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().replace('-', '_').toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("⚠ Invalid value for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
 }
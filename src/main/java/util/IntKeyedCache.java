@@ -0,0 +1,698 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Cache for entities keyed by an int ID, with the same behaviour as {@link SimpleCache}
+ * (bounded size, TTL, refresh-after-write, single-flight and negative caching) but
+ * without boxing keys or allocating a map node per entry on the hit path.
+ * Entries live in open-addressing (linear probing) tables split into lock-striped
+ * segments; reads are optimistic and take no lock unless they race with a write.
+ * Eviction uses the CLOCK algorithm: a read marks an entry, and the eviction hand
+ * gives marked entries a second chance before removing them.
+ */
+public class IntKeyedCache<V> {
+
+    private static final int SEGMENT_COUNT = 16;
+    private static final int SEGMENT_SHIFT = 32 - Integer.numberOfTrailingZeros(SEGMENT_COUNT);
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Stored instead of a value for IDs the loader reported as nonexistent
+    private static final Object ABSENT = new Object();
+    // Returned by Segment.probe for an entry found past its expiry
+    private static final Object EXPIRED = new Object();
+    // Write time of a missing entry, and the "any entry" condition for Segment.put
+    private static final long NONE = Long.MIN_VALUE;
+
+    private static final ExecutorService refreshExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "int-cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Segment[] segments;
+    private final long maximumSize;
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private final long negativeTtlNanos;
+    private final IntFunction<? extends V> refreshLoader;
+
+    // Only touched on misses and refreshes, so boxing the key here is acceptable
+    private final ConcurrentHashMap<Integer, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final Set<Integer> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder putCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder expirationCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+
+    /**
+     * @param maximumSize Maximum number of entries
+     * @param expireAfterWriteMs Time-to-live of an entry in milliseconds (0 = never expires)
+     */
+    public IntKeyedCache(long maximumSize, long expireAfterWriteMs) {
+        this(maximumSize, expireAfterWriteMs, 0, null, 0);
+    }
+
+    /**
+     * @param maximumSize Maximum number of entries
+     * @param expireAfterWriteMs Time-to-live of an entry in milliseconds (0 = never expires)
+     * @param refreshAfterWriteMs Age after which a read triggers a background reload (0 = no refresh)
+     * @param refreshLoader Loads the current value for a key; returning null removes the entry,
+     *                      throwing keeps it until the next refresh or its expiry
+     * @param negativeTtlMs How long a key the loader found no value for is remembered as absent (0 = not cached)
+     */
+    public IntKeyedCache(long maximumSize, long expireAfterWriteMs, long refreshAfterWriteMs,
+                         IntFunction<? extends V> refreshLoader, long negativeTtlMs) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.maximumSize = maximumSize;
+        segments = newSegmentArray();
+        int perSegment = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 4, (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT));
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, expireAfterWriteMs));
+        this.refreshAfterWriteNanos = refreshLoader == null ? 0 : TimeUnit.MILLISECONDS.toNanos(Math.max(0, refreshAfterWriteMs));
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, negativeTtlMs));
+        this.refreshLoader = refreshLoader;
+    }
+
+    /**
+     * Returns the cached value, or null if absent (or cached as known-missing)
+     */
+    public V get(int key) {
+        Object value = lookup(key);
+        return value == ABSENT ? null : cast(value);
+    }
+
+    /**
+     * Returns the cached value, loading it on a miss. Concurrent callers missing on the
+     * same key share one load instead of each querying the source.
+     * @param loader Loads the value; null means the key does not exist
+     * @return Value, or null if the key does not exist
+     */
+    public V get(int key, IntFunction<? extends V> loader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return cached == ABSENT ? null : cast(cached);
+        }
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // Another load may have finished between our miss and registering this one
+            Object current = segmentFor(key).find(key, System.nanoTime());
+            if (current != null) {
+                V value = current == ABSENT ? null : cast(current);
+                load.complete(value);
+                return value;
+            }
+            loadCount.increment();
+            V value = loader.apply(key);
+            storeLoaded(key, value, load);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    /**
+     * Returns the values for all keys, loading every missing key in one call to the bulk loader
+     * @param bulkLoader Loads the given keys; keys absent from its result do not exist
+     * @return Values by key; keys that do not exist are absent
+     */
+    public Map<Integer, V> getAll(Collection<Integer> keys, Function<? super Set<Integer>, ? extends Map<Integer, V>> bulkLoader) {
+        Map<Integer, V> result = new HashMap<>();
+        Map<Integer, CompletableFuture<V>> waitFor = new HashMap<>();
+        Map<Integer, CompletableFuture<V>> mine = new HashMap<>();
+        for (Integer key : new LinkedHashSet<>(keys)) {
+            Object cached = lookup(key);
+            if (cached != null) {
+                if (cached != ABSENT) {
+                    result.put(key, cast(cached));
+                }
+                continue;
+            }
+            CompletableFuture<V> load = new CompletableFuture<>();
+            CompletableFuture<V> running = loading.putIfAbsent(key, load);
+            if (running != null) {
+                waitFor.put(key, running);
+            } else {
+                mine.put(key, load);
+            }
+        }
+
+        if (!mine.isEmpty()) {
+            try {
+                loadCount.increment();
+                Map<Integer, V> loaded = bulkLoader.apply(mine.keySet());
+                for (Map.Entry<Integer, CompletableFuture<V>> entry : mine.entrySet()) {
+                    V value = loaded == null ? null : loaded.get(entry.getKey());
+                    storeLoaded(entry.getKey(), value, entry.getValue());
+                    entry.getValue().complete(value);
+                    if (value != null) {
+                        result.put(entry.getKey(), value);
+                    }
+                }
+            } catch (RuntimeException e) {
+                mine.values().forEach(load -> load.completeExceptionally(e));
+                throw e;
+            } finally {
+                mine.forEach(loading::remove);
+            }
+        }
+        for (Map.Entry<Integer, CompletableFuture<V>> entry : waitFor.entrySet()) {
+            V value = await(entry.getValue());
+            if (value != null) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    public void put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Cache values must not be null");
+        }
+        segmentFor(key).put(key, value, expireAfterWriteNanos, NONE, null, false);
+    }
+
+    /**
+     * Caches the value unless the key already has a live value, e.g. for rows read by a
+     * query that may have raced with a write which cached a newer copy
+     */
+    public void putIfAbsent(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Cache values must not be null");
+        }
+        segmentFor(key).put(key, value, expireAfterWriteNanos, NONE, null, true);
+    }
+
+    public void invalidate(int key) {
+        Segment segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            // A load already running may have read the old row; do not let it cache the result
+            loading.remove(key);
+            segment.remove(key);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long[] stamps = new long[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            stamps[i] = segments[i].lock.writeLock();
+        }
+        try {
+            loading.clear();
+            for (Segment segment : segments) {
+                segment.reset();
+            }
+        } finally {
+            for (int i = 0; i < SEGMENT_COUNT; i++) {
+                segments[i].lock.unlockWrite(stamps[i]);
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the live cached values (not known-missing or expired ones), e.g. for snapshots
+     */
+    public List<V> values() {
+        List<V> result = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                segment.collectLive(now, result);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    public long maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Removes all expired entries now instead of waiting for them to be read or evicted
+     */
+    public void cleanUp() {
+        long now = System.nanoTime();
+        for (Segment segment : segments) {
+            long stamp = segment.lock.writeLock();
+            try {
+                segment.removeExpired(now);
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    public SimpleCache.Stats stats() {
+        long hits = hitCount.sum();
+        long misses = missCount.sum();
+        long total = hits + misses;
+        double hitRate = total == 0 ? 0.0 : (double) hits / total;
+        return new SimpleCache.Stats(hits, misses, putCount.sum(), hitRate,
+            evictionCount.sum(), expirationCount.sum(), loadCount.sum());
+    }
+
+    private Object lookup(int key) {
+        long now = System.nanoTime();
+        Segment segment = segmentFor(key);
+        Object value = segment.find(key, now);
+        if (value == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        if (refreshAfterWriteNanos > 0 && value != ABSENT) {
+            long writtenAt = segment.writtenAt(key);
+            if (writtenAt != NONE && now - writtenAt > refreshAfterWriteNanos) {
+                scheduleRefresh(key, writtenAt);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Caches a loaded value (or the key's absence) unless the key was invalidated while loading
+     */
+    private void storeLoaded(int key, V value, CompletableFuture<V> load) {
+        if (value != null) {
+            segmentFor(key).put(key, value, expireAfterWriteNanos, NONE, load, false);
+        } else if (negativeTtlNanos > 0) {
+            segmentFor(key).put(key, ABSENT, negativeTtlNanos, NONE, load, false);
+        }
+    }
+
+    private void scheduleRefresh(int key, long writtenAt) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    V value = refreshLoader.apply(key);
+                    Segment segment = segmentFor(key);
+                    if (value != null) {
+                        // Only replace the entry that triggered the refresh, not a newer write
+                        segment.put(key, value, expireAfterWriteNanos, writtenAt, null, false);
+                    } else {
+                        long stamp = segment.lock.writeLock();
+                        try {
+                            segment.removeIfWrittenAt(key, writtenAt);
+                        } finally {
+                            segment.lock.unlockWrite(stamp);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Cache refresh failed for key " + key + ": " + e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private Segment segmentFor(int key) {
+        return segments[hash(key) >>> SEGMENT_SHIFT];
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Segment[] newSegmentArray() {
+        return (Segment[]) new IntKeyedCache<?>.Segment[SEGMENT_COUNT];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V cast(Object value) {
+        return (V) value;
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Slot arrays of one segment. Replaced as a whole on resize and reset, so a lock-free
+     * reader that reads the segment's table once always sees arrays of the same length.
+     * An empty slot has a null value.
+     */
+    private static final class Table {
+        final int[] keys;
+        final Object[] values;
+        final long[] expiresAt;
+        final long[] writtenAt;
+        final byte[] referenced;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            values = new Object[capacity];
+            expiresAt = new long[capacity];
+            writtenAt = new long[capacity];
+            referenced = new byte[capacity];
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        int indexOf(int key) {
+            int i = hash(key) & mask;
+            for (int n = 0; n <= mask; n++, i = (i + 1) & mask) {
+                if (values[i] == null) {
+                    return -1;
+                }
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * One lock stripe: a linear-probing table holding the key, value, expiry, write time
+     * and CLOCK reference bit of each slot.
+     */
+    private final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private final int maxEntries;
+        private Table table = new Table(INITIAL_CAPACITY);
+        private volatile int count;
+        private int hand;
+
+        Segment(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        /**
+         * Optimistic lookup; retries under the read lock only if a write happened meanwhile
+         * @return Value, ABSENT, or null if missing or expired
+         */
+        Object find(int key, long now) {
+            long stamp = lock.tryOptimisticRead();
+            Object value = probe(table, key, now);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    value = probe(table, key, now);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            if (value == EXPIRED) {
+                expire(key, now);
+                return null;
+            }
+            return value;
+        }
+
+        /**
+         * Without the lock the slots may be mid-update, so the result is only trusted
+         * once the caller validates its stamp
+         */
+        private Object probe(Table t, int key, long now) {
+            int i = hash(key) & t.mask;
+            for (int n = 0; n <= t.mask; n++, i = (i + 1) & t.mask) {
+                Object value = t.values[i];
+                if (value == null) {
+                    return null;
+                }
+                if (t.keys[i] == key) {
+                    long expiry = t.expiresAt[i];
+                    if (expiry != 0 && now - expiry >= 0) {
+                        return EXPIRED;
+                    }
+                    // Racy write is fine: a lost reference bit (or one set in a table that
+                    // was just replaced) only costs the entry one second chance
+                    t.referenced[i] = 1;
+                    return value;
+                }
+            }
+            return null;
+        }
+
+        long writtenAt(int key) {
+            long stamp = lock.tryOptimisticRead();
+            long result = readWrittenAt(table, key);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    result = readWrittenAt(table, key);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return result;
+        }
+
+        private long readWrittenAt(Table t, int key) {
+            int index = t.indexOf(key);
+            return index < 0 ? NONE : t.writtenAt[index];
+        }
+
+        /**
+         * @param expectedWrittenAt Only replace an entry written at this time (NONE = unconditional)
+         * @param load Only store if this load is still the registered one (null = unconditional)
+         * @param onlyIfAbsent Keep a live cached value instead of replacing it
+         */
+        void put(int key, Object value, long ttlNanos, long expectedWrittenAt, CompletableFuture<V> load, boolean onlyIfAbsent) {
+            long stamp = lock.writeLock();
+            try {
+                if (load != null && loading.get(key) != load) {
+                    return;
+                }
+                Table t = table;
+                int index = t.indexOf(key);
+                if (expectedWrittenAt != NONE && (index < 0 || t.writtenAt[index] != expectedWrittenAt)) {
+                    return;
+                }
+                long now = System.nanoTime();
+                if (onlyIfAbsent && index >= 0 && t.values[index] != ABSENT
+                        && (t.expiresAt[index] == 0 || now - t.expiresAt[index] < 0)) {
+                    return;
+                }
+                if (index < 0) {
+                    if (count >= maxEntries) {
+                        evictOne(now);
+                    }
+                    if ((count + 1) * 2 > t.capacity()) {
+                        resize(t.capacity() * 2);
+                        t = table;
+                    }
+                    index = hash(key) & t.mask;
+                    while (t.values[index] != null) {
+                        index = (index + 1) & t.mask;
+                    }
+                    t.keys[index] = key;
+                    t.referenced[index] = 0;
+                    count++;
+                }
+                t.values[index] = value;
+                t.expiresAt[index] = ttlNanos == 0 ? 0 : now + ttlNanos;
+                t.writtenAt[index] = now;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            putCount.increment();
+        }
+
+        /** Requires the write lock */
+        void remove(int key) {
+            int index = table.indexOf(key);
+            if (index >= 0) {
+                removeAt(index);
+            }
+        }
+
+        /** Requires the write lock */
+        void removeIfWrittenAt(int key, long expectedWrittenAt) {
+            int index = table.indexOf(key);
+            if (index >= 0 && table.writtenAt[index] == expectedWrittenAt) {
+                removeAt(index);
+            }
+        }
+
+        /** Requires the write lock */
+        void reset() {
+            table = new Table(INITIAL_CAPACITY);
+            hand = 0;
+            count = 0;
+        }
+
+        /** Requires the write lock */
+        void removeExpired(long now) {
+            Table t = table;
+            for (int i = 0; i < t.capacity(); i++) {
+                while (t.values[i] != null && t.expiresAt[i] != 0 && now - t.expiresAt[i] >= 0) {
+                    // removeAt may shift a later entry into slot i, so check it again
+                    removeAt(i);
+                    expirationCount.increment();
+                }
+            }
+        }
+
+        /** Requires the read or write lock */
+        void collectLive(long now, List<V> result) {
+            Table t = table;
+            for (int i = 0; i < t.capacity(); i++) {
+                Object value = t.values[i];
+                long expiry = t.expiresAt[i];
+                if (value != null && value != ABSENT && (expiry == 0 || now - expiry < 0)) {
+                    result.add(cast(value));
+                }
+            }
+        }
+
+        private void expire(int key, long now) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int index = t.indexOf(key);
+                if (index >= 0 && t.expiresAt[index] != 0 && now - t.expiresAt[index] >= 0) {
+                    removeAt(index);
+                    expirationCount.increment();
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * CLOCK eviction: expired entries go first, referenced entries get a second chance
+         */
+        private void evictOne(long now) {
+            Table t = table;
+            for (int scanned = 0; scanned <= 2 * t.capacity(); scanned++) {
+                int i = hand;
+                hand = (hand + 1) & t.mask;
+                if (t.values[i] == null) {
+                    continue;
+                }
+                if (t.expiresAt[i] != 0 && now - t.expiresAt[i] >= 0) {
+                    removeAt(i);
+                    expirationCount.increment();
+                    return;
+                }
+                if (t.referenced[i] != 0) {
+                    t.referenced[i] = 0;
+                    continue;
+                }
+                removeAt(i);
+                evictionCount.increment();
+                return;
+            }
+        }
+
+        /**
+         * Backward-shift deletion keeps probe chains intact without tombstones
+         */
+        private void removeAt(int index) {
+            Table t = table;
+            int hole = index;
+            int next = index;
+            while (true) {
+                next = (next + 1) & t.mask;
+                if (t.values[next] == null) {
+                    break;
+                }
+                int ideal = hash(t.keys[next]) & t.mask;
+                boolean reachable = hole <= next
+                    ? (hole < ideal && ideal <= next)
+                    : (hole < ideal || ideal <= next);
+                if (reachable) {
+                    continue;
+                }
+                t.keys[hole] = t.keys[next];
+                t.values[hole] = t.values[next];
+                t.expiresAt[hole] = t.expiresAt[next];
+                t.writtenAt[hole] = t.writtenAt[next];
+                t.referenced[hole] = t.referenced[next];
+                hole = next;
+            }
+            t.values[hole] = null;
+            t.referenced[hole] = 0;
+            count--;
+        }
+
+        /**
+         * Rehashes into a new table and publishes it with a single field write
+         */
+        private void resize(int capacity) {
+            Table old = table;
+            Table t = new Table(capacity);
+            for (int i = 0; i < old.capacity(); i++) {
+                if (old.values[i] == null) {
+                    continue;
+                }
+                int index = hash(old.keys[i]) & t.mask;
+                while (t.values[index] != null) {
+                    index = (index + 1) & t.mask;
+                }
+                t.keys[index] = old.keys[i];
+                t.values[index] = old.values[i];
+                t.expiresAt[index] = old.expiresAt[i];
+                t.writtenAt[index] = old.writtenAt[i];
+                t.referenced[index] = old.referenced[i];
+            }
+            table = t;
+            hand = 0;
+        }
+    }
+}
@@ -1,50 +1,542 @@
 package util;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
 /**
- * Minimal in-memory cache with hit/miss tracking.
+ * Bounded in-memory cache with hit/miss tracking.
+ * Eviction is segmented LRU: new entries enter a probation segment and are promoted
+ * to a protected segment on their second access, so one-off lookups (e.g. scrolling
+ * through a long list) cannot flush the entries that are used over and over.
+ * Entries can expire after a time-to-live and, when a refresh loader is given,
+ * are reloaded in the background once they are older than the refresh interval.
+ * {@link #get(Object, Function)} loads missing entries with at most one load per key
+ * in flight, and can remember keys that do not exist (negative caching).
  */
 public class SimpleCache<K, V> {
-    private final ConcurrentHashMap<K, V> store = new ConcurrentHashMap<>();
+
+    /**
+     * Computes the weight of an entry, e.g. an estimate of its size in bytes
+     */
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    // Share of the capacity reserved for entries that have been accessed more than once
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private static final ExecutorService refreshExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ConcurrentHashMap<K, Node<K, V>> store = new ConcurrentHashMap<>();
+    // Loads currently running per key; concurrent misses wait on the same future
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final Node<K, V> probation = Node.sentinel();
+    private final Node<K, V> protectedSegment = Node.sentinel();
+
+    private final long maximumWeight;
+    private final long protectedMaximumWeight;
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private final long negativeTtlNanos;
+    private final Weigher<? super K, ? super V> weigher;
+    private final Function<? super K, ? extends V> refreshLoader;
+
+    private long totalWeight;
+    private long protectedWeight;
+
     private final AtomicLong hitCount = new AtomicLong();
     private final AtomicLong missCount = new AtomicLong();
     private final AtomicLong putCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * Creates a cache holding up to {@value #DEFAULT_MAXIMUM_SIZE} entries that never expire
+     */
+    public SimpleCache() {
+        this(DEFAULT_MAXIMUM_SIZE, 0);
+    }
+
+    /**
+     * @param maximumSize Maximum number of entries
+     * @param expireAfterWriteMs Time-to-live of an entry in milliseconds (0 = never expires)
+     */
+    public SimpleCache(long maximumSize, long expireAfterWriteMs) {
+        this(maximumSize, expireAfterWriteMs, 0, null, null);
+    }
 
+    /**
+     * @param maximumWeight Maximum total weight (entry count when no weigher is given)
+     * @param expireAfterWriteMs Time-to-live of an entry in milliseconds (0 = never expires)
+     * @param refreshAfterWriteMs Age after which a read triggers a background reload (0 = no refresh)
+     * @param weigher Entry weigher, or null to weigh every entry as 1
+     * @param refreshLoader Loads the current value for a key; returning null removes the entry
+     */
+    public SimpleCache(long maximumWeight, long expireAfterWriteMs, long refreshAfterWriteMs,
+                       Weigher<? super K, ? super V> weigher, Function<? super K, ? extends V> refreshLoader) {
+        this(maximumWeight, expireAfterWriteMs, refreshAfterWriteMs, weigher, refreshLoader, 0);
+    }
+
+    /**
+     * @param negativeTtlMs How long a key the loader found no value for is remembered as absent (0 = not cached)
+     * @see #SimpleCache(long, long, long, Weigher, Function)
+     */
+    public SimpleCache(long maximumWeight, long expireAfterWriteMs, long refreshAfterWriteMs,
+                       Weigher<? super K, ? super V> weigher, Function<? super K, ? extends V> refreshLoader,
+                       long negativeTtlMs) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumWeight must be positive");
+        }
+        this.maximumWeight = maximumWeight;
+        this.protectedMaximumWeight = (long) (maximumWeight * PROTECTED_RATIO);
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, expireAfterWriteMs));
+        this.refreshAfterWriteNanos = refreshLoader == null ? 0 : TimeUnit.MILLISECONDS.toNanos(Math.max(0, refreshAfterWriteMs));
+        this.weigher = weigher;
+        this.refreshLoader = refreshLoader;
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, negativeTtlMs));
+    }
+
+    /**
+     * Returns the cached value, or null if absent (or cached as known-missing)
+     */
     public V get(K key) {
-        V value = store.get(key);
-        if (value != null) {
-            hitCount.incrementAndGet();
-        } else {
+        Node<K, V> node = lookup(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Returns the cached value, loading it on a miss. Concurrent callers missing on the
+     * same key share one load instead of each querying the source.
+     * @param loader Loads the value; null means the key does not exist
+     * @return Value, or null if the key does not exist
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Node<K, V> node = lookup(key);
+        if (node != null) {
+            return node.value;
+        }
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // Another load may have finished between our miss and registering this one
+            Node<K, V> current = store.get(key);
+            if (current != null && !current.isExpired(System.nanoTime())) {
+                load.complete(current.value);
+                return current.value;
+            }
+            loadCount.incrementAndGet();
+            V value = loader.apply(key);
+            storeLoaded(key, value, load);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    /**
+     * Returns the values for all keys, loading every missing key in one call to the bulk loader.
+     * Keys already being loaded by another caller are waited for rather than loaded twice.
+     * @param bulkLoader Loads the given keys; keys absent from its result do not exist
+     * @return Values by key; keys that do not exist are absent
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys, Function<? super Set<K>, ? extends Map<K, V>> bulkLoader) {
+        Map<K, V> result = new HashMap<>();
+        Map<K, CompletableFuture<V>> waitFor = new HashMap<>();
+        Map<K, CompletableFuture<V>> mine = new HashMap<>();
+        for (K key : new LinkedHashSet<K>(keys)) {
+            Node<K, V> node = lookup(key);
+            if (node != null) {
+                if (node.value != null) {
+                    result.put(key, node.value);
+                }
+                continue;
+            }
+            CompletableFuture<V> load = new CompletableFuture<>();
+            CompletableFuture<V> running = loading.putIfAbsent(key, load);
+            if (running != null) {
+                waitFor.put(key, running);
+            } else {
+                mine.put(key, load);
+            }
+        }
+
+        if (!mine.isEmpty()) {
+            try {
+                loadCount.incrementAndGet();
+                Map<K, V> loaded = bulkLoader.apply(mine.keySet());
+                for (Map.Entry<K, CompletableFuture<V>> entry : mine.entrySet()) {
+                    V value = loaded == null ? null : loaded.get(entry.getKey());
+                    storeLoaded(entry.getKey(), value, entry.getValue());
+                    entry.getValue().complete(value);
+                    if (value != null) {
+                        result.put(entry.getKey(), value);
+                    }
+                }
+            } catch (RuntimeException e) {
+                mine.values().forEach(load -> load.completeExceptionally(e));
+                throw e;
+            } finally {
+                mine.forEach(loading::remove);
+            }
+        }
+        for (Map.Entry<K, CompletableFuture<V>> entry : waitFor.entrySet()) {
+            V value = await(entry.getValue());
+            if (value != null) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    private Node<K, V> lookup(K key) {
+        Node<K, V> node = store.get(key);
+        long now = System.nanoTime();
+        if (node == null || node.isExpired(now)) {
+            if (node != null) {
+                expire(node);
+            }
             missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        // Recency updates are best-effort: under contention a reader skips them rather than block
+        if (policyLock.tryLock()) {
+            try {
+                if (node.isLinked()) {
+                    onAccess(node);
+                }
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        if (refreshAfterWriteNanos > 0 && !node.negative && now - node.writeTime > refreshAfterWriteNanos) {
+            scheduleRefresh(node);
+        }
+        return node;
+    }
+
+    /**
+     * Caches a loaded value (or the key's absence) unless the key was invalidated while loading
+     */
+    private void storeLoaded(K key, V value, CompletableFuture<V> load) {
+        BooleanSupplier stillCurrent = () -> loading.get(key) == load;
+        if (value != null) {
+            putNode(key, value, expireAfterWriteNanos, false, stillCurrent);
+        } else if (negativeTtlNanos > 0) {
+            putNode(key, null, negativeTtlNanos, true, stillCurrent);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
-        return value;
     }
 
     public void put(K key, V value) {
-        store.put(key, value);
+        putNode(key, value, expireAfterWriteNanos, false, null);
+    }
+
+    /**
+     * Adds an entry with its own time-to-live instead of the cache default
+     * @param ttlMs Time-to-live in milliseconds (0 = never expires)
+     */
+    public void put(K key, V value, long ttlMs) {
+        putNode(key, value, TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMs)), false, null);
+    }
+
+    /**
+     * @param condition Checked under the policy lock; the entry is only stored if it holds (null = always)
+     */
+    private boolean putNode(K key, V value, long ttlNanos, boolean negative, BooleanSupplier condition) {
+        if (key == null || (value == null && !negative)) {
+            throw new NullPointerException("Cache keys and values must not be null");
+        }
+        int weight = weigher == null || negative ? 1 : Math.max(0, weigher.weigh(key, value));
+        long now = System.nanoTime();
+        Node<K, V> node = new Node<>(key, value, weight, now, ttlNanos == 0 ? 0 : now + ttlNanos, negative);
+
+        policyLock.lock();
+        try {
+            if (condition != null && !condition.getAsBoolean()) {
+                return false;
+            }
+            Node<K, V> previous = store.put(key, node);
+            if (previous != null && previous.isLinked()) {
+                // An updated entry keeps its segment; it has proven itself already if it was protected
+                boolean wasProtected = previous.isProtected;
+                unlink(previous);
+                if (wasProtected) {
+                    linkProtected(node);
+                } else {
+                    linkProbation(node);
+                }
+            } else {
+                linkProbation(node);
+            }
+            evictIfNeeded();
+        } finally {
+            policyLock.unlock();
+        }
         putCount.incrementAndGet();
+        return true;
     }
 
     public void invalidate(K key) {
-        store.remove(key);
+        policyLock.lock();
+        try {
+            // A load already running may have read the old row; do not let it cache the result
+            loading.remove(key);
+            Node<K, V> node = store.remove(key);
+            if (node != null && node.isLinked()) {
+                unlink(node);
+            }
+        } finally {
+            policyLock.unlock();
+        }
     }
 
     public void clear() {
-        store.clear();
+        policyLock.lock();
+        try {
+            store.clear();
+            loading.clear();
+            // Detach every node so readers still holding one do not touch the reset lists
+            detachAll(probation);
+            detachAll(protectedSegment);
+            totalWeight = 0;
+            protectedWeight = 0;
+        } finally {
+            policyLock.unlock();
+        }
     }
 
     public long size() {
         return store.size();
     }
 
+    /**
+     * Removes all expired entries now instead of waiting for them to be read or evicted
+     */
+    public void cleanUp() {
+        long now = System.nanoTime();
+        for (Node<K, V> node : store.values()) {
+            if (node.isExpired(now)) {
+                expire(node);
+            }
+        }
+    }
+
     public Stats stats() {
         long hits = hitCount.get();
         long misses = missCount.get();
         long total = hits + misses;
         double hitRate = total == 0 ? 0.0 : (double) hits / total;
-        return new Stats(hits, misses, putCount.get(), hitRate);
+        return new Stats(hits, misses, putCount.get(), hitRate, evictionCount.get(), expirationCount.get(), loadCount.get());
+    }
+
+    private void removeIf(Node<K, V> node) {
+        policyLock.lock();
+        try {
+            if (store.remove(node.key, node)) {
+                unlink(node);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void expire(Node<K, V> node) {
+        policyLock.lock();
+        try {
+            if (store.remove(node.key, node)) {
+                unlink(node);
+                expirationCount.incrementAndGet();
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void scheduleRefresh(Node<K, V> node) {
+        if (!node.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    V value = refreshLoader.apply(node.key);
+                    // Skip the result if the entry was replaced or invalidated while loading
+                    BooleanSupplier unchanged = () -> store.get(node.key) == node;
+                    if (value != null) {
+                        putNode(node.key, value, expireAfterWriteNanos, false, unchanged);
+                    } else {
+                        removeIf(node);
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Cache refresh failed for key " + node.key + ": " + e.getMessage());
+                    node.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            node.refreshing.set(false);
+        }
+    }
+
+    // ---- Segmented LRU policy; all methods below require policyLock ----
+
+    private void onAccess(Node<K, V> node) {
+        if (node.isProtected) {
+            moveToTail(protectedSegment, node);
+            return;
+        }
+        unlink(node);
+        linkProtected(node);
+        // Demote the least recently used protected entries back to probation
+        while (protectedWeight > protectedMaximumWeight && protectedSegment.next != protectedSegment) {
+            Node<K, V> demoted = protectedSegment.next;
+            unlink(demoted);
+            linkProbation(demoted);
+        }
+    }
+
+    private void evictIfNeeded() {
+        long now = System.nanoTime();
+        while (totalWeight > maximumWeight) {
+            Node<K, V> victim = probation.next != probation ? probation.next : protectedSegment.next;
+            if (victim == protectedSegment) {
+                break;
+            }
+            unlink(victim);
+            store.remove(victim.key, victim);
+            if (victim.isExpired(now)) {
+                expirationCount.incrementAndGet();
+            } else {
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    private void linkProbation(Node<K, V> node) {
+        node.isProtected = false;
+        linkTail(probation, node);
+        totalWeight += node.weight;
+    }
+
+    private void linkProtected(Node<K, V> node) {
+        node.isProtected = true;
+        linkTail(protectedSegment, node);
+        totalWeight += node.weight;
+        protectedWeight += node.weight;
+    }
+
+    private void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        totalWeight -= node.weight;
+        if (node.isProtected) {
+            protectedWeight -= node.weight;
+        }
+    }
+
+    private static <K, V> void detachAll(Node<K, V> head) {
+        Node<K, V> node = head.next;
+        while (node != head) {
+            Node<K, V> next = node.next;
+            node.prev = null;
+            node.next = null;
+            node = next;
+        }
+        head.prev = head;
+        head.next = head;
+    }
+
+    private static <K, V> void linkTail(Node<K, V> head, Node<K, V> node) {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private static <K, V> void moveToTail(Node<K, V> head, Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        linkTail(head, node);
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final int weight;
+        final long writeTime;
+        final long expiresAt;
+        // Marks a key the loader reported as nonexistent; value is null
+        final boolean negative;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        Node<K, V> prev;
+        Node<K, V> next;
+        boolean isProtected;
+
+        Node(K key, V value, int weight, long writeTime, long expiresAt, boolean negative) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+            this.expiresAt = expiresAt;
+            this.negative = negative;
+        }
+
+        static <K, V> Node<K, V> sentinel() {
+            Node<K, V> head = new Node<>(null, null, 0, 0, 0, false);
+            head.prev = head;
+            head.next = head;
+            return head;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt >= 0;
+        }
+
+        boolean isLinked() {
+            return prev != null;
+        }
     }
 
     public static class Stats {
@@ -52,12 +544,22 @@ public class SimpleCache<K, V> {
         public final long misses;
         public final long puts;
         public final double hitRate;
+        public final long evictions;
+        public final long expirations;
+        public final long loads;
 
         public Stats(long hits, long misses, long puts, double hitRate) {
+            this(hits, misses, puts, hitRate, 0, 0, 0);
+        }
+
+        public Stats(long hits, long misses, long puts, double hitRate, long evictions, long expirations, long loads) {
             this.hits = hits;
             this.misses = misses;
             this.puts = puts;
             this.hitRate = hitRate;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.loads = loads;
         }
     }
 }
@@ -0,0 +1,292 @@
+package util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory search over a few text fields of each item (names, phone numbers and the like).
+ * Text is lower-cased and stripped of accents, then split into words. Query terms of three
+ * or more characters are looked up by their trigrams and match anywhere inside a word;
+ * shorter terms match word prefixes through a sorted word map. Every term has to match.
+ * Results are ranked by how well they match: whole words before prefixes before
+ * substrings, and earlier fields before later ones.
+ */
+public class TextSearchIndex<T> {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    // '+' is kept so blood types like "A+" stay one word
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}+]+");
+    private static final int GRAM = 3;
+
+    private static final int EXACT = 3;
+    private static final int PREFIX = 2;
+    private static final int SUBSTRING = 1;
+
+    private final ToIntFunction<T> id;
+    private final Function<T, String[]> fields;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry<T>> entries = new HashMap<>();
+    private final Map<String, Set<Integer>> trigrams = new HashMap<>();
+    private final NavigableMap<String, Set<Integer>> words = new TreeMap<>();
+
+    /**
+     * @param id Extracts an item's ID
+     * @param fields Extracts the searchable fields, most important first; null fields are skipped
+     */
+    public TextSearchIndex(ToIntFunction<T> id, Function<T, String[]> fields) {
+        this.id = id;
+        this.fields = fields;
+    }
+
+    /**
+     * Adds an item, or re-indexes it if its ID is already present
+     */
+    public void put(T item) {
+        lock.writeLock().lock();
+        try {
+            add(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int itemId) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(itemId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given items
+     */
+    public void replaceAll(Collection<T> items) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            trigrams.clear();
+            words.clear();
+            for (T item : items) {
+                add(item);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the items matching every term of the query, best matches first
+     * @param limit Maximum number of results
+     * @return Matching items; empty for a blank query
+     */
+    public List<T> search(String query, int limit) {
+        String[] terms = tokenize(query);
+        List<T> result = new ArrayList<>();
+        if (terms.length == 0 || limit <= 0) {
+            return result;
+        }
+        List<Hit<T>> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<Integer> candidates = null;
+            for (String term : terms) {
+                Set<Integer> matches = candidatesFor(term, candidates);
+                if (matches.isEmpty()) {
+                    return result;
+                }
+                candidates = matches;
+            }
+            for (Integer candidate : candidates) {
+                Entry<T> entry = entries.get(candidate);
+                int score = score(entry, terms);
+                if (score > 0) {
+                    hits.add(new Hit<>(entry.item, candidate, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(Comparator.comparingInt((Hit<T> hit) -> -hit.score).thenComparingInt(hit -> hit.id));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            result.add(hits.get(i).item);
+        }
+        return result;
+    }
+
+    /**
+     * Lower-cases, strips accents and splits into words
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        String plain = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        String[] tokens = SEPARATORS.split(plain.toLowerCase(Locale.ROOT));
+        List<String> words = new ArrayList<>(tokens.length);
+        for (String token : tokens) {
+            if (!token.isEmpty()) {
+                words.add(token);
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    private void add(T item) {
+        int itemId = id.applyAsInt(item);
+        removeEntry(itemId);
+        String[] values = fields.apply(item);
+        String[][] fieldWords = new String[values.length][];
+        for (int f = 0; f < values.length; f++) {
+            fieldWords[f] = tokenize(values[f]);
+            for (String word : fieldWords[f]) {
+                words.computeIfAbsent(word, w -> new HashSet<>()).add(itemId);
+                for (String gram : gramsOf(word)) {
+                    trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(itemId);
+                }
+            }
+        }
+        entries.put(itemId, new Entry<>(item, fieldWords));
+    }
+
+    private void removeEntry(int itemId) {
+        Entry<T> old = entries.remove(itemId);
+        if (old == null) {
+            return;
+        }
+        for (String[] fieldWords : old.fieldWords) {
+            for (String word : fieldWords) {
+                unlink(words, word, itemId);
+                for (String gram : gramsOf(word)) {
+                    unlink(trigrams, gram, itemId);
+                }
+            }
+        }
+    }
+
+    private static void unlink(Map<String, Set<Integer>> postings, String key, int itemId) {
+        Set<Integer> ids = postings.get(key);
+        if (ids != null && ids.remove(itemId) && ids.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    /**
+     * IDs that may contain the term, narrowed to the previous candidates if there are any
+     */
+    private Set<Integer> candidatesFor(String term, Set<Integer> previous) {
+        List<Set<Integer>> postings = new ArrayList<>();
+        if (term.length() >= GRAM) {
+            for (String gram : gramsOf(term)) {
+                Set<Integer> ids = trigrams.get(gram);
+                if (ids == null) {
+                    return new HashSet<>();
+                }
+                postings.add(ids);
+            }
+        } else {
+            Set<Integer> union = new HashSet<>();
+            for (Set<Integer> ids : words.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+                union.addAll(ids);
+            }
+            postings.add(union);
+        }
+        if (previous != null) {
+            postings.add(previous);
+        }
+        // Walk the smallest set and check membership in the others
+        postings.sort(Comparator.comparingInt(Set::size));
+        Set<Integer> result = new HashSet<>();
+        for (Integer candidate : postings.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++) {
+                inAll = postings.get(i).contains(candidate);
+            }
+            if (inAll) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sums the best match of each term; 0 if a term does not actually occur
+     * (trigrams can all be present without the term being in one word)
+     */
+    private static int score(Entry<?> entry, String[] terms) {
+        int total = 0;
+        for (String term : terms) {
+            int best = 0;
+            for (int f = 0; f < entry.fieldWords.length; f++) {
+                for (String word : entry.fieldWords[f]) {
+                    int kind = word.equals(term) ? EXACT
+                        : word.startsWith(term) ? PREFIX
+                        : term.length() >= GRAM && word.contains(term) ? SUBSTRING
+                        : 0;
+                    if (kind > 0) {
+                        best = Math.max(best, kind * 100 - f);
+                    }
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static Set<String> gramsOf(String word) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= word.length(); i++) {
+            grams.add(word.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final String[][] fieldWords;
+
+        Entry(T item, String[][] fieldWords) {
+            this.item = item;
+            this.fieldWords = fieldWords;
+        }
+    }
+
+    private static final class Hit<T> {
+        final T item;
+        final int id;
+        final int score;
+
+        Hit(T item, int id, int score) {
+            this.item = item;
+            this.id = id;
+            this.score = score;
+        }
+    }
+}